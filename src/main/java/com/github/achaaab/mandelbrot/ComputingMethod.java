@@ -0,0 +1,109 @@
+package com.github.achaaab.mandelbrot;
+
+import com.github.achaaab.mandelbrot.jocl.MandelbrotFractalClDouble;
+import com.github.achaaab.mandelbrot.jocl.MandelbrotFractalClFloat;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Methods available to compute a Mandelbrot fractal.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public enum ComputingMethod {
+
+	/**
+	 * OpenCL with double precision floating point numbers.
+	 *
+	 * @since 0.0.2
+	 */
+	OPEN_CL_64,
+
+	/**
+	 * OpenCL with simple precision floating point numbers.
+	 *
+	 * @since 0.0.2
+	 */
+	OPEN_CL_32,
+
+	/**
+	 * CPU and standard instructions (default, but slowest).
+	 *
+	 * @since 0.0.2
+	 */
+	CPU,
+
+	/**
+	 * CPU and SIMD instructions (requires a CPU with SIMD instructions).
+	 *
+	 * @since 0.0.2
+	 */
+	CPU_SIMD;
+
+	/**
+	 * @return whether fractals computed with this method compute arbitrary points, as well as regular grids
+	 * @see MandelbrotFractal#compute(double[], double[], IterationImage)
+	 * @since 0.0.2
+	 */
+	public boolean computesPoints() {
+		return this == CPU || this == CPU_SIMD;
+	}
+
+	/**
+	 * Creates a Mandelbrot fractal computed with this method.
+	 *
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param iterations maximum iterations for each pixel
+	 * @return created Mandelbrot fractal
+	 * @since 0.0.2
+	 */
+	public MandelbrotFractal create(double minX, double maxX, double minY, double maxY, int iterations) {
+
+		return switch (this) {
+
+			case OPEN_CL_64 -> new MandelbrotFractalClDouble(minX, maxX, minY, maxY, iterations);
+			case OPEN_CL_32 -> new MandelbrotFractalClFloat(minX, maxX, minY, maxY, iterations);
+			case CPU -> new MandelbrotFractalCpu(minX, maxX, minY, maxY, iterations);
+			case CPU_SIMD -> createMandelbrotFactalSimd(minX, maxX, minY, maxY, iterations);
+		};
+	}
+
+	/**
+	 * Creates a Mandelbrot fractal computed with SIMD instructions. The implementation is loaded by reflection,
+	 * so that other methods can be used without the incubating vector module.
+	 *
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param maxIterations maximum iterations for each pixel
+	 * @return created Mandelbrot fractal
+	 * @since 0.0.1
+	 */
+	private static MandelbrotFractal createMandelbrotFactalSimd(
+			double minX, double maxX, double minY, double maxY, int maxIterations) {
+
+		try {
+
+			var implementation = Class.forName("com.github.achaaab.mandelbrot.MandelbrotFractalSimd");
+
+			var constructor = implementation.getConstructor(
+					Double.TYPE,
+					Double.TYPE,
+					Double.TYPE,
+					Double.TYPE,
+					Integer.TYPE);
+
+			return (MandelbrotFractal) constructor.newInstance(minX, maxX, minY, maxY, maxIterations);
+
+		}catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException |
+				InvocationTargetException cause) {
+
+			throw new RuntimeException(cause);
+		}
+	}
+}
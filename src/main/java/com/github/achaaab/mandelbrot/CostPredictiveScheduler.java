@@ -0,0 +1,415 @@
+package com.github.achaaab.mandelbrot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.floor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Schedules the computation of an image on the CPU cores, from the costs measured on the previous image. The cost
+ * of a pixel varies by orders of magnitude across an image, so splitting it in equal parts leaves a tail of
+ * straggling parts near the set.
+ *
+ * <p>The image is divided into square tiles whose costs (iterations plus pixels) are recorded at each frame. For the
+ * next frame, the recorded costs are reprojected to the new bounds, following pans and zooms, and the tiles are
+ * grouped into work units of similar predicted costs: expensive tiles are split into bands of rows, consecutive cheap
+ * tiles are merged. Units are then computed in decreasing order of predicted cost (longest processing time first),
+ * each worker taking the next unit as soon as it is idle.</p>
+ *
+ * <p>With an interior index, tiles covered by regions proven interior are filled without iterating, and tiles whose
+ * pixels all reached the maximum of iterations are offered to the index, which proves them interior or rejects them,
+ * for the next images.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class CostPredictiveScheduler {
+
+	/**
+	 * Width and height of the tiles in pixels, a multiple of the SIMD lane count.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int TILE_SIZE = 32;
+
+	/**
+	 * Number of work units per worker, so that the last units are small compared to the whole image.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int UNITS_PER_WORKER = 8;
+
+	private final int workerCount;
+
+	private int imageWidth;
+	private int imageHeight;
+	private double minX;
+	private double minY;
+	private double scaleX;
+	private double scaleY;
+	private long[] costs;
+
+	/**
+	 * Creates a new scheduler, using every available processor.
+	 *
+	 * @since 0.0.2
+	 */
+	CostPredictiveScheduler() {
+		workerCount = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Computes every pixel of an image and records the cost of its tiles.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param minX x of the first column
+	 * @param minY y of the first row (from the bottom)
+	 * @param scaleX x difference between consecutive columns
+	 * @param scaleY y difference between consecutive rows
+	 * @param kernel kernel computing row segments
+	 * @param interior settings of the interior index, {@code null} if there is none
+	 * @since 0.0.2
+	 */
+	void run(int width, int height, double minX, double minY, double scaleX, double scaleY, SegmentKernel kernel,
+			Interior interior) {
+
+		var columnCount = (width + TILE_SIZE - 1) / TILE_SIZE;
+		var rowCount = (height + TILE_SIZE - 1) / TILE_SIZE;
+		var tileCount = columnCount * rowCount;
+
+		var predictedCosts = predict(width, height, minX, minY, scaleX, scaleY, columnCount, rowCount);
+		var measuredCosts = new AtomicLongArray(tileCount);
+		var knownTiles = new boolean[tileCount];
+
+		if (interior != null) {
+
+			for (var tile = 0; tile < tileCount; tile++) {
+
+				var segment = getSegment(tile, width, height, columnCount);
+
+				knownTiles[tile] = interior.index().contains(
+						minX + segment.firstColumn() * scaleX, minY + segment.firstRow() * scaleY,
+						minX + (segment.columnEnd() - 1) * scaleX, minY + (segment.rowEnd() - 1) * scaleY);
+
+				if (knownTiles[tile]) {
+					predictedCosts[tile] = 0.0;
+				}
+			}
+
+			range(0, tileCount).parallel().filter(tile -> knownTiles[tile]).forEach(tile -> {
+
+				var segment = getSegment(tile, width, height, columnCount);
+
+				for (var j = segment.firstRow(); j < segment.rowEnd(); j++) {
+					interior.kernel().compute(j, segment.firstColumn(), segment.columnEnd());
+				}
+
+				measuredCosts.set(tile, segment.getPixelCount());
+			});
+		}
+
+		var units = createUnits(predictedCosts, knownTiles, width, height, columnCount);
+		var nextUnit = new AtomicInteger();
+
+		range(0, workerCount).parallel().forEach(worker -> {
+
+			int unit;
+
+			while ((unit = nextUnit.getAndIncrement()) < units.size()) {
+
+				for (var segment : units.get(unit).segments()) {
+
+					var cost = 0L;
+
+					for (var j = segment.firstRow(); j < segment.rowEnd(); j++) {
+
+						cost += kernel.compute(j, segment.firstColumn(), segment.columnEnd());
+						cost += segment.columnEnd() - segment.firstColumn();
+					}
+
+					measuredCosts.addAndGet(segment.tile(), cost);
+				}
+			}
+		});
+
+		if (interior != null) {
+
+			range(0, tileCount).parallel().forEach(tile -> {
+
+				var segment = getSegment(tile, width, height, columnCount);
+				var tileWidth = segment.columnEnd() - segment.firstColumn();
+				var tileHeight = segment.rowEnd() - segment.firstRow();
+
+				// every pixel reached the maximum, the tile may be proven interior
+				if (!knownTiles[tile] && tileWidth > 1 && tileHeight > 1 &&
+						measuredCosts.get(tile) == segment.getPixelCount() * (interior.iterations() + 1L)) {
+
+					interior.index().accept(
+							minX + segment.firstColumn() * scaleX, minY + segment.firstRow() * scaleY,
+							minX + (segment.columnEnd() - 1) * scaleX, minY + (segment.rowEnd() - 1) * scaleY);
+				}
+			});
+		}
+
+		imageWidth = width;
+		imageHeight = height;
+		this.minX = minX;
+		this.minY = minY;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+		costs = new long[measuredCosts.length()];
+
+		for (var tile = 0; tile < costs.length; tile++) {
+			costs[tile] = measuredCosts.get(tile);
+		}
+	}
+
+	/**
+	 * Predicts the cost of every tile by reprojecting the costs of the previous image: the cost per pixel at the
+	 * center of a tile is the cost per pixel of the previous tile at the same point of the complex plane. Tiles
+	 * outside the previous image get the mean cost per pixel of the previous image, and every tile gets its pixel
+	 * count if there is no previous image.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param minX x of the first column
+	 * @param minY y of the first row (from the bottom)
+	 * @param scaleX x difference between consecutive columns
+	 * @param scaleY y difference between consecutive rows
+	 * @param columnCount number of tile columns
+	 * @param rowCount number of tile rows
+	 * @return predicted cost of every tile, row by row from the bottom
+	 * @since 0.0.2
+	 */
+	private double[] predict(int width, int height, double minX, double minY, double scaleX, double scaleY,
+			int columnCount, int rowCount) {
+
+		var predictedCosts = new double[columnCount * rowCount];
+		var previousColumnCount = (imageWidth + TILE_SIZE - 1) / TILE_SIZE;
+		var meanCostPerPixel = costs == null ? 1.0 : sum(costs) / ((double) imageWidth * imageHeight);
+
+		for (var row = 0; row < rowCount; row++) {
+
+			var firstRow = row * TILE_SIZE;
+			var tileHeight = min(TILE_SIZE, height - firstRow);
+
+			for (var column = 0; column < columnCount; column++) {
+
+				var firstColumn = column * TILE_SIZE;
+				var tileWidth = min(TILE_SIZE, width - firstColumn);
+				var costPerPixel = meanCostPerPixel;
+
+				if (costs != null) {
+
+					// center of the tile, in pixels of the previous image
+					var x = (minX + (firstColumn + tileWidth / 2.0) * scaleX - this.minX) / this.scaleX;
+					var y = (minY + (firstRow + tileHeight / 2.0) * scaleY - this.minY) / this.scaleY;
+
+					if (x >= 0 && x < imageWidth && y >= 0 && y < imageHeight) {
+
+						var previousColumn = (int) floor(x) / TILE_SIZE;
+						var previousRow = (int) floor(y) / TILE_SIZE;
+						var previousWidth = min(TILE_SIZE, imageWidth - previousColumn * TILE_SIZE);
+						var previousHeight = min(TILE_SIZE, imageHeight - previousRow * TILE_SIZE);
+						var previousCost = costs[previousRow * previousColumnCount + previousColumn];
+
+						costPerPixel = (double) previousCost / (previousWidth * previousHeight);
+					}
+				}
+
+				predictedCosts[row * columnCount + column] = costPerPixel * tileWidth * tileHeight;
+			}
+		}
+
+		return predictedCosts;
+	}
+
+	/**
+	 * @param tile index of a tile
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param columnCount number of tile columns
+	 * @return segment covering the whole tile
+	 * @since 0.0.2
+	 */
+	private static Segment getSegment(int tile, int width, int height, int columnCount) {
+
+		var firstColumn = tile % columnCount * TILE_SIZE;
+		var firstRow = tile / columnCount * TILE_SIZE;
+
+		return new Segment(tile, firstColumn, min(firstColumn + TILE_SIZE, width),
+				firstRow, min(firstRow + TILE_SIZE, height));
+	}
+
+	/**
+	 * Groups tiles into work units of similar predicted costs, sorted by decreasing predicted cost.
+	 *
+	 * @param predictedCosts predicted cost of every tile, 0 for known tiles
+	 * @param knownTiles whether every tile is known to be interior, in which case it is already filled
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param columnCount number of tile columns
+	 * @return work units to compute, the most expensive first
+	 * @since 0.0.2
+	 */
+	private List<WorkUnit> createUnits(double[] predictedCosts, boolean[] knownTiles, int width, int height,
+			int columnCount) {
+
+		var targetCost = max(sum(predictedCosts) / (workerCount * UNITS_PER_WORKER), Double.MIN_VALUE);
+		var units = new ArrayList<WorkUnit>();
+
+		var mergedSegments = new ArrayList<Segment>();
+		var mergedCost = 0.0;
+
+		for (var tile = 0; tile < predictedCosts.length; tile++) {
+
+			if (knownTiles[tile]) {
+				continue;
+			}
+
+			var tileSegment = getSegment(tile, width, height, columnCount);
+			var firstColumn = tileSegment.firstColumn();
+			var columnEnd = tileSegment.columnEnd();
+			var firstRow = tileSegment.firstRow();
+			var rowEnd = tileSegment.rowEnd();
+			var cost = predictedCosts[tile];
+
+			if (cost > targetCost) {
+
+				// expensive tile, split into bands of rows
+				var bandCount = (int) min(ceil(cost / targetCost), rowEnd - firstRow);
+
+				for (var band = 0; band < bandCount; band++) {
+
+					var bandFirstRow = firstRow + (rowEnd - firstRow) * band / bandCount;
+					var bandRowEnd = firstRow + (rowEnd - firstRow) * (band + 1) / bandCount;
+					var segment = new Segment(tile, firstColumn, columnEnd, bandFirstRow, bandRowEnd);
+					units.add(new WorkUnit(List.of(segment), cost / bandCount));
+				}
+
+			} else {
+
+				// cheap tile, merged with the next ones
+				mergedSegments.add(tileSegment);
+				mergedCost += cost;
+
+				if (mergedCost >= targetCost) {
+
+					units.add(new WorkUnit(List.copyOf(mergedSegments), mergedCost));
+					mergedSegments.clear();
+					mergedCost = 0.0;
+				}
+			}
+		}
+
+		if (!mergedSegments.isEmpty()) {
+			units.add(new WorkUnit(List.copyOf(mergedSegments), mergedCost));
+		}
+
+		units.sort(Comparator.comparingDouble(WorkUnit::cost).reversed());
+
+		return units;
+	}
+
+	/**
+	 * @param values values to sum
+	 * @return sum of the values
+	 * @since 0.0.2
+	 */
+	private static double sum(long[] values) {
+
+		var sum = 0.0;
+
+		for (var value : values) {
+			sum += value;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * @param values values to sum
+	 * @return sum of the values
+	 * @since 0.0.2
+	 */
+	private static double sum(double[] values) {
+
+		var sum = 0.0;
+
+		for (var value : values) {
+			sum += value;
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Kernel computing a segment of a row.
+	 *
+	 * @since 0.0.2
+	 */
+	@FunctionalInterface
+	interface SegmentKernel {
+
+		/**
+		 * @param j row to compute (from the bottom)
+		 * @param firstColumn first column of the segment
+		 * @param columnEnd column after the segment
+		 * @return total number of iterations of the segment
+		 * @since 0.0.2
+		 */
+		long compute(int j, int firstColumn, int columnEnd);
+	}
+
+	/**
+	 * Settings of the interior index.
+	 *
+	 * @param index index of the regions proven interior
+	 * @param kernel kernel filling row segments proven interior, without iterating
+	 * @param iterations maximum number of iterations
+	 * @since 0.0.2
+	 */
+	record Interior(InteriorIndex index, SegmentKernel kernel, int iterations) {
+
+	}
+
+	/**
+	 * Rectangle of pixels within a single tile.
+	 *
+	 * @param tile index of the tile
+	 * @param firstColumn first column
+	 * @param columnEnd column after the rectangle
+	 * @param firstRow first row (from the bottom)
+	 * @param rowEnd row after the rectangle
+	 * @since 0.0.2
+	 */
+	private record Segment(int tile, int firstColumn, int columnEnd, int firstRow, int rowEnd) {
+
+		/**
+		 * @return number of pixels in the segment
+		 * @since 0.0.2
+		 */
+		long getPixelCount() {
+			return (long) (columnEnd - firstColumn) * (rowEnd - firstRow);
+		}
+	}
+
+	/**
+	 * Segments computed by the same worker, one after the other.
+	 *
+	 * @param segments segments of the unit
+	 * @param cost predicted cost of the unit
+	 * @since 0.0.2
+	 */
+	private record WorkUnit(List<Segment> segments, double cost) {
+
+	}
+}
@@ -0,0 +1,444 @@
+package com.github.achaaab.mandelbrot;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.time.Duration;
+import java.util.function.IntConsumer;
+
+import static java.lang.Math.fma;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Renders Mandelbrot frames within a time budget, whatever the maximum number of iterations. Pixels are iterated
+ * by increasing steps, and the orbit of every pixel still iterating when the budget expires is kept, so that later
+ * calls resume it. Unresolved pixels are given a provisional value: the value of their slowest escaping resolved
+ * neighbour, or the interior if none of their resolved neighbours escaped.
+ *
+ * <p>The renderer is started on a view, then each call to {@link #refine(BufferedImage)} iterates the unresolved
+ * pixels for at most the budget, colors the pixels that changed and returns their area, until every pixel is
+ * resolved. Results are identical to {@link MandelbrotFractalCpu}, antialiasing aside.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class DeadlineRenderer {
+
+	/**
+	 * Number of pixels iterated by a task between 2 deadline checks.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int BLOCK_SIZE = 256;
+
+	/**
+	 * Iterations given to every unresolved pixel by the first pass.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int FIRST_STEP = 64;
+
+	/**
+	 * Maximum iterations given to every unresolved pixel by a pass, bounding the time between 2 deadline checks.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int MAX_STEP = 1024;
+
+	/**
+	 * Weight of the last refinement in the estimated time spent after the deadline of iterations.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double SMOOTHING = 0.5;
+
+	private final long budget;
+
+	private MandelbrotFractal fractal;
+	private int width;
+	private int height;
+	private double minX;
+	private double minY;
+	private double scaleX;
+	private double scaleY;
+	private double bailout;
+	private int iterations;
+	private boolean smooth;
+
+	private IterationImage iterationImage;
+	private double[] orbitX;
+	private double[] orbitY;
+	private int[] orbitIterations;
+	private boolean[] resolved;
+	private int[] unresolvedPixels;
+	private int unresolvedCount;
+	private int[] resolvedPixels;
+	private int step;
+	private boolean started;
+	private long startTime;
+	private BufferedImage coloredImage;
+
+	private double finishTime;
+
+	/**
+	 * Creates a new deadline renderer.
+	 *
+	 * @param budget maximum time spent by each refinement
+	 * @since 0.0.2
+	 */
+	public DeadlineRenderer(Duration budget) {
+
+		this.budget = budget.toNanos();
+
+		finishTime = 0.0;
+	}
+
+	/**
+	 * Starts rendering the current area of a Mandelbrot fractal, with its current iterations and coloring settings.
+	 * Every pixel is unresolved. The buffers are reset by the next refinement, within its budget, which starts now.
+	 *
+	 * @param fractal Mandelbrot fractal to render, its area and settings are copied
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @since 0.0.2
+	 */
+	public void start(MandelbrotFractal fractal, int width, int height) {
+
+		this.fractal = fractal;
+		this.width = width;
+		this.height = height;
+
+		minX = fractal.getMinX();
+		minY = fractal.getMinY();
+		scaleX = fractal.getWidth() / width;
+		scaleY = fractal.getHeight() / height;
+		bailout = fractal.getBailout();
+		iterations = fractal.getIterations();
+		smooth = fractal.isSmooth();
+
+		unresolvedCount = width * height;
+		startTime = nanoTime();
+		started = true;
+	}
+
+	/**
+	 * Makes every pixel unresolved, allocating the buffers if the image size or the coloring mode changed.
+	 *
+	 * @since 0.0.2
+	 */
+	private void reset() {
+
+		var pixelCount = width * height;
+
+		if (iterationImage == null || iterationImage.getWidth() != width || iterationImage.getHeight() != height ||
+				iterationImage.isSmooth() != smooth) {
+
+			iterationImage = new IterationImage(width, height, smooth);
+			orbitX = new double[pixelCount];
+			orbitY = new double[pixelCount];
+			orbitIterations = new int[pixelCount];
+			resolved = new boolean[pixelCount];
+			unresolvedPixels = new int[pixelCount];
+			resolvedPixels = new int[pixelCount];
+		}
+
+		iterationImage.setMaxIterations(iterations);
+		var iterationCounts = iterationImage.getIterations();
+
+		range(0, pixelCount).parallel().forEach(pixelIndex -> {
+
+			orbitX[pixelIndex] = 0.0;
+			orbitY[pixelIndex] = 0.0;
+			orbitIterations[pixelIndex] = 0;
+			resolved[pixelIndex] = false;
+			unresolvedPixels[pixelIndex] = pixelIndex;
+
+			// until resolved, every pixel is guessed in the interior
+			iterationCounts[pixelIndex] = iterations;
+		});
+
+		unresolvedCount = pixelCount;
+		step = FIRST_STEP;
+	}
+
+	/**
+	 * Iterates the unresolved pixels until they are all resolved or the budget expires, gives provisional values to
+	 * the remaining ones and colors the pixels that changed. Iterations stop early enough for the whole refinement,
+	 * coloring included, to fit in the budget, the time spent after them being estimated from the previous
+	 * refinements. The first refinement after a start also resets the buffers, and its budget runs from the start.
+	 *
+	 * <p>Only the pixels that changed are colored, as long as the image is the one colored by the last refinement.
+	 * Any other image, such as the other buffer of a double buffered view, is colored entirely.</p>
+	 *
+	 * @param image image in which to write colors, of the size given at start
+	 * @return image area that changed since the last refinement, {@code null} if none
+	 * @since 0.0.2
+	 */
+	public Rectangle refine(BufferedImage image) {
+
+		var deadline = (started ? startTime : nanoTime()) + budget - (long) finishTime;
+
+		if (started) {
+			reset();
+		}
+
+		var firstChangedRow = started ? 0 : height;
+		var lastChangedRow = started ? height - 1 : -1;
+		var resolvedCount = 0;
+
+		while (unresolvedCount > 0 && nanoTime() < deadline) {
+
+			var blockCount = (unresolvedCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			var passStep = step;
+
+			range(0, blockCount).parallel().forEach(block -> {
+
+				if (nanoTime() < deadline) {
+
+					var blockEnd = min((block + 1) * BLOCK_SIZE, unresolvedCount);
+
+					for (var k = block * BLOCK_SIZE; k < blockEnd; k++) {
+						advance(unresolvedPixels[k], passStep);
+					}
+				}
+			});
+
+			// compacts unresolved pixels, keeping their order
+			var count = 0;
+
+			for (var k = 0; k < unresolvedCount; k++) {
+
+				var pixelIndex = unresolvedPixels[k];
+
+				if (resolved[pixelIndex]) {
+
+					resolvedPixels[resolvedCount++] = pixelIndex;
+
+					var row = pixelIndex / width;
+					firstChangedRow = min(firstChangedRow, row);
+					lastChangedRow = max(lastChangedRow, row);
+
+				} else {
+
+					unresolvedPixels[count++] = pixelIndex;
+				}
+			}
+
+			unresolvedCount = count;
+			step = min(step * 2, MAX_STEP);
+		}
+
+		var iterationEnd = nanoTime();
+
+		estimateNeighbours(resolvedCount);
+
+		if (started || image != coloredImage) {
+
+			fractal.colorize(iterationImage, image);
+			coloredImage = image;
+
+		} else {
+
+			colorizeChanges(image, resolvedCount);
+		}
+
+		// time spent after the deadline of iterations: last blocks, compaction, estimation and coloring
+		if (iterationEnd >= deadline) {
+			finishTime = SMOOTHING * (nanoTime() - deadline) + (1 - SMOOTHING) * finishTime;
+		}
+		started = false;
+
+		if (firstChangedRow > lastChangedRow) {
+			return null;
+		}
+
+		// provisional values of the neighbours of resolved pixels changed too
+		firstChangedRow = max(firstChangedRow - 1, 0);
+		lastChangedRow = min(lastChangedRow + 1, height - 1);
+
+		return new Rectangle(0, firstChangedRow, width, lastChangedRow - firstChangedRow + 1);
+	}
+
+	/**
+	 * Resumes the orbit of a pixel for a number of iterations, resolving it if it escapes or reaches the maximum
+	 * number of iterations.
+	 *
+	 * @param pixelIndex index of the pixel, row by row from the top
+	 * @param steps maximum number of iterations
+	 * @since 0.0.2
+	 */
+	private void advance(int pixelIndex, int steps) {
+
+		var x0 = minX + pixelIndex % width * scaleX;
+		var y0 = minY + (height - pixelIndex / width - 1) * scaleY;
+
+		var x = orbitX[pixelIndex];
+		var y = orbitY[pixelIndex];
+		var xx = x * x;
+		var yy = y * y;
+
+		var iteration = orbitIterations[pixelIndex];
+		var end = min(iteration + steps, iterations);
+
+		while (iteration < end && xx + yy < bailout) {
+
+			y = fma(x + x, y, y0);
+			x = xx - yy + x0;
+
+			xx = x * x;
+			yy = y * y;
+
+			iteration++;
+		}
+
+		orbitX[pixelIndex] = x;
+		orbitY[pixelIndex] = y;
+		orbitIterations[pixelIndex] = iteration;
+
+		var escaped = xx + yy >= bailout;
+
+		if (escaped || iteration == iterations) {
+
+			iterationImage.getIterations()[pixelIndex] = iteration;
+
+			if (iterationImage.isSmooth()) {
+
+				iterationImage.getFractions()[pixelIndex] = escaped ?
+						MandelbrotFractal.getSmoothFraction(xx + yy) :
+						0.0f;
+			}
+
+			resolved[pixelIndex] = true;
+		}
+	}
+
+	/**
+	 * Updates the provisional values of the unresolved neighbours of the pixels resolved by the last refinement.
+	 *
+	 * @param resolvedCount number of pixels resolved by the last refinement
+	 * @since 0.0.2
+	 */
+	private void estimateNeighbours(int resolvedCount) {
+
+		for (var k = 0; k < resolvedCount; k++) {
+			forEachUnresolvedNeighbour(resolvedPixels[k], this::estimate);
+		}
+	}
+
+	/**
+	 * Colors the pixels resolved by the last refinement and their unresolved neighbours, whose provisional values
+	 * changed.
+	 *
+	 * @param image image in which to write colors, colored by the previous refinements
+	 * @param resolvedCount number of pixels resolved by the last refinement
+	 * @since 0.0.2
+	 */
+	private void colorizeChanges(BufferedImage image, int resolvedCount) {
+
+		var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		IntConsumer colorizer = pixelIndex -> rgb[pixelIndex] = fractal.getColor(iterationImage, pixelIndex);
+
+		range(0, resolvedCount).parallel().forEach(k -> {
+
+			var pixelIndex = resolvedPixels[k];
+
+			colorizer.accept(pixelIndex);
+			forEachUnresolvedNeighbour(pixelIndex, colorizer);
+		});
+	}
+
+	/**
+	 * @param pixelIndex index of a pixel, row by row from the top
+	 * @param action action to perform on each unresolved neighbour of the pixel
+	 * @since 0.0.2
+	 */
+	private void forEachUnresolvedNeighbour(int pixelIndex, IntConsumer action) {
+
+		var i = pixelIndex % width;
+		var row = pixelIndex / width;
+
+		if (i > 0 && !resolved[pixelIndex - 1]) {
+			action.accept(pixelIndex - 1);
+		}
+
+		if (i < width - 1 && !resolved[pixelIndex + 1]) {
+			action.accept(pixelIndex + 1);
+		}
+
+		if (row > 0 && !resolved[pixelIndex - width]) {
+			action.accept(pixelIndex - width);
+		}
+
+		if (row < height - 1 && !resolved[pixelIndex + width]) {
+			action.accept(pixelIndex + width);
+		}
+	}
+
+	/**
+	 * Gives a provisional value to an unresolved pixel: the value of its slowest escaping resolved neighbour, or the
+	 * interior if none of its resolved neighbours escaped.
+	 *
+	 * @param pixelIndex index of the unresolved pixel, row by row from the top
+	 * @since 0.0.2
+	 */
+	private void estimate(int pixelIndex) {
+
+		var i = pixelIndex % width;
+		var row = pixelIndex / width;
+
+		var neighbour = -1;
+
+		neighbour = getSlowestEscape(neighbour, i > 0 ? pixelIndex - 1 : -1);
+		neighbour = getSlowestEscape(neighbour, i < width - 1 ? pixelIndex + 1 : -1);
+		neighbour = getSlowestEscape(neighbour, row > 0 ? pixelIndex - width : -1);
+		neighbour = getSlowestEscape(neighbour, row < height - 1 ? pixelIndex + width : -1);
+
+		var iterationCounts = iterationImage.getIterations();
+		var fractions = iterationImage.getFractions();
+
+		iterationCounts[pixelIndex] = neighbour == -1 ? iterations : iterationCounts[neighbour];
+
+		if (fractions != null) {
+			fractions[pixelIndex] = neighbour == -1 ? 0.0f : fractions[neighbour];
+		}
+	}
+
+	/**
+	 * @param pixelIndex index of a resolved escaping pixel, -1 if none
+	 * @param neighbour index of a neighbour pixel, -1 if none
+	 * @return the slowest escaping pixel among the given pixel and the neighbour, if it is resolved
+	 * @since 0.0.2
+	 */
+	private int getSlowestEscape(int pixelIndex, int neighbour) {
+
+		if (neighbour == -1 || !resolved[neighbour]) {
+			return pixelIndex;
+		}
+
+		var iterationCounts = iterationImage.getIterations();
+		var iteration = iterationCounts[neighbour];
+
+		return iteration < iterations && (pixelIndex == -1 || iteration > iterationCounts[pixelIndex]) ?
+				neighbour :
+				pixelIndex;
+	}
+
+	/**
+	 * @return whether every pixel is resolved
+	 * @since 0.0.2
+	 */
+	public boolean isResolved() {
+		return unresolvedCount == 0;
+	}
+
+	/**
+	 * @return number of pixels still iterating
+	 * @since 0.0.2
+	 */
+	public int getUnresolvedCount() {
+		return unresolvedCount;
+	}
+}
@@ -0,0 +1,216 @@
+package com.github.achaaab.mandelbrot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.github.achaaab.mandelbrot.MandelbrotInterior.isInMainComponents;
+import static java.lang.Math.ceil;
+import static java.lang.Math.floor;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.scalb;
+
+/**
+ * Spatial index of the regions of the complex plane proven inside the Mandelbrot set, so that pixels falling in them
+ * are filled without iterating when the view moves. Regions are stored as cells of a quadtree, bounded in number, the
+ * least recently used cells being dropped first. This class is thread-safe.
+ *
+ * <p>A rectangle is only accepted if it is proven inside the main cardioid or inside the period 2 bulb, in closed
+ * form, by {@link MandelbrotInterior#isInMainComponents(double, double, double, double)}. Points of the indexed
+ * regions never escape, whatever the maximum number of iterations, so that filling them gives the same image as
+ * iterating them.
+ * The Mandelbrot set being symmetric about the real axis, the mirror of every accepted rectangle is indexed too.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class InteriorIndex {
+
+	private static final double ROOT_MIN = -4.0;
+	private static final double ROOT_SIZE = 8.0;
+
+	/**
+	 * Deepest quadtree level, whose cells are still much larger than the precision of doubles.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int MAX_LEVEL = 48;
+
+	/**
+	 * Minimum number of cells per side of an accepted rectangle, at the level where it is indexed.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int CELLS_PER_SIDE = 4;
+
+	/**
+	 * @param side side of a rectangle in the complex plane
+	 * @return first quadtree level with at least {@link #CELLS_PER_SIDE} cells per side of the rectangle
+	 * @since 0.0.2
+	 */
+	private static int getLevel(double side) {
+		return (int) ceil(log(ROOT_SIZE * CELLS_PER_SIDE / side) / log(2));
+	}
+
+	private final Map<Cell, Boolean> cells;
+
+	/**
+	 * Creates a new empty index.
+	 *
+	 * @param capacity maximum number of indexed cells
+	 * @since 0.0.2
+	 */
+	public InteriorIndex(int capacity) {
+
+		// access order, so that the least recently used cell is dropped first
+		cells = new LinkedHashMap<>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Cell, Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @return whether the rectangle is covered by indexed cells
+	 * @since 0.0.2
+	 */
+	public synchronized boolean contains(double minX, double minY, double maxX, double maxY) {
+
+		if (cells.isEmpty() || minX < ROOT_MIN || minY < ROOT_MIN ||
+				maxX > ROOT_MIN + ROOT_SIZE || maxY > ROOT_MIN + ROOT_SIZE) {
+
+			return false;
+		}
+
+		// cells indexed from rectangles of the same size are searched, and their children
+		var maxLevel = getLevel(min(maxX - minX, maxY - minY)) + 1;
+
+		return maxLevel <= MAX_LEVEL && isCovered(0, 0, 0, minX, minY, maxX, maxY, maxLevel);
+	}
+
+	/**
+	 * Indexes a rectangle if it is proven inside the main cardioid or inside the period 2 bulb.
+	 *
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @return whether the rectangle was indexed
+	 * @since 0.0.2
+	 */
+	public boolean accept(double minX, double minY, double maxX, double maxY) {
+
+		if (getLevel(min(maxX - minX, maxY - minY)) > MAX_LEVEL ||
+				!isInMainComponents(minX, minY, maxX, maxY)) {
+
+			return false;
+		}
+
+		add(minX, minY, maxX, maxY);
+		add(minX, -maxY, maxX, -minY);
+
+		return true;
+	}
+
+	/**
+	 * @return number of indexed cells
+	 * @since 0.0.2
+	 */
+	public synchronized int getSize() {
+		return cells.size();
+	}
+
+	/**
+	 * Indexes the cells fully inside an accepted rectangle.
+	 *
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @since 0.0.2
+	 */
+	private synchronized void add(double minX, double minY, double maxX, double maxY) {
+
+		var level = getLevel(min(maxX - minX, maxY - minY));
+		var cellSize = scalb(ROOT_SIZE, -level);
+		var cellCount = 1L << level;
+
+		var firstColumn = max((long) ceil((minX - ROOT_MIN) / cellSize), 0);
+		var columnEnd = min((long) floor((maxX - ROOT_MIN) / cellSize), cellCount);
+		var firstRow = max((long) ceil((minY - ROOT_MIN) / cellSize), 0);
+		var rowEnd = min((long) floor((maxY - ROOT_MIN) / cellSize), cellCount);
+
+		for (var row = firstRow; row < rowEnd; row++) {
+			for (var column = firstColumn; column < columnEnd; column++) {
+				cells.put(new Cell(level, column, row), true);
+			}
+		}
+	}
+
+	/**
+	 * @param level level of the cell
+	 * @param column column of the cell
+	 * @param row row of the cell
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @param maxLevel deepest level to search
+	 * @return whether the intersection of the cell and the rectangle is covered by indexed cells
+	 * @since 0.0.2
+	 */
+	private boolean isCovered(int level, long column, long row, double minX, double minY, double maxX, double maxY,
+			int maxLevel) {
+
+		if (cells.get(new Cell(level, column, row)) != null) {
+			return true;
+		}
+
+		if (level == maxLevel) {
+			return false;
+		}
+
+		var childLevel = level + 1;
+		var childSize = scalb(ROOT_SIZE, -childLevel);
+
+		for (var childRow = 2 * row; childRow <= 2 * row + 1; childRow++) {
+
+			var childMinY = ROOT_MIN + childRow * childSize;
+
+			if (childMinY <= maxY && childMinY + childSize >= minY) {
+
+				for (var childColumn = 2 * column; childColumn <= 2 * column + 1; childColumn++) {
+
+					var childMinX = ROOT_MIN + childColumn * childSize;
+
+					if (childMinX <= maxX && childMinX + childSize >= minX &&
+							!isCovered(childLevel, childColumn, childRow, minX, minY, maxX, maxY, maxLevel)) {
+
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Cell of the quadtree.
+	 *
+	 * @param level quadtree level, the root being at level 0
+	 * @param column column of the cell at its level
+	 * @param row row of the cell at its level
+	 * @since 0.0.2
+	 */
+	private record Cell(int level, long column, long row) {
+
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.achaaab.mandelbrot;
+
+/**
+ * Raw result of a Mandelbrot computation, before coloring: the number of iterations of each pixel and, optionally,
+ * the fractional part of the normalized iteration count. Pixels are stored row by row from the top, like in
+ * images.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class IterationImage {
+
+	private final int width;
+	private final int height;
+	private final int[] iterations;
+	private final float[] fractions;
+
+	private int maxIterations;
+
+	/**
+	 * Creates a new iteration image.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param smooth whether to store fractions of normalized iteration counts
+	 * @since 0.0.2
+	 */
+	public IterationImage(int width, int height, boolean smooth) {
+
+		this.width = width;
+		this.height = height;
+
+		iterations = new int[width * height];
+		fractions = smooth ? new float[width * height] : null;
+	}
+
+	/**
+	 * @return whether fractions of normalized iteration counts are stored
+	 * @since 0.0.2
+	 */
+	public boolean isSmooth() {
+		return fractions != null;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return number of iterations of each pixel
+	 * @since 0.0.2
+	 */
+	public int[] getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return fraction of the normalized iteration count of each pixel, {@code null} if the image is not smooth
+	 * @since 0.0.2
+	 */
+	public float[] getFractions() {
+		return fractions;
+	}
+
+	/**
+	 * @return maximum number of iterations used to compute this image, pixels reaching it did not escape
+	 * @since 0.0.2
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @param maxIterations maximum number of iterations used to compute this image
+	 * @since 0.0.2
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+}
@@ -0,0 +1,144 @@
+package com.github.achaaab.mandelbrot;
+
+import static com.github.achaaab.mandelbrot.MandelbrotInterior.UNRESOLVED;
+import static com.github.achaaab.mandelbrot.MandelbrotInterior.getEscape;
+import static java.lang.Integer.highestOneBit;
+import static java.lang.Math.clamp;
+import static java.lang.Math.max;
+import static java.util.Arrays.sort;
+import static java.util.Arrays.stream;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Tunes the maximum number of iterations of a Mandelbrot fractal from the escape statistics of its current area, so
+ * that no iteration is spent on pixels that will never escape, while the image remains stable. The area is probed on
+ * a coarse grid with the current maximum, and the next maximum is the smallest power of 2 at least twice as large as
+ * the slowest escapes, a small tolerated fraction of the probes aside.
+ *
+ * <p>While many probes escape in the upper half of the maximum, more pixels are likely to escape beyond it, so the
+ * maximum is doubled. It is doubled too while almost no probe escapes but many are unresolved: neither escaped nor
+ * proven in the interior, by the main cardioid, the period 2 bulb or a periodic orbit. When the slowest escapes are
+ * far below the maximum, it is lowered, keeping a factor 2 of margin so that it does not oscillate while the area
+ * moves.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class IterationTuner {
+
+	/**
+	 * Number of probes per axis.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int PROBE_SIZE = 128;
+
+	/**
+	 * Fraction of the probes whose escapes are ignored, as they are too few to change the image noticeably.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double TOLERANCE = 1.0 / 1000;
+
+	/**
+	 * Lowest tuned maximum of iterations.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final int MIN_ITERATIONS = 64;
+
+	/**
+	 * Highest tuned maximum of iterations.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final int MAX_ITERATIONS = 1 << 24;
+
+	private final int[] probes;
+	private double interiorFraction;
+	private double unresolvedFraction;
+
+	/**
+	 * Creates a new iteration tuner.
+	 *
+	 * @since 0.0.2
+	 */
+	public IterationTuner() {
+
+		probes = new int[PROBE_SIZE * PROBE_SIZE];
+		interiorFraction = 0.0;
+		unresolvedFraction = 0.0;
+	}
+
+	/**
+	 * Probes the current area of a Mandelbrot fractal with its current maximum of iterations.
+	 *
+	 * @param fractal Mandelbrot fractal to probe
+	 * @return maximum number of iterations for the next frame
+	 * @since 0.0.2
+	 */
+	public int tune(MandelbrotFractal fractal) {
+
+		var iterations = fractal.getIterations();
+		var minX = fractal.getMinX();
+		var minY = fractal.getMinY();
+		var scaleX = fractal.getWidth() / PROBE_SIZE;
+		var scaleY = fractal.getHeight() / PROBE_SIZE;
+		var bailout = fractal.getBailout();
+
+		range(0, PROBE_SIZE).parallel().forEach(j -> {
+
+			var y0 = minY + (j + 0.5) * scaleY;
+
+			for (var i = 0; i < PROBE_SIZE; i++) {
+
+				var x0 = minX + (i + 0.5) * scaleX;
+				probes[j * PROBE_SIZE + i] = getEscape(x0, y0, bailout, iterations);
+			}
+		});
+
+		var escapes = stream(probes).filter(escape -> escape >= 0 && escape < iterations).toArray();
+		var unresolvedCount = stream(probes).filter(escape -> escape == UNRESOLVED).count();
+		sort(escapes);
+
+		unresolvedFraction = (double) unresolvedCount / probes.length;
+		interiorFraction = 1.0 - (double) escapes.length / probes.length - unresolvedFraction;
+
+		var tolerance = (int) (probes.length * TOLERANCE);
+
+		// without escapes, the maximum is too low to tell whether unresolved probes will escape
+		if (escapes.length <= tolerance && unresolvedCount > tolerance) {
+			return clamp(iterations * 2L, MIN_ITERATIONS, MAX_ITERATIONS);
+		}
+
+		var slowestEscape = escapes.length > tolerance ?
+				escapes[escapes.length - tolerance - 1] :
+				0;
+
+		var target = clamp(highestOneBit(max(2 * slowestEscape, 1) - 1) * 2L, MIN_ITERATIONS, MAX_ITERATIONS);
+
+		if (target > iterations) {
+			return target;
+		} else if (target * 2 < iterations) {
+			return target * 2;
+		} else {
+			return iterations;
+		}
+	}
+
+	/**
+	 * @return fraction of the probes proven in the interior at the last tuning
+	 * @since 0.0.2
+	 */
+	public double getInteriorFraction() {
+		return interiorFraction;
+	}
+
+	/**
+	 * @return fraction of the probes neither escaped nor proven in the interior at the last tuning
+	 * @since 0.0.2
+	 */
+	public double getUnresolvedFraction() {
+		return unresolvedFraction;
+	}
+}
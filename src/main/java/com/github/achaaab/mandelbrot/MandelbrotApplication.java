@@ -1,17 +1,24 @@
 package com.github.achaaab.mandelbrot;
 
 import com.github.achaaab.mandelbrot.fractal.FractalView;
-import com.github.achaaab.mandelbrot.jocl.MandelbrotFractalClDouble;
-import com.github.achaaab.mandelbrot.jocl.MandelbrotFractalClFloat;
+import com.github.achaaab.mandelbrot.tile.TileCache;
+import com.github.achaaab.mandelbrot.tile.TileRenderer;
+import com.github.achaaab.mandelbrot.tile.TileStore;
 
 import javax.swing.JFrame;
-import java.lang.reflect.InvocationTargetException;
-
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import static java.awt.event.KeyEvent.VK_F11;
+import static java.lang.Long.parseLong;
 import static javax.swing.SwingUtilities.invokeLater;
 import static javax.swing.WindowConstants.EXIT_ON_CLOSE;
 
 /**
- * Simple desktop application drawing Mandelbrot fractal.
+ * Simple desktop application drawing Mandelbrot fractal. The window can be resized, and F11 toggles full screen.
  *
  * @author Jonathan Guéhenneux
  * @since 0.0.0
@@ -26,6 +33,10 @@ class MandelbrotApplication {
 	///     - OPEN_CL_32
 	///     - CPU (default, but slowest)
 	///     - CPU_SIMD (requires a CPU with SIMD instructions)
+	///
+	///     1. Tile cache budget in mebibytes (256 by default)
+	///     2. Directory of the persistent tile store (no persistent tile store by default)
+	///     3. Size cap of the persistent tile store in mebibytes (1024 by default)
 	/// @since 0.0.1
 	///
 	void main(String... arguments) {
@@ -43,56 +54,80 @@ class MandelbrotApplication {
 			var view = new FractalView(viewWidth, viewHeight);
 			view.setMessageDisplayed(true);
 
-			var method = arguments.length > 0 ? arguments[0] : "CPU";
+			var method = arguments.length > 0 ? ComputingMethod.valueOf(arguments[0]) : ComputingMethod.CPU;
+			var fractal = method.create(minX, maxX, minY, maxY, maxIterations);
 
-			var fractal = switch (method) {
+			var tileCacheBudget = arguments.length > 1 ? parseLong(arguments[1]) : 256;
+			var tileCache = new TileCache<>(tileCacheBudget << 20, TileRenderer::getSize);
+			var tileFractal = method.create(minX, maxX, minY, maxY, maxIterations);
+			var tileStore = arguments.length > 2 ? openTileStore(arguments) : null;
+			var tileRenderer = new TileRenderer(tileFractal, tileCache, tileStore);
 
-				case "OPEN_CL_64" -> new MandelbrotFractalClDouble(minX, maxX, minY, maxY, maxIterations);
-				case "OPEN_CL_32" -> new MandelbrotFractalClFloat(minX, maxX, minY, maxY, maxIterations);
-				case "CPU_SIMD" -> createMandelbrotFactalSimd(minX, maxX, minY, maxY, maxIterations);
-				default -> new MandelbrotFractalCpu(minX, maxX, minY, maxY, maxIterations);
-			};
-
-			var controller = new MandelbrotFractalController(fractal, view);
+			var controller = new MandelbrotFractalController(fractal, view, tileRenderer);
 			controller.requestUpdate();
 
 			var frame = new JFrame("Mandelbrot set rendering");
 			frame.setDefaultCloseOperation(EXIT_ON_CLOSE);
 			frame.setContentPane(view);
 			frame.pack();
-			frame.setResizable(false);
 			frame.setVisible(true);
+
+			view.addKeyListener(new KeyAdapter() {
+
+				@Override
+				public void keyPressed(KeyEvent event) {
+
+					if (event.getKeyCode() == VK_F11) {
+						toggleFullScreen(frame);
+					}
+				}
+			});
 		});
 	}
 
 	/**
-	 * @param minX
-	 * @param maxX
-	 * @param minY
-	 * @param maxY
-	 * @param maxIterations
-	 * @return
+	 * Shows the frame in full screen on its screen device, or restores it if it is already in full screen. The view
+	 * follows the size of the frame.
+	 *
+	 * @param frame application frame
+	 * @since 0.0.2
 	 */
-	private static MandelbrotFractal createMandelbrotFactalSimd(
-			double minX, double maxX, double minY, double maxY, int maxIterations) {
+	private static void toggleFullScreen(JFrame frame) {
+
+		var device = frame.getGraphicsConfiguration().getDevice();
+		device.setFullScreenWindow(device.getFullScreenWindow() == frame ? null : frame);
+	}
+
+	/**
+	 * Opens the persistent tile store, and closes it when the application exits.
+	 *
+	 * @param arguments application arguments, with at least the store directory
+	 * @return opened tile store
+	 * @since 0.0.2
+	 */
+	private static TileStore openTileStore(String... arguments) {
+
+		var directory = Path.of(arguments[2]);
+		var sizeCap = arguments.length > 3 ? parseLong(arguments[3]) : 1024;
 
 		try {
 
-			var implementation = Class.forName("com.github.achaaab.mandelbrot.MandelbrotFractalSimd");
+			var tileStore = new TileStore(directory, sizeCap << 20);
+
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 
-			var constructor = implementation.getConstructor(
-					Double.TYPE,
-					Double.TYPE,
-					Double.TYPE,
-					Double.TYPE,
-					Integer.TYPE);
+				try {
+					tileStore.close();
+				} catch (IOException ioException) {
+					System.err.printf("Tile store error: %s.%n", ioException.getMessage());
+				}
+			}));
 
-			return (MandelbrotFractal) constructor.newInstance(minX, maxX, minY, maxY, maxIterations);
+			return tileStore;
 
-		}catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException |
-				InvocationTargetException cause) {
+		} catch (IOException ioException) {
 
-			throw new RuntimeException(cause);
+			throw new UncheckedIOException(ioException);
 		}
 	}
 }
@@ -1,13 +1,27 @@
 package com.github.achaaab.mandelbrot;
 
 import com.github.achaaab.mandelbrot.fractal.Fractal;
+import com.github.achaaab.mandelbrot.fractal.FrameBufferPool;
+import com.github.achaaab.mandelbrot.fractal.RenderService;
 
 import java.awt.Color;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 
+import static com.github.achaaab.mandelbrot.util.FastMath.log2;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.Math.abs;
 import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.round;
 import static java.lang.Math.toIntExact;
+import static java.util.stream.IntStream.range;
 
 /**
  * @author Jonathan Guéhenneux
@@ -15,6 +29,28 @@ import static java.lang.Math.toIntExact;
  */
 public abstract class MandelbrotFractal extends Fractal {
 
+	/**
+	 * Square of the escape radius used for discrete coloring.
+	 *
+	 * @since 0.0.2
+	 */
+	protected static final double BAILOUT = 4.0;
+
+	/**
+	 * Square of the escape radius used for smooth coloring. A larger radius costs a few more iterations per
+	 * escaping pixel, but makes the normalized iteration count continuous across bands.
+	 *
+	 * @since 0.0.2
+	 */
+	protected static final double SMOOTH_BAILOUT = 256.0;
+
+	/**
+	 * Constant part of the normalized iteration count: {@code 1 + log2(log2(SMOOTH_BAILOUT))}.
+	 *
+	 * @since 0.0.2
+	 */
+	protected static final double SMOOTH_OFFSET = 1.0 + Math.log(Math.log(SMOOTH_BAILOUT) / Math.log(2)) / Math.log(2);
+
 	protected static final Color[] BASE_PALETTE_COLORS = {
 			new Color(0, 0, 96),
 			new Color(128, 192, 255),
@@ -76,8 +112,148 @@ public abstract class MandelbrotFractal extends Fractal {
 		return palette;
 	}
 
+	/**
+	 * Linearly interpolates 2 RGB colors.
+	 *
+	 * @param rgb0 first color
+	 * @param rgb1 second color
+	 * @param weight weight of the second color, in {@code [0, 256]}
+	 * @return interpolated color
+	 * @since 0.0.2
+	 */
+	protected static int interpolate(int rgb0, int rgb1, int weight) {
+
+		var weight0 = 256 - weight;
+
+		var red = ((rgb0 >> 16 & 0xFF) * weight0 + (rgb1 >> 16 & 0xFF) * weight) >> 8;
+		var green = ((rgb0 >> 8 & 0xFF) * weight0 + (rgb1 >> 8 & 0xFF) * weight) >> 8;
+		var blue = ((rgb0 & 0xFF) * weight0 + (rgb1 & 0xFF) * weight) >> 8;
+
+		return red << 16 | green << 8 | blue;
+	}
+
+	/**
+	 * Maximum distance, in pixels, between the mirror of a row and a row of the pixel grid, for the rows to be
+	 * considered symmetric.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double MIRROR_TOLERANCE = 1e-6;
+
+	/**
+	 * Width and height of the tiles of asynchronous renders, in pixels.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int RENDER_TILE_SIZE = 256;
+
+	/**
+	 * The Mandelbrot set is symmetric about the real axis: the number of iterations of {@code x - iy} is the number of
+	 * iterations of {@code x + iy}, bit for bit, since negating {@code y} negates every intermediate {@code y}. If
+	 * row {@code j} (from the bottom) is sampled at {@code minY + j * scaleY}, and the real axis is on a row or
+	 * halfway between 2 rows, rows {@code j} and {@code rowSum - j} are mirrors of each other.
+	 *
+	 * @param minY y of the first row
+	 * @param scaleY y difference between consecutive rows
+	 * @param height number of rows
+	 * @return sum of the indices of mirror rows, {@code -1} if no 2 rows of the grid are mirrors of each other
+	 * @since 0.0.2
+	 */
+	protected static int getMirrorRowSum(double minY, double scaleY, int height) {
+
+		var exactRowSum = -2 * minY / scaleY;
+		var rowSum = round(exactRowSum);
+
+		return abs(exactRowSum - rowSum) <= MIRROR_TOLERANCE && rowSum > 0 && rowSum < 2 * height - 2 ?
+				(int) rowSum :
+				-1;
+	}
+
+	/**
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @param height number of rows
+	 * @return first row (from the bottom) copied from its mirror instead of being computed
+	 * @since 0.0.2
+	 */
+	protected static int getFirstMirroredRow(int rowSum, int height) {
+		return rowSum < 0 ? 0 : max(rowSum - height + 1, 0);
+	}
+
+	/**
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @return row (from the bottom) after the last row copied from its mirror
+	 * @since 0.0.2
+	 */
+	protected static int getMirroredRowEnd(int rowSum) {
+		return rowSum < 0 ? 0 : (rowSum + 1) / 2;
+	}
+
+	/**
+	 * @param j row index (from the bottom)
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @param height number of rows
+	 * @return whether the row is copied from its mirror instead of being computed
+	 * @since 0.0.2
+	 */
+	protected static boolean isMirroredRow(int j, int rowSum, int height) {
+		return j >= getFirstMirroredRow(rowSum, height) && j < getMirroredRowEnd(rowSum);
+	}
+
+	/**
+	 * Copies every mirrored row from its computed mirror.
+	 *
+	 * @param pixels pixels stored row by row from the top, like in images
+	 * @param width number of pixels per row
+	 * @param height number of rows
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @since 0.0.2
+	 */
+	protected static void mirrorRows(int[] pixels, int width, int height, int rowSum) {
+		copyMirroredRows(pixels, width, height, rowSum);
+	}
+
+	/**
+	 * Copies every mirrored row from its computed mirror.
+	 *
+	 * @param pixels pixels stored row by row from the top, like in images
+	 * @param width number of pixels per row
+	 * @param height number of rows
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @since 0.0.2
+	 */
+	protected static void mirrorRows(float[] pixels, int width, int height, int rowSum) {
+		copyMirroredRows(pixels, width, height, rowSum);
+	}
+
+	/**
+	 * @param pixels array of pixels stored row by row from the top, like in images
+	 * @param width number of pixels per row
+	 * @param height number of rows
+	 * @param rowSum sum of the indices of mirror rows, as given by {@link #getMirrorRowSum}
+	 * @since 0.0.2
+	 */
+	private static void copyMirroredRows(Object pixels, int width, int height, int rowSum) {
+
+		var rowEnd = getMirroredRowEnd(rowSum);
+
+		for (var j = getFirstMirroredRow(rowSum, height); j < rowEnd; j++) {
+
+			// rows are numbered from the bottom, whereas pixels are stored from the top
+			var source = (height - (rowSum - j) - 1) * width;
+			var target = (height - j - 1) * width;
+			System.arraycopy(pixels, source, pixels, target, width);
+		}
+	}
+
 	protected int[] palette;
 	protected int iterations;
+	protected boolean smooth;
+	protected int antialiasing;
+	protected InteriorIndex interiorIndex;
+
+	private volatile Queue<MandelbrotFractal> idleWorkers;
+	private FrameBufferPool tileImagePool;
+	private int idleWorkerCapacity;
 
 	/**
 	 * @param minX
@@ -93,6 +269,7 @@ public abstract class MandelbrotFractal extends Fractal {
 		this.iterations = iterations;
 
 		palette = createPalette(128);
+		antialiasing = 1;
 	}
 
 	/**
@@ -111,9 +288,448 @@ public abstract class MandelbrotFractal extends Fractal {
 		return iterations;
 	}
 
+	/**
+	 * @param iterations maximum number of iterations before giving up and considering the point is inside the set
+	 * @since 0.0.2
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = max(iterations, 2);
+	}
+
+	/**
+	 * @return number of bits of the floating point numbers used by this engine
+	 * @since 0.0.2
+	 */
+	public int getPrecision() {
+		return Double.SIZE;
+	}
+
+	/**
+	 * @return whether escaping pixels are colored with the normalized (continuous) iteration count
+	 * @since 0.0.2
+	 */
+	public boolean isSmooth() {
+		return smooth;
+	}
+
+	/**
+	 * @param smooth whether escaping pixels are colored with the normalized (continuous) iteration count
+	 * @since 0.0.2
+	 */
+	public void setSmooth(boolean smooth) {
+		this.smooth = smooth;
+	}
+
+	/**
+	 * @return number of samples per axis computed for edge pixels, {@code 1} when antialiasing is disabled
+	 * @since 0.0.2
+	 */
+	public int getAntialiasing() {
+		return antialiasing;
+	}
+
+	/**
+	 * Sets the number of samples per axis computed for edge pixels. Engines not supporting antialiasing
+	 * ignore this setting.
+	 *
+	 * @param antialiasing number of samples per axis, {@code 1} to disable antialiasing
+	 * @since 0.0.2
+	 */
+	public void setAntialiasing(int antialiasing) {
+		this.antialiasing = max(antialiasing, 1);
+	}
+
+	/**
+	 * @return index of the regions proven interior, {@code null} if none
+	 * @since 0.0.2
+	 */
+	public InteriorIndex getInteriorIndex() {
+		return interiorIndex;
+	}
+
+	/**
+	 * Sets the index of the regions proven interior, filled without iterating and completed with the regions proven by
+	 * computed images. It can be shared by several fractals. Engines not supporting it ignore this setting.
+	 *
+	 * @param interiorIndex index of the regions proven interior, {@code null} to disable it
+	 * @since 0.0.2
+	 */
+	public void setInteriorIndex(InteriorIndex interiorIndex) {
+		this.interiorIndex = interiorIndex;
+	}
+
+	/**
+	 * @return square of the escape radius to use with the current coloring mode
+	 * @since 0.0.2
+	 */
+	protected double getBailout() {
+		return smooth ? SMOOTH_BAILOUT : BAILOUT;
+	}
+
+	/**
+	 * Computes the color of a pixel with the current coloring mode.
+	 *
+	 * @param iteration number of iterations before escape, or {@link #iterations} if the pixel did not escape
+	 * @param magnitude {@code |z|²} at escape, only used for smooth coloring
+	 * @return pixel color
+	 * @since 0.0.2
+	 */
+	protected int getColor(int iteration, double magnitude) {
+
+		if (iteration == iterations) {
+			return 0x000000;
+		} else if (smooth) {
+			return getSmoothColor(iteration, magnitude);
+		} else {
+			return palette[iteration % palette.length];
+		}
+	}
+
+	/**
+	 * Computes the color of an escaping pixel with the normalized iteration count
+	 * {@code n + 1 - log2(log2(|z|) / log2(R))}, interpolating between 2 consecutive palette colors.
+	 *
+	 * @param iteration number of iterations before escape
+	 * @param magnitude {@code |z|²} at escape, greater than {@link #SMOOTH_BAILOUT}
+	 * @return smooth color
+	 * @since 0.0.2
+	 */
+	protected int getSmoothColor(int iteration, double magnitude) {
+		return getFractionalColor(iteration, getSmoothFraction(magnitude));
+	}
+
+	/**
+	 * Computes the fractional part of the normalized iteration count, that is
+	 * {@code 1 + log2(log2(R²)) - log2(log2(|z|²))}. Logarithms are evaluated with
+	 * {@link com.github.achaaab.mandelbrot.util.FastMath#log2(double)}.
+	 *
+	 * @param magnitude {@code |z|²} at escape, greater than {@link #SMOOTH_BAILOUT}
+	 * @return fractional part of the normalized iteration count, approximately in {@code [0, 1]}
+	 * @since 0.0.2
+	 */
+	protected static float getSmoothFraction(double magnitude) {
+		return (float) (SMOOTH_OFFSET - log2(log2(magnitude)));
+	}
+
+	/**
+	 * @param iteration number of iterations before escape
+	 * @param fraction fractional part of the normalized iteration count
+	 * @return color interpolated between 2 consecutive palette colors
+	 * @since 0.0.2
+	 */
+	private int getFractionalColor(int iteration, float fraction) {
+
+		var continuousIteration = iteration + fraction;
+		var index = (int) continuousIteration;
+		var weight = (int) ((continuousIteration - index) * 256);
+
+		var rgb0 = palette[index % palette.length];
+		var rgb1 = palette[(index + 1) % palette.length];
+
+		return interpolate(rgb0, rgb1, weight);
+	}
+
+	/**
+	 * Colors an iteration image with the palette of this fractal. Fractions are used if the iteration image has
+	 * them, whatever the coloring mode of this fractal.
+	 *
+	 * @param iterationImage iteration image to color
+	 * @param image image in which to write colors, of the same size as the iteration image
+	 * @since 0.0.2
+	 */
+	public void colorize(IterationImage iterationImage, BufferedImage image) {
+
+		var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		range(0, iterationImage.getIterations().length).parallel().forEach(pixelIndex ->
+				rgb[pixelIndex] = getColor(iterationImage, pixelIndex));
+	}
+
+	/**
+	 * Gives the color of a pixel of an iteration image with the palette of this fractal. The fraction is used if the
+	 * iteration image has fractions, whatever the coloring mode of this fractal.
+	 *
+	 * @param iterationImage iteration image
+	 * @param pixelIndex index of the pixel, row by row from the top
+	 * @return RGB color of the pixel
+	 * @since 0.0.2
+	 */
+	public int getColor(IterationImage iterationImage, int pixelIndex) {
+
+		var iteration = iterationImage.getIterations()[pixelIndex];
+		var fractions = iterationImage.getFractions();
+
+		if (iteration == iterationImage.getMaxIterations()) {
+			return 0x000000;
+		} else if (fractions != null) {
+			return getFractionalColor(iteration, fractions[pixelIndex]);
+		} else {
+			return palette[iteration % palette.length];
+		}
+	}
+
 	/**
 	 * @param image
 	 * @since 0.0.0
 	 */
 	public abstract void compute(BufferedImage image);
+
+	/**
+	 * Computes the number of iterations of every pixel, without coloring them. Fractions of normalized iteration
+	 * counts are computed if the given iteration image is smooth, whatever the coloring mode of this fractal.
+	 *
+	 * @param image iteration image to fill
+	 * @since 0.0.2
+	 */
+	public abstract void compute(IterationImage image);
+
+	/**
+	 * Computes the number of iterations of arbitrary points, for samplings which are not regular grids. The bounds
+	 * of this fractal are ignored. Fractions of normalized iteration counts are computed if the given iteration
+	 * image is smooth.
+	 *
+	 * @param x0 real parts of the points, one per pixel of the iteration image, row by row
+	 * @param y0 imaginary parts of the points, one per pixel of the iteration image, row by row
+	 * @param image iteration image to fill
+	 * @throws UnsupportedOperationException if this computing method only supports regular grids
+	 * @see ComputingMethod#computesPoints()
+	 * @since 0.0.2
+	 */
+	public void compute(double[] x0, double[] y0, IterationImage image) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " only computes regular grids");
+	}
+
+	/**
+	 * Renders an image asynchronously, as tasks of the shared render service.
+	 *
+	 * @param request render request
+	 * @return future completed with the rendered image
+	 * @see #render(RenderRequest, Flow.Subscriber)
+	 * @since 0.0.2
+	 */
+	public CompletableFuture<BufferedImage> render(RenderRequest request) {
+		return render(request, null);
+	}
+
+	/**
+	 * Renders an image asynchronously, as tasks of the shared render service, one per tile. Each tile is computed by
+	 * a worker of this fractal, created with the same computing method and given the settings of the request, so that
+	 * several renders can run at the same time and this fractal can be changed meanwhile. Workers are reused from one
+	 * tile to the next, at most one idle worker per slot of the render service being kept, whereas a worker that
+	 * failed is released. The render service, the idle workers and the tile buffers are only created by the first
+	 * render, so that fractals never rendered asynchronously, such as the workers, do not hold them.
+	 *
+	 * <p>Tiles are published as soon as they are rendered, from the top left to the bottom right, as regions of the
+	 * rendered image. They are delivered on the workers of the render service, so subscribers should not block. The
+	 * buffer of the publisher holds every tile of the render: a slow subscriber never slows the render down, nor misses
+	 * tiles. The publisher is closed when the render completes, exceptionally if it fails or is cancelled. Cancelling
+	 * the returned future skips the tiles not rendered yet.</p>
+	 *
+	 * @param request render request
+	 * @param tileSubscriber subscriber of the rendered tiles, {@code null} if none
+	 * @return future completed with the rendered image, or exceptionally if a tile cannot be rendered
+	 * @see #render(RenderRequest, Flow.Subscriber, RenderService)
+	 * @since 0.0.2
+	 */
+	public CompletableFuture<BufferedImage> render(RenderRequest request,
+			Flow.Subscriber<? super RenderedTile> tileSubscriber) {
+
+		return render(request, tileSubscriber, RenderService.getShared());
+	}
+
+	/**
+	 * Renders an image asynchronously, as tasks of a render service, one per tile. The idle workers and the tile
+	 * buffers are sized for the render service of the first render.
+	 *
+	 * @param request render request
+	 * @param tileSubscriber subscriber of the rendered tiles, {@code null} if none
+	 * @param renderService render service running the tiles
+	 * @return future completed with the rendered image, or exceptionally if a tile cannot be rendered
+	 * @see #render(RenderRequest, Flow.Subscriber)
+	 * @since 0.0.2
+	 */
+	public CompletableFuture<BufferedImage> render(RenderRequest request,
+			Flow.Subscriber<? super RenderedTile> tileSubscriber, RenderService renderService) {
+
+		startRendering(renderService);
+
+		var columnCount = (request.width() + RENDER_TILE_SIZE - 1) / RENDER_TILE_SIZE;
+		var rowCount = (request.height() + RENDER_TILE_SIZE - 1) / RENDER_TILE_SIZE;
+
+		var image = new BufferedImage(request.width(), request.height(), TYPE_INT_RGB);
+		var result = new CompletableFuture<BufferedImage>();
+		var tilePublisher = new SubmissionPublisher<RenderedTile>(renderService.getExecutor(), columnCount * rowCount);
+
+		if (tileSubscriber != null) {
+			tilePublisher.subscribe(tileSubscriber);
+		}
+
+		result.whenComplete((renderedImage, exception) -> {
+
+			if (exception == null) {
+				tilePublisher.close();
+			} else {
+				tilePublisher.closeExceptionally(exception);
+			}
+		});
+
+		// tiles of the same render are run one at a time, in order, the completion of the image coming last
+		var client = renderService.createClient();
+
+		for (var y = 0; y < request.height(); y += RENDER_TILE_SIZE) {
+
+			for (var x = 0; x < request.width(); x += RENDER_TILE_SIZE) {
+
+				var tile = new Rectangle(x, y,
+						min(RENDER_TILE_SIZE, request.width() - x),
+						min(RENDER_TILE_SIZE, request.height() - y));
+
+				client.execute(request.priority(), () -> renderTile(request, tile, image, result, tilePublisher));
+			}
+		}
+
+		client.execute(request.priority(), () -> result.complete(image));
+		client.close();
+
+		return result;
+	}
+
+	/**
+	 * Creates the idle workers and the tile buffers of asynchronous renders, if it is the first one.
+	 *
+	 * @param renderService render service running the tiles
+	 * @since 0.0.2
+	 */
+	private synchronized void startRendering(RenderService renderService) {
+
+		if (idleWorkers == null) {
+
+			idleWorkerCapacity = renderService.getConcurrency();
+			tileImagePool = new FrameBufferPool(idleWorkerCapacity);
+			idleWorkers = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	/**
+	 * Renders a tile of an asynchronous render with an idle worker, copies it into the rendered image and publishes
+	 * it. The tile is skipped if the render is already completed.
+	 *
+	 * @param request render request
+	 * @param tile bounds of the tile in the rendered image
+	 * @param image rendered image
+	 * @param result future of the render, completed exceptionally if the tile cannot be rendered
+	 * @param tilePublisher publisher of the rendered tiles
+	 * @since 0.0.2
+	 */
+	private void renderTile(RenderRequest request, Rectangle tile, BufferedImage image,
+			CompletableFuture<BufferedImage> result, SubmissionPublisher<RenderedTile> tilePublisher) {
+
+		if (result.isDone()) {
+			return;
+		}
+
+		var worker = idleWorkers.poll();
+
+		try {
+
+			if (worker == null) {
+				worker = createWorker();
+			}
+
+			var scaleX = (request.maxX() - request.minX()) / request.width();
+			var scaleY = (request.maxY() - request.minY()) / request.height();
+
+			// image rows are numbered from the top, whereas y increases upward
+			var tileMinX = request.minX() + tile.x * scaleX;
+			var tileMinY = request.minY() + (request.height() - tile.y - tile.height) * scaleY;
+
+			worker.setBounds(tileMinX, tileMinX + tile.width * scaleX, tileMinY, tileMinY + tile.height * scaleY);
+			worker.setIterations(request.iterations());
+			worker.setSmooth(request.smooth());
+			worker.setAntialiasing(request.antialiasing());
+			worker.setInteriorIndex(request.interiorIndex());
+
+			var tileImage = tileImagePool.createImage(tile.width, tile.height);
+
+			try {
+
+				worker.compute(tileImage);
+
+				var tileRgb = ((DataBufferInt) tileImage.getRaster().getDataBuffer()).getData();
+				var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+				for (var row = 0; row < tile.height; row++) {
+
+					System.arraycopy(tileRgb, row * tile.width, rgb, (tile.y + row) * request.width() + tile.x,
+							tile.width);
+				}
+
+			} finally {
+
+				tileImagePool.release(tileImage);
+			}
+
+			// the buffer holds every tile of the render, so the offer never waits nor drops
+			var renderedImage = image.getSubimage(tile.x, tile.y, tile.width, tile.height);
+			tilePublisher.offer(new RenderedTile(request, tile.x, tile.y, renderedImage), null);
+
+		} catch (RuntimeException exception) {
+
+			result.completeExceptionally(exception);
+
+			// a worker that failed may be left in an inconsistent state, such as a broken OpenCL queue
+			if (worker != null) {
+				worker.release();
+			}
+
+			return;
+		}
+
+		releaseWorker(worker);
+	}
+
+	/**
+	 * Keeps an idle worker for the next tiles, or releases it if there are already as many idle workers as slots in
+	 * the render service.
+	 *
+	 * @param worker idle worker
+	 * @since 0.0.2
+	 */
+	private void releaseWorker(MandelbrotFractal worker) {
+
+		if (idleWorkers.size() < idleWorkerCapacity) {
+			idleWorkers.add(worker);
+		} else {
+			worker.release();
+		}
+	}
+
+	/**
+	 * Releases the resources held by this fractal and by its idle workers, such as native buffers. This fractal must
+	 * not be used afterward. This implementation releases the idle workers.
+	 *
+	 * @since 0.0.2
+	 */
+	public void release() {
+
+		var idleWorkers = this.idleWorkers;
+
+		if (idleWorkers != null) {
+
+			MandelbrotFractal worker;
+
+			while ((worker = idleWorkers.poll()) != null) {
+				worker.release();
+			}
+		}
+	}
+
+	/**
+	 * Creates a worker computing the tiles of asynchronous renders, with the same computing method as this fractal.
+	 * Its area and settings are changed for each tile.
+	 *
+	 * @return created worker
+	 * @since 0.0.2
+	 */
+	protected abstract MandelbrotFractal createWorker();
 }
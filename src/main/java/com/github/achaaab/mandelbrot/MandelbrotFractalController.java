@@ -2,37 +2,169 @@ package com.github.achaaab.mandelbrot;
 
 import com.github.achaaab.mandelbrot.fractal.FractalController;
 import com.github.achaaab.mandelbrot.fractal.FractalView;
+import com.github.achaaab.mandelbrot.fractal.FrameBufferPool;
+import com.github.achaaab.mandelbrot.fractal.FrameTimeGovernor;
+import com.github.achaaab.mandelbrot.tile.TileRenderer;
 import com.github.achaaab.mandelbrot.util.QuadraticProgression;
 
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
 import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
 import java.time.Duration;
+import java.util.List;
 
 import static com.github.achaaab.mandelbrot.util.Utilities.time;
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.lang.Math.hypot;
+import static java.lang.Math.max;
 import static java.lang.Math.round;
 import static java.lang.Math.toIntExact;
 
 /**
- * This controller adds max iterations control with shift + mouse wheel rotation.
+ * This controller adds max iterations control with shift + mouse wheel rotation, or automatically from the escape
+ * statistics of each full resolution frame, and rendering options toggled with the keyboard. Images are composited from
+ * cached tiles, unless tiled rendering is disabled. Tiles are rendered from the mouse position outward, each one being
+ * published as soon as it is drawn. When idle, the tiles beyond the edges in the drag direction and the tiles of the
+ * next zoom step under the cursor are rendered speculatively. While the user is dragging or zooming, frames are
+ * rendered at a reduced resolution meeting a target frame time, then upscaled, until the interaction ends. Resizing the
+ * view is such an interaction, reduced images coming from a size-classed pool. In deadline bounded mode, frames are
+ * rendered within the target frame time whatever the maximum iterations, unresolved pixels being refined in the
+ * background. The index of interior regions fills the regions proven interior in previous frames without iterating,
+ * it is enabled until toggled.
  *
  * @author Jonathan Guéhenneux
  * @since 0.0.0
  */
-public class MandelbrotFractalController extends FractalController<MandelbrotFractal> {
+public class MandelbrotFractalController extends FractalController<MandelbrotFractal> implements KeyListener {
+
+	/**
+	 * Number of samples per axis for edge pixels, when antialiasing is enabled.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int ANTIALIASING = 4;
+
+	/**
+	 * Number of bytes in a mebibyte, to display the cache size.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final long MEBIBYTE = 1L << 20;
+
+	/**
+	 * Time in which to render frames while the user is dragging or zooming.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final Duration TARGET_FRAME_TIME = Duration.ofMillis(16);
+
+	/**
+	 * Maximum number of cells of the interior index.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int INTERIOR_INDEX_CAPACITY = 1 << 16;
 
 	private final QuadraticProgression iterationProgression;
+	private final TileRenderer tileRenderer;
+	private final FrameTimeGovernor governor;
+	private final FrameBufferPool reducedImagePool;
+
+	private final DeadlineRenderer deadlineRenderer;
+	private final IterationTuner iterationTuner;
+	private final InteriorIndex interiorIndex;
+
+	private boolean tiled;
+	private boolean deadlineBounded;
+	private boolean iterationsTuned;
+	private volatile double scale;
+	private BufferedImage reducedImage;
+	private List<Object> deadlineSettings;
+	private Duration computeDuration;
 
 	/**
 	 * Creates a new controller for the given Mandelbrot fractal and view.
 	 *
 	 * @param fractal Mandelbrot fractal
 	 * @param view fractal view
+	 * @param tileRenderer renderer of cached tiles
 	 * @since 0.0.0
 	 */
-	public MandelbrotFractalController(MandelbrotFractal fractal, FractalView view) {
+	public MandelbrotFractalController(MandelbrotFractal fractal, FractalView view, TileRenderer tileRenderer) {
 
 		super(fractal, view);
 
+		this.tileRenderer = tileRenderer;
+
+		tiled = true;
+		scale = 1.0;
+		governor = new FrameTimeGovernor(TARGET_FRAME_TIME);
+		reducedImagePool = new FrameBufferPool(1);
+		deadlineRenderer = new DeadlineRenderer(TARGET_FRAME_TIME);
+		iterationTuner = new IterationTuner();
+		interiorIndex = new InteriorIndex(INTERIOR_INDEX_CAPACITY);
+		fractal.setInteriorIndex(interiorIndex);
+		computeDuration = Duration.ZERO;
 		iterationProgression = new QuadraticProgression(1.0, 0.5, 200_000_000L, 500_000_000L);
+
+		view.addKeyListener(this);
+	}
+
+	@Override
+	public void keyPressed(KeyEvent event) {
+
+		switch (event.getKeyCode()) {
+
+			case KeyEvent.VK_S -> {
+
+				fractal.setSmooth(!fractal.isSmooth());
+				requestUpdate();
+			}
+
+			case KeyEvent.VK_A -> {
+
+				fractal.setAntialiasing(fractal.getAntialiasing() > 1 ? 1 : ANTIALIASING);
+				requestUpdate();
+			}
+
+			case KeyEvent.VK_T -> {
+
+				tiled = !tiled;
+				requestUpdate();
+			}
+
+			case KeyEvent.VK_D -> {
+
+				deadlineBounded = !deadlineBounded;
+				deadlineSettings = null;
+				requestUpdate();
+			}
+
+			case KeyEvent.VK_I -> {
+
+				iterationsTuned = !iterationsTuned;
+				requestUpdate();
+			}
+
+			case KeyEvent.VK_X -> {
+
+				// the index is kept while disabled, the tile fractal following the view fractal
+				fractal.setInteriorIndex(fractal.getInteriorIndex() == null ? interiorIndex : null);
+				requestUpdate();
+			}
+		}
+	}
+
+	@Override
+	public void keyReleased(KeyEvent event) {
+
+	}
+
+	@Override
+	public void keyTyped(KeyEvent event) {
+
 	}
 
 	@Override
@@ -40,6 +172,9 @@ public class MandelbrotFractalController extends FractalController<MandelbrotFra
 
 		if (event.isShiftDown()) {
 
+			// manual iterations override automatic ones
+			iterationsTuned = false;
+
 			var wheelRotation = -event.getWheelRotation();
 			var factor = iterationProgression.update(wheelRotation > 0);
 			fractal.adjustIterations(toIntExact(round(factor * wheelRotation)));
@@ -51,13 +186,176 @@ public class MandelbrotFractalController extends FractalController<MandelbrotFra
 		}
 	}
 
+	@Override
+	protected void interactionEnded() {
+
+		if (scale < 1.0) {
+			requestUpdate();
+		}
+	}
+
+	@Override
+	protected void speculate() {
+
+		if (deadlineBounded) {
+
+			refine();
+			return;
+		}
+
+		if (!tiled || isInteracting()) {
+			return;
+		}
+
+		var image = view.getImage();
+		var width = image.getWidth();
+		var height = image.getHeight();
+		var scaleX = fractal.getWidth() / width;
+		var scaleY = fractal.getHeight() / height;
+
+		var minX = fractal.getMinX();
+		var maxX = fractal.getMaxX();
+		var minY = fractal.getMinY();
+		var maxY = fractal.getMaxY();
+		var focus = getFocus();
+		var dragDirection = getDragDirection();
+
+		if (dragDirection != null) {
+
+			// the area moved half a view further in the drag direction, covering the strips beyond the edges
+			var shift = max(width, height) / 2.0 / hypot(dragDirection.x, dragDirection.y);
+			var dx = dragDirection.x * shift * scaleX;
+			var dy = -dragDirection.y * shift * scaleY;
+
+			tileRenderer.prefetch(fractal, minX + dx, maxX + dx, minY + dy, maxY + dy,
+					width, height, focus, this::isUpdatePending);
+		}
+
+		// the next zoom step under the cursor, in the direction of the last wheel rotation
+		var factor = getZoomFactor(getWheelDirection());
+		var x = minX + focus.x * scaleX;
+		var y = minY + (height - focus.y - 1) * scaleY;
+
+		tileRenderer.prefetch(fractal,
+				x - (x - minX) / factor, x + (maxX - x) / factor,
+				y - (y - minY) / factor, y + (maxY - y) / factor,
+				width, height, focus, this::isUpdatePending);
+	}
+
 	@Override
 	protected void update() {
 
 		var image = view.getImage();
-		var computeDuration = time(() -> fractal.compute(image));
+		var width = image.getWidth();
+		var height = image.getHeight();
+
+		scale = isInteracting() && !deadlineBounded ? governor.getScale((long) width * height) : 1.0;
+
+		if (deadlineBounded) {
+
+			var settings = List.<Object>of(
+					fractal.getMinX(), fractal.getMaxX(), fractal.getMinY(), fractal.getMaxY(),
+					fractal.getIterations(), fractal.isSmooth(), width, height);
+
+			// the start is timed with the refinement, whose budget includes the reset of the buffers
+			computeDuration = time(() -> {
+
+				if (!settings.equals(deadlineSettings)) {
+
+					deadlineRenderer.start(fractal, width, height);
+					deadlineSettings = settings;
+				}
+
+				deadlineRenderer.refine(image);
+			});
+
+		} else if (scale < 1.0) {
+
+			var reducedWidth = max((int) round(width * scale), 1);
+			var reducedHeight = max((int) round(height * scale), 1);
+
+			if (reducedImage == null ||
+					reducedImage.getWidth() != reducedWidth || reducedImage.getHeight() != reducedHeight) {
+
+				// the resolution changes at almost every frame, the pool avoids reallocating the image each time
+				if (reducedImage != null) {
+					reducedImagePool.release(reducedImage);
+				}
+
+				reducedImage = reducedImagePool.createImage(reducedWidth, reducedHeight);
+			}
+
+			computeDuration = time(() -> render(reducedImage, false));
+			governor.update((long) reducedWidth * reducedHeight, computeDuration);
+
+			var graphics = image.createGraphics();
+			graphics.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+
+			try {
+				graphics.drawImage(reducedImage, 0, 0, width, height, null);
+			} finally {
+				graphics.dispose();
+			}
+
+		} else {
+
+			computeDuration = time(() -> render(image, true));
+			governor.update((long) width * height, computeDuration);
+		}
+
+		var iterations = fractal.getIterations();
+
+		// deadline bounded frames are not slowed down by the maximum of iterations, it is left to the user
+		if (iterationsTuned && scale == 1.0 && !deadlineBounded) {
+			fractal.setIterations(iterationTuner.tune(fractal));
+		}
 
 		update(getMessage(computeDuration));
+
+		if (fractal.getIterations() != iterations) {
+			requestUpdate();
+		}
+	}
+
+	/**
+	 * Refines the unresolved pixels of a deadline bounded frame in the background, publishing the changed areas,
+	 * until every pixel is resolved or an update is requested.
+	 *
+	 * @since 0.0.2
+	 */
+	private void refine() {
+
+		var image = view.getImage();
+
+		while (!deadlineRenderer.isResolved() && !isUpdatePending()) {
+
+			var changedArea = deadlineRenderer.refine(image);
+			view.setMessage(getMessage(computeDuration));
+
+			if (changedArea != null) {
+				view.publish(changedArea);
+			}
+		}
+
+		view.markDirty();
+	}
+
+	/**
+	 * Renders the current area of the fractal.
+	 *
+	 * @param image image in which to render
+	 * @param progressive whether to paint tiles as soon as they are drawn
+	 * @since 0.0.2
+	 */
+	private void render(BufferedImage image, boolean progressive) {
+
+		if (!tiled) {
+			fractal.compute(image);
+		} else if (progressive) {
+			tileRenderer.render(fractal, image, getFocus(), view::publish);
+		} else {
+			tileRenderer.render(fractal, image);
+		}
 	}
 
 	/**
@@ -78,6 +376,44 @@ public class MandelbrotFractalController extends FractalController<MandelbrotFra
 		var additionalMessage = String.format("    %d " + iterationPluralized + " (%.4fs)",
 				maxIterations, seconds);
 
+		if (iterationsTuned) {
+			additionalMessage += String.format("    auto iterations (%.1f%% interior)",
+					iterationTuner.getInteriorFraction() * 100);
+		}
+
+		if (scale < 1.0) {
+			additionalMessage += String.format("    resolution %d%%", round(scale * 100));
+		}
+
+		if (deadlineBounded) {
+			additionalMessage += String.format("    deadline (%,d pixels refining)", deadlineRenderer.getUnresolvedCount());
+		}
+
+		if (fractal.isSmooth()) {
+			additionalMessage += "    smooth";
+		}
+
+		var antialiasing = fractal.getAntialiasing();
+
+		if (antialiasing > 1) {
+			additionalMessage += String.format("    antialiasing %dx%d", antialiasing, antialiasing);
+		}
+
+		var interiorIndex = fractal.getInteriorIndex();
+
+		if (interiorIndex != null) {
+			additionalMessage += String.format("    interior %,d cells", interiorIndex.getSize());
+		}
+
+		if (tiled) {
+
+			var cache = tileRenderer.getCache();
+
+			additionalMessage += String.format("    tiles (cache %d/%d MiB, speculation %d hits %d misses)",
+					cache.getSize() / MEBIBYTE, cache.getBudget() / MEBIBYTE,
+					tileRenderer.getSpeculationHitCount(), tileRenderer.getSpeculationMissCount());
+		}
+
 		return baseMessage + additionalMessage;
 	}
 }
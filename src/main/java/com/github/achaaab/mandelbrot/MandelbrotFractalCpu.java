@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 
 import static java.lang.Math.fma;
+import static java.util.Arrays.fill;
 import static java.util.stream.IntStream.range;
 
 /**
@@ -20,8 +21,12 @@ public class MandelbrotFractalCpu extends MandelbrotFractal {
 	protected double minY;
 	protected double scaleX;
 	protected double scaleY;
+	protected double bailout;
+	protected int mirrorRowSum;
 	protected int[] colorBuffer;
 
+	private final CostPredictiveScheduler scheduler = new CostPredictiveScheduler();
+
 	/**
 	 * Creates a new Mandelbrot fractal.
 	 *
@@ -36,62 +41,269 @@ public class MandelbrotFractalCpu extends MandelbrotFractal {
 		super(minX, maxX, minY, maxY, maxIterations);
 	}
 
+	@Override
+	protected MandelbrotFractal createWorker() {
+		return new MandelbrotFractalCpu(getMinX(), getMaxX(), getMinY(), getMaxY(), iterations);
+	}
+
 	@Override
 	public void compute(BufferedImage image) {
 
 		var dataBuffer = (DataBufferInt) image.getRaster().getDataBuffer();
 
 		colorBuffer = dataBuffer.getData();
-		imageWidth = image.getWidth();
-		imageHeight = image.getHeight();
+		prepare(image.getWidth(), image.getHeight(), smooth);
+
+		schedule(this::computeRow, this::fillInteriorRow);
+		mirrorRows(colorBuffer, imageWidth, imageHeight, mirrorRowSum);
+	}
+
+	@Override
+	public void compute(IterationImage image) {
+
+		prepare(image.getWidth(), image.getHeight(), image.isSmooth());
+		image.setMaxIterations(iterations);
+
+		schedule((j, firstColumn, columnEnd) -> computeIterationRow(j, firstColumn, columnEnd, image),
+				(j, firstColumn, columnEnd) -> fillInteriorIterationRow(j, firstColumn, columnEnd, image));
+		mirrorRows(image.getIterations(), imageWidth, imageHeight, mirrorRowSum);
+
+		if (image.isSmooth()) {
+			mirrorRows(image.getFractions(), imageWidth, imageHeight, mirrorRowSum);
+		}
+	}
+
+	@Override
+	public void compute(double[] x0, double[] y0, IterationImage image) {
+
+		prepare(image.getWidth(), image.getHeight(), image.isSmooth());
+		image.setMaxIterations(iterations);
+
+		range(0, imageHeight).parallel().forEach(j -> computePointRow(j, x0, y0, image));
+	}
+
+	/**
+	 * Computes the parameters shared by every row.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param smooth whether to use the escape radius of smooth coloring
+	 * @since 0.0.2
+	 */
+	protected void prepare(int width, int height, boolean smooth) {
+
+		imageWidth = width;
+		imageHeight = height;
 		scaleX = getWidth() / imageWidth;
 		scaleY = getHeight() / imageHeight;
 		minX = getMinX();
 		minY = getMinY();
+		bailout = smooth ? SMOOTH_BAILOUT : BAILOUT;
+		mirrorRowSum = getMirrorRowSum(minY, scaleY, imageHeight);
+	}
 
-		range(0, imageHeight).parallel().forEach(this::computeRow);
+	/**
+	 * @param j row index (from the bottom)
+	 * @return whether the row is computed, rather than copied from its mirror about the real axis
+	 * @since 0.0.2
+	 */
+	protected boolean isComputedRow(int j) {
+		return !isMirroredRow(j, mirrorRowSum, imageHeight);
+	}
+
+	/**
+	 * Computes the segments of the computed rows in the order given by the cost predictive scheduler. Segments proven
+	 * interior by the interior index, if any, are filled instead.
+	 *
+	 * @param kernel kernel computing a row segment
+	 * @param interiorKernel kernel filling a row segment proven interior
+	 * @since 0.0.2
+	 */
+	private void schedule(CostPredictiveScheduler.SegmentKernel kernel,
+			CostPredictiveScheduler.SegmentKernel interiorKernel) {
+
+		var interior = interiorIndex == null ? null : new CostPredictiveScheduler.Interior(interiorIndex,
+				(j, firstColumn, columnEnd) -> isComputedRow(j) ? interiorKernel.compute(j, firstColumn, columnEnd) : 0,
+				iterations);
+
+		scheduler.run(imageWidth, imageHeight, minX, minY, scaleX, scaleY, (j, firstColumn, columnEnd) ->
+				isComputedRow(j) ? kernel.compute(j, firstColumn, columnEnd) : 0, interior);
 	}
 
 	/**
-	 * Computes every pixel in the identified row.
+	 * Computes every pixel in the identified row segment.
 	 *
 	 * @param j row to compute
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @return total number of iterations of the segment
 	 * @since 0.0.0
 	 */
-	protected void computeRow(int j) {
+	protected long computeRow(int j, int firstColumn, int columnEnd) {
 
-		var pixelIndex = (imageHeight - j - 1) * imageWidth;
+		var pixelIndex = (imageHeight - j - 1) * imageWidth + firstColumn;
+		var y0 = minY + j * scaleY;
+		var magnitude = new double[1];
+		var iterationSum = 0L;
 
-		for (var i = 0; i < imageWidth; i++) {
+		for (var i = firstColumn; i < columnEnd; i++) {
 
 			var x0 = minX + i * scaleX;
-			var y0 = minY + j * scaleY;
+			var iteration = iterate(x0, y0, magnitude);
+			iterationSum += iteration;
+
+			if (iteration == iterations) {
+				colorBuffer[pixelIndex++] = 0;
+			} else if (smooth) {
+				colorBuffer[pixelIndex++] = getSmoothColor(iteration, magnitude[0]);
+			} else {
+				colorBuffer[pixelIndex++] = palette[iteration % palette.length];
+			}
+		}
 
-			var x = 0.0;
-			var y = 0.0;
-			var xx = 0.0;
-			var yy = 0.0;
+		return iterationSum;
+	}
 
-			var iteration = 0;
+	/**
+	 * Fills the identified row segment, known to be interior, without iterating.
+	 *
+	 * @param j row to fill
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @return total number of iterations of the segment, always 0
+	 * @since 0.0.2
+	 */
+	protected long fillInteriorRow(int j, int firstColumn, int columnEnd) {
 
-			while (iteration < iterations && xx + yy < 4) {
+		var rowIndex = (imageHeight - j - 1) * imageWidth;
+		fill(colorBuffer, rowIndex + firstColumn, rowIndex + columnEnd, 0);
 
-				// if fma is not intrinsic, replace with standard multiply and add
-				// y = 2 * x * y + y0;
-				y = fma(x + x, y, y0);
-				x = xx - yy + x0;
+		return 0;
+	}
 
-				xx = x * x;
-				yy = y * y;
+	/**
+	 * Fills the number of iterations of the identified row segment, known to be interior, without iterating.
+	 *
+	 * @param j row to fill
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @param image iteration image to fill
+	 * @return total number of iterations of the segment, always 0
+	 * @since 0.0.2
+	 */
+	protected long fillInteriorIterationRow(int j, int firstColumn, int columnEnd, IterationImage image) {
 
-				iteration++;
+		var rowIndex = (imageHeight - j - 1) * imageWidth;
+		fill(image.getIterations(), rowIndex + firstColumn, rowIndex + columnEnd, iterations);
+
+		if (image.isSmooth()) {
+			fill(image.getFractions(), rowIndex + firstColumn, rowIndex + columnEnd, 0.0f);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Computes the number of iterations of every pixel in the identified row segment.
+	 *
+	 * @param j row to compute
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @param image iteration image to fill
+	 * @return total number of iterations of the segment
+	 * @since 0.0.2
+	 */
+	protected long computeIterationRow(int j, int firstColumn, int columnEnd, IterationImage image) {
+
+		var pixelIndex = (imageHeight - j - 1) * imageWidth + firstColumn;
+		var y0 = minY + j * scaleY;
+		var magnitude = new double[1];
+		var iterationSum = 0L;
+
+		var iterationCounts = image.getIterations();
+		var fractions = image.getFractions();
+
+		for (var i = firstColumn; i < columnEnd; i++) {
+
+			var x0 = minX + i * scaleX;
+			var iteration = iterate(x0, y0, magnitude);
+
+			iterationCounts[pixelIndex] = iteration;
+			iterationSum += iteration;
+
+			if (fractions != null) {
+				fractions[pixelIndex] = iteration == iterations ? 0.0f : getSmoothFraction(magnitude[0]);
 			}
 
-			if (iteration == iterations) {
-				colorBuffer[pixelIndex++] = 0;
-			} else {
-				colorBuffer[pixelIndex++] = palette[iteration % palette.length];
+			pixelIndex++;
+		}
+
+		return iterationSum;
+	}
+
+	/**
+	 * Computes the number of iterations of the points of the identified row.
+	 *
+	 * @param j row to compute, from the top
+	 * @param x0 real parts of the points
+	 * @param y0 imaginary parts of the points
+	 * @param image iteration image to fill
+	 * @since 0.0.2
+	 */
+	protected void computePointRow(int j, double[] x0, double[] y0, IterationImage image) {
+
+		var magnitude = new double[1];
+
+		var iterationCounts = image.getIterations();
+		var fractions = image.getFractions();
+		var rowEnd = (j + 1) * imageWidth;
+
+		for (var pixelIndex = j * imageWidth; pixelIndex < rowEnd; pixelIndex++) {
+
+			var iteration = iterate(x0[pixelIndex], y0[pixelIndex], magnitude);
+
+			iterationCounts[pixelIndex] = iteration;
+
+			if (fractions != null) {
+				fractions[pixelIndex] = iteration == iterations ? 0.0f : getSmoothFraction(magnitude[0]);
 			}
 		}
 	}
+
+	/**
+	 * Iterates {@code z = z² + c} until {@code |z|²} exceeds the bailout or the maximum number of iterations is
+	 * reached.
+	 *
+	 * @param x0 real part of {@code c}
+	 * @param y0 imaginary part of {@code c}
+	 * @param magnitude array in which to store {@code |z|²} after the last iteration
+	 * @return number of iterations
+	 * @since 0.0.2
+	 */
+	protected int iterate(double x0, double y0, double[] magnitude) {
+
+		var x = 0.0;
+		var y = 0.0;
+		var xx = 0.0;
+		var yy = 0.0;
+
+		var iteration = 0;
+
+		while (iteration < iterations && xx + yy < bailout) {
+
+			// if fma is not intrinsic, replace with standard multiply and add
+			// y = 2 * x * y + y0;
+			y = fma(x + x, y, y0);
+			x = xx - yy + x0;
+
+			xx = x * x;
+			yy = y * y;
+
+			iteration++;
+		}
+
+		magnitude[0] = xx + yy;
+
+		return iteration;
+	}
 }
@@ -6,6 +6,9 @@ import jdk.incubator.vector.VectorSpecies;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 
+import static java.lang.Math.abs;
+import static java.lang.Math.min;
+import static java.util.Arrays.fill;
 import static java.util.stream.IntStream.range;
 import static jdk.incubator.vector.DoubleVector.broadcast;
 import static jdk.incubator.vector.DoubleVector.fromArray;
@@ -14,6 +17,8 @@ import static jdk.incubator.vector.VectorOperators.LE;
 
 /**
  * Mandelbrot fractal computed with SIMD capable CPU.
+ * When antialiasing is enabled, a second pass computes jittered samples for edge pixels only, that is pixels
+ * whose iteration count differs from one of their neighbours by more than {@link #EDGE_THRESHOLD}.
  *
  * @author Jonathan Guéhenneux
  * @since 0.0.0
@@ -23,17 +28,60 @@ public class MandelbrotFractalSimd extends MandelbrotFractal {
 	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
 	private static final int LANE_COUNT = SPECIES.length();
 
+	/**
+	 * Minimum iteration difference with a neighbour for a pixel to be supersampled.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int EDGE_THRESHOLD = 1;
+
+	/**
+	 * Point escaping after a few iterations, in both coloring modes.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final DoubleVector ESCAPING = broadcast(SPECIES, 4.0);
+
+	/**
+	 * Hashes the given integers into a pseudo-random number in {@code [0, 1)}, so that jittered sample positions
+	 * are stable from one frame to the next.
+	 *
+	 * @param i pixel column
+	 * @param j pixel row
+	 * @param k sample coordinate index
+	 * @return pseudo-random number in {@code [0, 1)}
+	 * @since 0.0.2
+	 */
+	private static double jitter(int i, int j, int k) {
+
+		var hash = i * 0x9E3779B1 ^ j * 0x85EBCA77 ^ k * 0xC2B2AE3D;
+
+		hash ^= hash >>> 16;
+		hash *= 0x7FEB352D;
+		hash ^= hash >>> 15;
+		hash *= 0x846CA68B;
+		hash ^= hash >>> 16;
+
+		return (hash >>> 8) * 0x1.0p-24;
+	}
+
 	private int imageWidth;
 	private int imageHeight;
 	private double minX;
 	private double minY;
 	private double scaleX;
 	private double scaleY;
+	private double bailout;
+	private int mirrorRowSum;
 
 	private int[] colorBuffer;
+	private int[] iterationBuffer;
 
 	private DoubleVector offset;
 
+	private final CostPredictiveScheduler scheduler = new CostPredictiveScheduler();
+	private final CostPredictiveScheduler supersamplingScheduler = new CostPredictiveScheduler();
+
 	/**
 	 * Creates a new Mandelbrot fractal.
 	 *
@@ -48,75 +96,506 @@ public class MandelbrotFractalSimd extends MandelbrotFractal {
 		super(minX, maxX, minY, maxY, maxIterations);
 	}
 
+	@Override
+	protected MandelbrotFractal createWorker() {
+		return new MandelbrotFractalSimd(getMinX(), getMaxX(), getMinY(), getMaxY(), iterations);
+	}
+
 	@Override
 	public void compute(BufferedImage image) {
 
 		var dataBuffer = (DataBufferInt) image.getRaster().getDataBuffer();
 
 		colorBuffer = dataBuffer.getData();
+		prepare(image.getWidth(), image.getHeight(), smooth);
+
+		if (antialiasing > 1 && (iterationBuffer == null || iterationBuffer.length != colorBuffer.length)) {
+			iterationBuffer = new int[colorBuffer.length];
+		}
+
+		schedule(this::computeRow, this::fillInteriorRow);
+		mirrorRows(colorBuffer, imageWidth, imageHeight, mirrorRowSum);
+
+		if (antialiasing > 1) {
+
+			// edges are detected on every row, mirrored ones included
+			mirrorRows(iterationBuffer, imageWidth, imageHeight, mirrorRowSum);
 
-		imageWidth = image.getWidth();
-		imageHeight = image.getHeight();
+			// edge tiles are the expensive ones, their costs are predicted apart from those of the first pass
+			supersamplingScheduler.run(imageWidth, imageHeight, minX, minY, scaleX, scaleY,
+					(j, firstColumn, columnEnd) -> isComputedRow(j) ? supersampleRow(j, firstColumn, columnEnd) : 0,
+					null);
+
+			mirrorRows(colorBuffer, imageWidth, imageHeight, mirrorRowSum);
+		}
+	}
+
+	@Override
+	public void compute(IterationImage image) {
+
+		prepare(image.getWidth(), image.getHeight(), image.isSmooth());
+		image.setMaxIterations(iterations);
+
+		schedule((j, firstColumn, columnEnd) -> computeIterationRow(j, firstColumn, columnEnd, image),
+				(j, firstColumn, columnEnd) -> fillInteriorIterationRow(j, firstColumn, columnEnd, image));
+		mirrorRows(image.getIterations(), imageWidth, imageHeight, mirrorRowSum);
+
+		if (image.isSmooth()) {
+			mirrorRows(image.getFractions(), imageWidth, imageHeight, mirrorRowSum);
+		}
+	}
+
+	@Override
+	public void compute(double[] x0, double[] y0, IterationImage image) {
+
+		prepare(image.getWidth(), image.getHeight(), image.isSmooth());
+		image.setMaxIterations(iterations);
+
+		range(0, imageHeight).parallel().forEach(j -> computePointRow(j, x0, y0, image));
+	}
+
+	/**
+	 * Computes the parameters shared by every row.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param smooth whether to use the escape radius of smooth coloring
+	 * @since 0.0.2
+	 */
+	private void prepare(int width, int height, boolean smooth) {
+
+		imageWidth = width;
+		imageHeight = height;
 		scaleX = getWidth() / imageWidth;
 		scaleY = getHeight() / imageHeight;
 		minX = getMinX();
 		minY = getMinY();
+		bailout = smooth ? SMOOTH_BAILOUT : BAILOUT;
+		mirrorRowSum = getMirrorRowSum(minY, scaleY, imageHeight);
 
 		offset = fromArray(
 				SPECIES,
 				range(0, LANE_COUNT).mapToDouble(lane -> lane * scaleX).toArray(),
 				0);
+	}
 
-		range(0, imageHeight).parallel().forEach(this::computeRow);
+	/**
+	 * @param j row index (from the bottom)
+	 * @return whether the row is computed, rather than copied from its mirror about the real axis
+	 * @since 0.0.2
+	 */
+	private boolean isComputedRow(int j) {
+		return !isMirroredRow(j, mirrorRowSum, imageHeight);
 	}
 
 	/**
-	 * Computes every pixel in the identified row.
+	 * Computes the segments of the computed rows in the order given by the cost predictive scheduler. Segments proven
+	 * interior by the interior index, if any, are filled instead.
+	 *
+	 * @param kernel kernel computing a row segment
+	 * @param interiorKernel kernel filling a row segment proven interior
+	 * @since 0.0.2
+	 */
+	private void schedule(CostPredictiveScheduler.SegmentKernel kernel,
+			CostPredictiveScheduler.SegmentKernel interiorKernel) {
+
+		var interior = interiorIndex == null ? null : new CostPredictiveScheduler.Interior(interiorIndex,
+				(j, firstColumn, columnEnd) -> isComputedRow(j) ? interiorKernel.compute(j, firstColumn, columnEnd) : 0,
+				iterations);
+
+		scheduler.run(imageWidth, imageHeight, minX, minY, scaleX, scaleY, (j, firstColumn, columnEnd) ->
+				isComputedRow(j) ? kernel.compute(j, firstColumn, columnEnd) : 0, interior);
+	}
+
+	/**
+	 * Computes every pixel in the identified row segment.
 	 *
 	 * @param j row to compute
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @return total number of iterations of the segment
 	 * @since 0.0.0
 	 */
-	private void computeRow(int j) {
+	private long computeRow(int j, int firstColumn, int columnEnd) {
 
 		var y0 = broadcast(SPECIES, minY + j * scaleY);
 		var iterationArray = new double[LANE_COUNT];
+		var magnitudeArray = new double[LANE_COUNT];
+		var iterationSum = 0L;
 
-		var colorIndex = (imageHeight - j - 1) * imageWidth;
+		var colorIndex = (imageHeight - j - 1) * imageWidth + firstColumn;
 
-		for (var i = 0; i < imageWidth; i += LANE_COUNT) {
+		for (var i = firstColumn; i < columnEnd; i += LANE_COUNT) {
 
-			var x = zero(SPECIES);
-			var y = zero(SPECIES);
-			var iteration = zero(SPECIES);
 			var x0 = broadcast(SPECIES, minX + i * scaleX).add(offset);
 
-			for (var n = 0; n < iterations; n++) {
+			if (smooth) {
+				iterateSmooth(x0, y0, iterationArray, magnitudeArray);
+			} else {
+				iterate(x0, y0, iterationArray);
+			}
+
+			// the last vector of the segment may extend beyond it
+			var laneCount = min(LANE_COUNT, columnEnd - i);
 
-				var xx = x.mul(x);
-				var yy = y.mul(y);
+			for (var lane = 0; lane < laneCount; lane++) {
 
-				var active = xx.add(yy).compare(LE, 4.0);
+				var iteration = (int) iterationArray[lane];
+				iterationSum += iteration;
 
-				if (!active.anyTrue()) {
-					break;
+				if (antialiasing > 1) {
+					iterationBuffer[colorIndex] = iteration;
 				}
 
-				iteration = iteration.add(1, active);
+				colorBuffer[colorIndex++] = getColor(iteration, magnitudeArray[lane]);
+			}
+		}
+
+		return iterationSum;
+	}
+
+	/**
+	 * Fills the identified row segment, known to be interior, without iterating.
+	 *
+	 * @param j row to fill
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @return total number of iterations of the segment, always 0
+	 * @since 0.0.2
+	 */
+	private long fillInteriorRow(int j, int firstColumn, int columnEnd) {
+
+		var rowIndex = (imageHeight - j - 1) * imageWidth;
+		fill(colorBuffer, rowIndex + firstColumn, rowIndex + columnEnd, 0);
+
+		if (antialiasing > 1) {
+			fill(iterationBuffer, rowIndex + firstColumn, rowIndex + columnEnd, iterations);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Fills the number of iterations of the identified row segment, known to be interior, without iterating.
+	 *
+	 * @param j row to fill
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @param image iteration image to fill
+	 * @return total number of iterations of the segment, always 0
+	 * @since 0.0.2
+	 */
+	private long fillInteriorIterationRow(int j, int firstColumn, int columnEnd, IterationImage image) {
+
+		var rowIndex = (imageHeight - j - 1) * imageWidth;
+		fill(image.getIterations(), rowIndex + firstColumn, rowIndex + columnEnd, iterations);
 
-				y = y.fma(x.add(x), y0);
-				x = xx.sub(yy).add(x0);
+		if (image.isSmooth()) {
+			fill(image.getFractions(), rowIndex + firstColumn, rowIndex + columnEnd, 0.0f);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Computes the number of iterations of every pixel in the identified row segment.
+	 *
+	 * @param j row to compute
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @param image iteration image to fill
+	 * @return total number of iterations of the segment
+	 * @since 0.0.2
+	 */
+	private long computeIterationRow(int j, int firstColumn, int columnEnd, IterationImage image) {
+
+		var y0 = broadcast(SPECIES, minY + j * scaleY);
+		var iterationArray = new double[LANE_COUNT];
+		var magnitudeArray = new double[LANE_COUNT];
+		var iterationSum = 0L;
+
+		var iterationCounts = image.getIterations();
+		var fractions = image.getFractions();
+		var pixelIndex = (imageHeight - j - 1) * imageWidth + firstColumn;
+
+		for (var i = firstColumn; i < columnEnd; i += LANE_COUNT) {
+
+			var x0 = broadcast(SPECIES, minX + i * scaleX).add(offset);
+
+			if (fractions != null) {
+				iterateSmooth(x0, y0, iterationArray, magnitudeArray);
+			} else {
+				iterate(x0, y0, iterationArray);
 			}
 
-			iteration.intoArray(iterationArray, 0);
+			var laneCount = min(LANE_COUNT, columnEnd - i);
 
-			for (var lane = 0; lane < LANE_COUNT; lane++) {
+			for (var lane = 0; lane < laneCount; lane++) {
+
+				var iteration = (int) iterationArray[lane];
+				iterationCounts[pixelIndex] = iteration;
+				iterationSum += iteration;
+
+				if (fractions != null) {
+					fractions[pixelIndex] = iteration == iterations ? 0.0f : getSmoothFraction(magnitudeArray[lane]);
+				}
+
+				pixelIndex++;
+			}
+		}
+
+		return iterationSum;
+	}
+
+	/**
+	 * Computes the number of iterations of the points of the identified row.
+	 *
+	 * @param j row to compute, from the top
+	 * @param x0 real parts of the points
+	 * @param y0 imaginary parts of the points
+	 * @param image iteration image to fill
+	 * @since 0.0.2
+	 */
+	private void computePointRow(int j, double[] x0, double[] y0, IterationImage image) {
+
+		var iterationArray = new double[LANE_COUNT];
+		var magnitudeArray = new double[LANE_COUNT];
+
+		var iterationCounts = image.getIterations();
+		var fractions = image.getFractions();
+		var rowEnd = (j + 1) * imageWidth;
+
+		for (var pixelIndex = j * imageWidth; pixelIndex < rowEnd; pixelIndex += LANE_COUNT) {
+
+			// lanes beyond the row are set to a point escaping at once, so that they do not keep the vector iterating
+			var inRow = SPECIES.indexInRange(pixelIndex, rowEnd);
+			var x = ESCAPING.blend(fromArray(SPECIES, x0, pixelIndex, inRow), inRow);
+			var y = fromArray(SPECIES, y0, pixelIndex, inRow);
+
+			if (fractions != null) {
+				iterateSmooth(x, y, iterationArray, magnitudeArray);
+			} else {
+				iterate(x, y, iterationArray);
+			}
+
+			var laneCount = min(LANE_COUNT, rowEnd - pixelIndex);
+
+			for (var lane = 0; lane < laneCount; lane++) {
+
+				var iteration = (int) iterationArray[lane];
+				iterationCounts[pixelIndex + lane] = iteration;
+
+				if (fractions != null) {
+					fractions[pixelIndex + lane] = iteration == iterations ?
+							0.0f :
+							getSmoothFraction(magnitudeArray[lane]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the color of every edge pixel in the identified row segment with the average color of
+	 * {@code antialiasing x antialiasing} stratified and jittered samples. Samples of all edge pixels in the segment
+	 * are gathered so that vectors are filled regardless of the number of samples per pixel.
+	 *
+	 * @param j row to supersample
+	 * @param firstColumn first column of the segment
+	 * @param columnEnd column after the segment
+	 * @return total number of iterations of the samples
+	 * @since 0.0.2
+	 */
+	private long supersampleRow(int j, int firstColumn, int columnEnd) {
+
+		var rowIndex = (imageHeight - j - 1) * imageWidth;
+		var edgeColumns = new int[columnEnd - firstColumn];
+		var edgeCount = 0;
 
-				if (iterationArray[lane] == iterations) {
-					colorBuffer[colorIndex++] = 0x000000;
-				} else {
-					colorBuffer[colorIndex++] = palette[(int) iterationArray[lane] % palette.length];
+		for (var i = firstColumn; i < columnEnd; i++) {
+
+			if (isEdge(i, imageHeight - j - 1)) {
+				edgeColumns[edgeCount++] = i;
+			}
+		}
+
+		if (edgeCount == 0) {
+			return 0;
+		}
+
+		var samplesPerPixel = antialiasing * antialiasing;
+		var sampleCount = edgeCount * samplesPerPixel;
+		var paddedSampleCount = SPECIES.loopBound(sampleCount + LANE_COUNT - 1);
+
+		var sampleX = new double[paddedSampleCount];
+		var sampleY = new double[paddedSampleCount];
+		var sampleColors = new int[paddedSampleCount];
+		var sampleIndex = 0;
+
+		for (var edgeIndex = 0; edgeIndex < edgeCount; edgeIndex++) {
+
+			var i = edgeColumns[edgeIndex];
+
+			for (var b = 0; b < antialiasing; b++) {
+
+				for (var a = 0; a < antialiasing; a++) {
+
+					var k = 2 * (b * antialiasing + a);
+					var u = (a + jitter(i, j, k)) / antialiasing - 0.5;
+					var v = (b + jitter(i, j, k + 1)) / antialiasing - 0.5;
+
+					sampleX[sampleIndex] = minX + (i + u) * scaleX;
+					sampleY[sampleIndex] = minY + (j + v) * scaleY;
+					sampleIndex++;
 				}
 			}
 		}
+
+		// padding lanes would otherwise sample the origin, which never escapes, and iterate up to the maximum
+		fill(sampleX, sampleCount, paddedSampleCount, ESCAPING.lane(0));
+
+		var iterationArray = new double[LANE_COUNT];
+		var magnitudeArray = new double[LANE_COUNT];
+		var iterationSum = 0L;
+
+		for (var k = 0; k < sampleCount; k += LANE_COUNT) {
+
+			var x0 = fromArray(SPECIES, sampleX, k);
+			var y0 = fromArray(SPECIES, sampleY, k);
+
+			if (smooth) {
+				iterateSmooth(x0, y0, iterationArray, magnitudeArray);
+			} else {
+				iterate(x0, y0, iterationArray);
+			}
+
+			for (var lane = 0; lane < LANE_COUNT; lane++) {
+
+				sampleColors[k + lane] = getColor((int) iterationArray[lane], magnitudeArray[lane]);
+				iterationSum += (long) iterationArray[lane];
+			}
+		}
+
+		sampleIndex = 0;
+
+		for (var edgeIndex = 0; edgeIndex < edgeCount; edgeIndex++) {
+
+			var red = 0;
+			var green = 0;
+			var blue = 0;
+
+			for (var sample = 0; sample < samplesPerPixel; sample++) {
+
+				var rgb = sampleColors[sampleIndex++];
+
+				red += rgb >> 16 & 0xFF;
+				green += rgb >> 8 & 0xFF;
+				blue += rgb & 0xFF;
+			}
+
+			red /= samplesPerPixel;
+			green /= samplesPerPixel;
+			blue /= samplesPerPixel;
+
+			colorBuffer[rowIndex + edgeColumns[edgeIndex]] = red << 16 | green << 8 | blue;
+		}
+
+		return iterationSum;
+	}
+
+	/**
+	 * Checks whether the iteration count of a pixel differs from one of its 4 neighbours by more than
+	 * {@link #EDGE_THRESHOLD}.
+	 *
+	 * @param i pixel column
+	 * @param row pixel row in the image (top to bottom)
+	 * @return whether the pixel is an edge pixel
+	 * @since 0.0.2
+	 */
+	private boolean isEdge(int i, int row) {
+
+		var index = row * imageWidth + i;
+		var iteration = iterationBuffer[index];
+
+		return i > 0 && abs(iterationBuffer[index - 1] - iteration) > EDGE_THRESHOLD ||
+				i < imageWidth - 1 && abs(iterationBuffer[index + 1] - iteration) > EDGE_THRESHOLD ||
+				row > 0 && abs(iterationBuffer[index - imageWidth] - iteration) > EDGE_THRESHOLD ||
+				row < imageHeight - 1 && abs(iterationBuffer[index + imageWidth] - iteration) > EDGE_THRESHOLD;
+	}
+
+	/**
+	 * Iterates {@code z = z² + c} for {@link #LANE_COUNT} values of {@code c} at once.
+	 *
+	 * @param x0 real parts of {@code c}
+	 * @param y0 imaginary parts of {@code c}
+	 * @param iterationArray array in which to store the number of iterations of each lane
+	 * @since 0.0.2
+	 */
+	private void iterate(DoubleVector x0, DoubleVector y0, double[] iterationArray) {
+
+		var x = zero(SPECIES);
+		var y = zero(SPECIES);
+		var iteration = zero(SPECIES);
+
+		for (var n = 0; n < iterations; n++) {
+
+			var xx = x.mul(x);
+			var yy = y.mul(y);
+
+			var active = xx.add(yy).compare(LE, bailout);
+
+			if (!active.anyTrue()) {
+				break;
+			}
+
+			iteration = iteration.add(1, active);
+
+			y = y.fma(x.add(x), y0);
+			x = xx.sub(yy).add(x0);
+		}
+
+		iteration.intoArray(iterationArray, 0);
+	}
+
+	/**
+	 * Iterates {@code z = z² + c} for {@link #LANE_COUNT} values of {@code c} at once, also keeping
+	 * {@code |z|²} of each lane at the iteration it escaped. This is a separate loop so that discrete coloring
+	 * does not pay for the additional blend.
+	 *
+	 * @param x0 real parts of {@code c}
+	 * @param y0 imaginary parts of {@code c}
+	 * @param iterationArray array in which to store the number of iterations of each lane
+	 * @param magnitudeArray array in which to store {@code |z|²} of each lane at escape
+	 * @since 0.0.2
+	 */
+	private void iterateSmooth(DoubleVector x0, DoubleVector y0, double[] iterationArray, double[] magnitudeArray) {
+
+		var x = zero(SPECIES);
+		var y = zero(SPECIES);
+		var iteration = zero(SPECIES);
+		var magnitude = zero(SPECIES);
+
+		for (var n = 0; n < iterations; n++) {
+
+			var xx = x.mul(x);
+			var yy = y.mul(y);
+			var sum = xx.add(yy);
+
+			var active = sum.compare(LE, bailout);
+
+			// once a lane has escaped, its magnitude exceeds the bailout and is not updated anymore
+			magnitude = magnitude.blend(sum, magnitude.compare(LE, bailout));
+
+			if (!active.anyTrue()) {
+				break;
+			}
+
+			iteration = iteration.add(1, active);
+
+			y = y.fma(x.add(x), y0);
+			x = xx.sub(yy).add(x0);
+		}
+
+		iteration.intoArray(iterationArray, 0);
+		magnitude.intoArray(magnitudeArray, 0);
 	}
 }
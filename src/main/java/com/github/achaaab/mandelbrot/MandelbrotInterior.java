@@ -0,0 +1,197 @@
+package com.github.achaaab.mandelbrot;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.fma;
+import static java.lang.Math.max;
+
+/**
+ * Checks showing that points are in the interior of the Mandelbrot set without iterating up to the maximum: the
+ * closed-form tests of the main cardioid and of the period 2 bulb, for points and for whole rectangles, and the
+ * detection of periodic orbits.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public final class MandelbrotInterior {
+
+	/**
+	 * Escape of a point that did not escape, without being proven in the interior.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final int UNRESOLVED = -1;
+
+	/**
+	 * Squared distance under which an orbit is considered back to a previous point, and therefore periodic.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double PERIODICITY_TOLERANCE = 1e-24;
+
+	/**
+	 * Margin required by the closed-form bounds of rectangles, far above their rounding errors.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double MARGIN = 1e-12;
+
+	/**
+	 * @param x real part of {@code c}
+	 * @param y imaginary part of {@code c}
+	 * @return whether {@code c} is in the main cardioid or in the period 2 bulb, and thus never escapes
+	 * @since 0.0.2
+	 */
+	public static boolean isInMainComponents(double x, double y) {
+
+		var yy = y * y;
+		var shiftedX = x - 0.25;
+		var q = shiftedX * shiftedX + yy;
+
+		return q * (q + shiftedX) <= 0.25 * yy || (x + 1) * (x + 1) + yy <= 0.0625;
+	}
+
+	/**
+	 * Checks whether a whole rectangle is inside the main cardioid or inside the period 2 bulb. The bulb is a disk,
+	 * which contains a rectangle if it contains its corners. The inequality of the cardioid is bounded over the whole
+	 * rectangle with interval arithmetic. Both bounds keep a margin over rounding errors, so a rectangle close to the
+	 * boundary is rejected rather than wrongly accepted.
+	 *
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @return whether the whole rectangle is proven inside the main cardioid or inside the period 2 bulb
+	 * @since 0.0.2
+	 */
+	public static boolean isInMainComponents(double minX, double minY, double maxX, double maxY) {
+		return isInMainCardioid(minX, minY, maxX, maxY) || isInPeriod2Bulb(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Iterates a point, detecting periodic orbits, which never escape.
+	 *
+	 * @param x0 real part of the point
+	 * @param y0 imaginary part of the point
+	 * @param bailout squared escape radius
+	 * @param iterations maximum number of iterations
+	 * @return number of iterations before the point escapes, the maximum if it is proven in the interior, or
+	 * {@link #UNRESOLVED}
+	 * @since 0.0.2
+	 */
+	public static int getEscape(double x0, double y0, double bailout, int iterations) {
+
+		if (isInMainComponents(x0, y0)) {
+			return iterations;
+		}
+
+		var x = 0.0;
+		var y = 0.0;
+		var xx = 0.0;
+		var yy = 0.0;
+
+		// orbit point compared to the next ones, moved at every power of 2 to detect periods of any length
+		var periodX = 0.0;
+		var periodY = 0.0;
+		var periodCheck = 1;
+
+		var iteration = 0;
+
+		while (iteration < iterations && xx + yy < bailout) {
+
+			y = fma(x + x, y, y0);
+			x = xx - yy + x0;
+
+			xx = x * x;
+			yy = y * y;
+
+			iteration++;
+
+			var dx = x - periodX;
+			var dy = y - periodY;
+
+			if (dx * dx + dy * dy < PERIODICITY_TOLERANCE) {
+				return iterations;
+			}
+
+			if (iteration == periodCheck) {
+
+				periodX = x;
+				periodY = y;
+				periodCheck *= 2;
+			}
+		}
+
+		return xx + yy < bailout ? UNRESOLVED : iteration;
+	}
+
+	/**
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @return whether the whole rectangle is proven inside the main cardioid
+	 * @since 0.0.2
+	 */
+	private static boolean isInMainCardioid(double minX, double minY, double maxX, double maxY) {
+
+		// interior of the cardioid: q (q + x - 1/4) < y² / 4, with q = (x - 1/4)² + y²
+		var minXq = minX - 0.25;
+		var maxXq = maxX - 0.25;
+		var minXqXq = getMinSquare(minXq, maxXq);
+		var maxXqXq = max(minXq * minXq, maxXq * maxXq);
+		var minYy = getMinSquare(minY, maxY);
+		var maxYy = max(minY * minY, maxY * maxY);
+
+		var minQ = minXqXq + minYy;
+		var maxQ = maxXqXq + maxYy;
+		var maxSum = maxQ + maxXq;
+
+		// q is not negative, the upper bound of q (q + x - 1/4) depends on the sign of the upper bound of q + x - 1/4
+		var maxProduct = maxSum >= 0 ? maxQ * maxSum : minQ * maxSum;
+
+		return maxProduct - 0.25 * minYy < -MARGIN;
+	}
+
+	/**
+	 * @param minX minimum x of the rectangle
+	 * @param minY minimum y of the rectangle
+	 * @param maxX maximum x of the rectangle
+	 * @param maxY maximum y of the rectangle
+	 * @return whether the whole rectangle is proven inside the period 2 bulb
+	 * @since 0.0.2
+	 */
+	private static boolean isInPeriod2Bulb(double minX, double minY, double maxX, double maxY) {
+
+		// the bulb is the disk of radius 1/4 centered on -1, its farthest point from the center is a corner
+		var dx = max(abs(minX + 1), abs(maxX + 1));
+		var dy = max(abs(minY), abs(maxY));
+
+		return dx * dx + dy * dy < 0.0625 - MARGIN;
+	}
+
+	/**
+	 * @param min minimum of an interval
+	 * @param max maximum of the interval
+	 * @return minimum of the squares of the interval values
+	 * @since 0.0.2
+	 */
+	private static double getMinSquare(double min, double max) {
+
+		if (min > 0) {
+			return min * min;
+		} else if (max < 0) {
+			return max * max;
+		} else {
+			return 0.0;
+		}
+	}
+
+	/**
+	 * Private constructor to prevent instantiation of this utility class.
+	 *
+	 * @since 0.0.2
+	 */
+	private MandelbrotInterior() {
+
+	}
+}
@@ -0,0 +1,56 @@
+package com.github.achaaab.mandelbrot;
+
+import com.github.achaaab.mandelbrot.fractal.RenderPriority;
+
+/**
+ * Immutable request of an asynchronous render, independent of the current settings of the rendering engine.
+ *
+ * @param minX minimum x
+ * @param maxX maximum x
+ * @param minY minimum y
+ * @param maxY maximum y
+ * @param width image width in pixels
+ * @param height image height in pixels
+ * @param iterations maximum number of iterations
+ * @param smooth whether escaping pixels are colored with the normalized iteration count
+ * @param antialiasing number of samples per axis computed for edge pixels, {@code 1} to disable antialiasing
+ * @param interiorIndex index of the regions proven interior, used and completed by the render, {@code null} to disable
+ * it
+ * @param priority priority of the render tasks
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public record RenderRequest(double minX, double maxX, double minY, double maxY, int width, int height, int iterations,
+		boolean smooth, int antialiasing, InteriorIndex interiorIndex, RenderPriority priority) {
+
+	/**
+	 * Creates a request of the current area of a fractal, with its current settings.
+	 *
+	 * @param fractal fractal whose area and settings are requested
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param priority priority of the render tasks
+	 * @return created request
+	 * @throws IllegalArgumentException if the image size is not positive
+	 * @since 0.0.2
+	 */
+	public static RenderRequest of(MandelbrotFractal fractal, int width, int height, RenderPriority priority) {
+
+		return new RenderRequest(fractal.getMinX(), fractal.getMaxX(), fractal.getMinY(), fractal.getMaxY(),
+				width, height, fractal.getIterations(), fractal.isSmooth(), fractal.getAntialiasing(),
+				fractal.getInteriorIndex(), priority);
+	}
+
+	/**
+	 * Creates a new render request.
+	 *
+	 * @throws IllegalArgumentException if the image size is not positive
+	 * @since 0.0.2
+	 */
+	public RenderRequest {
+
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("positive image size expected: " + width + "x" + height);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.github.achaaab.mandelbrot;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Tile of an asynchronous render, published as soon as it is rendered.
+ *
+ * @param request request of the render
+ * @param x x of the tile in the rendered image, from the left
+ * @param y y of the tile in the rendered image, from the top
+ * @param image pixels of the tile
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public record RenderedTile(RenderRequest request, int x, int y, BufferedImage image) {
+
+}
@@ -0,0 +1,471 @@
+package com.github.achaaab.mandelbrot.animation;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Renders the frames of a keyframed animation as PNG files. Interpolation, rendering, colorization and encoding are
+ * separate stages, each on its own thread, connected by bounded queues: a frame is rendered while the previous ones
+ * are colorized and written, and the number of frames in flight is bounded.
+ *
+ * <p>When a frame has the same pixel size and maximum number of iterations as the previous one, its center is
+ * snapped to the pixel grid of the previous frame, the overlapping pixels are copied and only the uncovered bands are
+ * computed. Pans thus cost their newly visible pixels only.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class AnimationPipeline {
+
+	/**
+	 * Capacity of the queues between stages.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int QUEUE_CAPACITY = 2;
+
+	/**
+	 * Maximum relative difference of pixel sizes for 2 frames to share a pixel grid.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double PIXEL_SIZE_TOLERANCE = 1e-9;
+
+	private static final Keyframe END_OF_FRAMES = new Keyframe(-1, 0.0, 0.0, 0.0, 0);
+	private static final RenderedFrame END_OF_RENDERED_FRAMES = new RenderedFrame(-1, null);
+	private static final ColoredFrame END_OF_COLORED_FRAMES = new ColoredFrame(-1, null);
+
+	private final MandelbrotFractal fractal;
+	private final int frameWidth;
+	private final int frameHeight;
+	private final Path outputDirectory;
+
+	private IterationImage previousImage;
+	private double previousCenterX;
+	private double previousCenterY;
+	private double previousPixelSize;
+	private int previousIterations;
+
+	private long computedPixelCount;
+	private long reusedPixelCount;
+	private int writtenFrameCount;
+
+	/**
+	 * Creates a new animation pipeline.
+	 *
+	 * @param fractal Mandelbrot fractal computing the frames, with its coloring settings, dedicated to this pipeline
+	 * because its bounds and iterations are changed for each frame
+	 * @param frameWidth frame width in pixels
+	 * @param frameHeight frame height in pixels
+	 * @param outputDirectory directory in which to write the frames
+	 * @since 0.0.2
+	 */
+	public AnimationPipeline(MandelbrotFractal fractal, int frameWidth, int frameHeight, Path outputDirectory) {
+
+		this.fractal = fractal;
+		this.frameWidth = frameWidth;
+		this.frameHeight = frameHeight;
+		this.outputDirectory = outputDirectory;
+	}
+
+	/**
+	 * Renders every frame of a keyframe path, as PNG files named {@code frame-00000.png}, {@code frame-00001.png}...
+	 * If a stage fails, the other stages are interrupted.
+	 *
+	 * @param path keyframe path to render
+	 * @throws IOException if an I/O error occurs while writing a frame
+	 * @throws InterruptedException if the current thread is interrupted while waiting for the stages
+	 * @since 0.0.2
+	 */
+	public void run(KeyframePath path) throws IOException, InterruptedException {
+
+		BlockingQueue<Keyframe> frames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		BlockingQueue<RenderedFrame> renderedFrames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		BlockingQueue<ColoredFrame> coloredFrames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+		var executor = newFixedThreadPool(4);
+		var stages = new ExecutorCompletionService<Void>(executor);
+
+		try {
+
+			stages.submit(() -> interpolate(path, frames), null);
+			stages.submit(() -> render(frames, renderedFrames), null);
+			stages.submit(() -> colorize(renderedFrames, coloredFrames), null);
+			stages.submit(() -> encode(coloredFrames), null);
+
+			for (var stage = 0; stage < 4; stage++) {
+
+				try {
+
+					stages.take().get();
+
+				} catch (ExecutionException executionException) {
+
+					var cause = executionException.getCause();
+
+					if (cause instanceof StageException stageException) {
+						stageException.rethrow();
+					} else if (cause instanceof RuntimeException runtimeException) {
+						throw runtimeException;
+					} else {
+						throw new IllegalStateException(cause);
+					}
+				}
+			}
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Interpolation stage.
+	 *
+	 * @param path keyframe path to interpolate
+	 * @param frames queue in which to put the interpolated frames
+	 * @throws StageException if the stage is interrupted
+	 * @since 0.0.2
+	 */
+	private void interpolate(KeyframePath path, BlockingQueue<Keyframe> frames) {
+
+		try {
+
+			var frameCount = path.getFrameCount();
+
+			for (var frame = 0; frame < frameCount; frame++) {
+				frames.put(path.getFrame(frame));
+			}
+
+			frames.put(END_OF_FRAMES);
+
+		} catch (InterruptedException interruptedException) {
+
+			throw new StageException(interruptedException);
+		}
+	}
+
+	/**
+	 * Rendering stage.
+	 *
+	 * @param frames queue from which to take the frames to render
+	 * @param renderedFrames queue in which to put the rendered frames
+	 * @throws StageException if the stage is interrupted
+	 * @since 0.0.2
+	 */
+	private void render(BlockingQueue<Keyframe> frames, BlockingQueue<RenderedFrame> renderedFrames) {
+
+		try {
+
+			Keyframe frame;
+
+			while ((frame = frames.take()) != END_OF_FRAMES) {
+				renderedFrames.put(new RenderedFrame(frame.frame(), render(frame)));
+			}
+
+			renderedFrames.put(END_OF_RENDERED_FRAMES);
+
+		} catch (InterruptedException interruptedException) {
+
+			throw new StageException(interruptedException);
+		}
+	}
+
+	/**
+	 * Colorization stage. Colorizing only reads the palette of the fractal, so it does not interfere with the
+	 * rendering of the next frames.
+	 *
+	 * @param renderedFrames queue from which to take the frames to colorize
+	 * @param coloredFrames queue in which to put the colorized frames
+	 * @throws StageException if the stage is interrupted
+	 * @since 0.0.2
+	 */
+	private void colorize(BlockingQueue<RenderedFrame> renderedFrames, BlockingQueue<ColoredFrame> coloredFrames) {
+
+		try {
+
+			RenderedFrame renderedFrame;
+
+			while ((renderedFrame = renderedFrames.take()) != END_OF_RENDERED_FRAMES) {
+
+				var image = new BufferedImage(frameWidth, frameHeight, TYPE_INT_RGB);
+				fractal.colorize(renderedFrame.image(), image);
+				coloredFrames.put(new ColoredFrame(renderedFrame.frame(), image));
+			}
+
+			coloredFrames.put(END_OF_COLORED_FRAMES);
+
+		} catch (InterruptedException interruptedException) {
+
+			throw new StageException(interruptedException);
+		}
+	}
+
+	/**
+	 * Encoding stage.
+	 *
+	 * @param coloredFrames queue from which to take the frames to write
+	 * @throws StageException if the stage is interrupted or if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void encode(BlockingQueue<ColoredFrame> coloredFrames) {
+
+		try {
+
+			ColoredFrame coloredFrame;
+
+			while ((coloredFrame = coloredFrames.take()) != END_OF_COLORED_FRAMES) {
+
+				var file = outputDirectory.resolve(String.format("frame-%05d.png", coloredFrame.frame()));
+				ImageIO.write(coloredFrame.image(), "png", file.toFile());
+				writtenFrameCount++;
+			}
+
+		} catch (InterruptedException | IOException exception) {
+
+			throw new StageException(exception);
+		}
+	}
+
+	/**
+	 * Computes the iterations of a frame, reusing the pixels of the previous frame if they share a pixel grid.
+	 *
+	 * @param frame frame to render
+	 * @return iteration image of the frame
+	 * @since 0.0.2
+	 */
+	private IterationImage render(Keyframe frame) {
+
+		var centerX = frame.centerX();
+		var centerY = frame.centerY();
+		var pixelSize = frame.width() / frameWidth;
+		var iterations = frame.iterations();
+
+		var columnShift = 0;
+		var rowShift = 0;
+
+		var reusable = previousImage != null && iterations == previousIterations &&
+				abs(pixelSize - previousPixelSize) <= PIXEL_SIZE_TOLERANCE * previousPixelSize;
+
+		if (reusable) {
+
+			pixelSize = previousPixelSize;
+
+			// image rows are numbered from the top, whereas y increases upward
+			var exactColumnShift = round((centerX - previousCenterX) / pixelSize);
+			var exactRowShift = round((previousCenterY - centerY) / pixelSize);
+
+			reusable = abs(exactColumnShift) < frameWidth && abs(exactRowShift) < frameHeight;
+
+			if (reusable) {
+
+				columnShift = (int) exactColumnShift;
+				rowShift = (int) exactRowShift;
+				centerX = previousCenterX + columnShift * pixelSize;
+				centerY = previousCenterY - rowShift * pixelSize;
+			}
+		}
+
+		var minX = centerX - pixelSize * frameWidth / 2;
+		var maxY = centerY + pixelSize * frameHeight / 2;
+
+		fractal.setIterations(iterations);
+
+		var image = new IterationImage(frameWidth, frameHeight, fractal.isSmooth());
+		image.setMaxIterations(fractal.getIterations());
+
+		if (reusable) {
+
+			// pixel (i, j) of this frame is pixel (i + columnShift, j + rowShift) of the previous frame
+			var firstColumn = max(0, -columnShift);
+			var lastColumn = min(frameWidth, frameWidth - columnShift);
+			var firstRow = max(0, -rowShift);
+			var lastRow = min(frameHeight, frameHeight - rowShift);
+
+			copy(previousImage, firstColumn + columnShift, firstRow + rowShift,
+					image, firstColumn, firstRow, lastColumn - firstColumn, lastRow - firstRow);
+
+			reusedPixelCount += (long) (lastColumn - firstColumn) * (lastRow - firstRow);
+
+			computeRegion(image, minX, maxY, pixelSize, 0, frameWidth, 0, firstRow);
+			computeRegion(image, minX, maxY, pixelSize, 0, frameWidth, lastRow, frameHeight);
+			computeRegion(image, minX, maxY, pixelSize, 0, firstColumn, firstRow, lastRow);
+			computeRegion(image, minX, maxY, pixelSize, lastColumn, frameWidth, firstRow, lastRow);
+
+		} else {
+
+			computeRegion(image, minX, maxY, pixelSize, 0, frameWidth, 0, frameHeight);
+		}
+
+		previousImage = image;
+		previousCenterX = centerX;
+		previousCenterY = centerY;
+		previousPixelSize = pixelSize;
+		previousIterations = iterations;
+
+		return image;
+	}
+
+	/**
+	 * Computes a rectangular region of a frame.
+	 *
+	 * @param image iteration image of the frame
+	 * @param minX minimum x of the frame
+	 * @param maxY maximum y of the frame
+	 * @param pixelSize size of a pixel in the complex plane
+	 * @param firstColumn first column of the region
+	 * @param lastColumn column after the region
+	 * @param firstRow first row of the region (from the top)
+	 * @param lastRow row after the region
+	 * @since 0.0.2
+	 */
+	private void computeRegion(IterationImage image, double minX, double maxY, double pixelSize,
+			int firstColumn, int lastColumn, int firstRow, int lastRow) {
+
+		var regionWidth = lastColumn - firstColumn;
+		var regionHeight = lastRow - firstRow;
+
+		if (regionWidth > 0 && regionHeight > 0) {
+
+			var region = new IterationImage(regionWidth, regionHeight, image.isSmooth());
+
+			fractal.setBounds(
+					minX + firstColumn * pixelSize,
+					minX + lastColumn * pixelSize,
+					maxY - lastRow * pixelSize,
+					maxY - firstRow * pixelSize);
+
+			fractal.compute(region);
+			copy(region, 0, 0, image, firstColumn, firstRow, regionWidth, regionHeight);
+
+			computedPixelCount += (long) regionWidth * regionHeight;
+		}
+	}
+
+	/**
+	 * Copies a rectangle of pixels between 2 iteration images of the same smoothness.
+	 *
+	 * @param source iteration image to copy from
+	 * @param sourceX left column in the source
+	 * @param sourceY top row in the source
+	 * @param target iteration image to copy to
+	 * @param targetX left column in the target
+	 * @param targetY top row in the target
+	 * @param width width of the rectangle
+	 * @param height height of the rectangle
+	 * @since 0.0.2
+	 */
+	private static void copy(IterationImage source, int sourceX, int sourceY,
+			IterationImage target, int targetX, int targetY, int width, int height) {
+
+		for (var row = 0; row < height; row++) {
+
+			var sourceIndex = (sourceY + row) * source.getWidth() + sourceX;
+			var targetIndex = (targetY + row) * target.getWidth() + targetX;
+
+			System.arraycopy(source.getIterations(), sourceIndex, target.getIterations(), targetIndex, width);
+
+			if (target.isSmooth()) {
+				System.arraycopy(source.getFractions(), sourceIndex, target.getFractions(), targetIndex, width);
+			}
+		}
+	}
+
+	/**
+	 * @return number of pixels computed so far
+	 * @since 0.0.2
+	 */
+	public long getComputedPixelCount() {
+		return computedPixelCount;
+	}
+
+	/**
+	 * @return number of pixels copied from a previous frame so far
+	 * @since 0.0.2
+	 */
+	public long getReusedPixelCount() {
+		return reusedPixelCount;
+	}
+
+	/**
+	 * @return number of frames written so far
+	 * @since 0.0.2
+	 */
+	public int getWrittenFrameCount() {
+		return writtenFrameCount;
+	}
+
+	/**
+	 * Frame whose iterations are computed.
+	 *
+	 * @param frame frame index
+	 * @param image iteration image of the frame
+	 * @since 0.0.2
+	 */
+	private record RenderedFrame(int frame, IterationImage image) {
+
+	}
+
+	/**
+	 * Frame whose pixels are colored.
+	 *
+	 * @param frame frame index
+	 * @param image colored image of the frame
+	 * @since 0.0.2
+	 */
+	private record ColoredFrame(int frame, BufferedImage image) {
+
+	}
+
+	/**
+	 * Failure of a stage, wrapping a checked exception so that it can cross the stage thread.
+	 *
+	 * @since 0.0.2
+	 */
+	private static class StageException extends RuntimeException {
+
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param cause checked exception thrown in the stage
+		 * @since 0.0.2
+		 */
+		StageException(Exception cause) {
+			super(cause);
+		}
+
+		/**
+		 * Throws the checked exception wrapped by this exception.
+		 *
+		 * @throws IOException if an I/O error occurred in the stage
+		 * @throws InterruptedException if the stage was interrupted
+		 * @since 0.0.2
+		 */
+		void rethrow() throws IOException, InterruptedException {
+
+			if (getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+
+			throw (InterruptedException) getCause();
+		}
+	}
+}
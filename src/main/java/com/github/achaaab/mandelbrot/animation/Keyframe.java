@@ -0,0 +1,49 @@
+package com.github.achaaab.mandelbrot.animation;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+/**
+ * View of an animation at a given frame, as described by a line of a keyframe file:
+ * {@code frame centerX centerY width iterations}.
+ *
+ * @param frame frame index
+ * @param centerX real part of the view center
+ * @param centerY imaginary part of the view center
+ * @param width view width in the complex plane
+ * @param iterations maximum number of iterations
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public record Keyframe(int frame, double centerX, double centerY, double width, int iterations) {
+
+	/**
+	 * Parses a line of a keyframe file, whose fields are separated by whitespaces.
+	 *
+	 * @param line line to parse
+	 * @return parsed keyframe
+	 * @throws IllegalArgumentException if the line is not a valid keyframe
+	 * @since 0.0.2
+	 */
+	public static Keyframe parse(String line) {
+
+		var fields = line.trim().split("\\s+");
+
+		if (fields.length != 5) {
+			throw new IllegalArgumentException("5 fields expected: " + line);
+		}
+
+		var keyframe = new Keyframe(
+				parseInt(fields[0]),
+				parseDouble(fields[1]),
+				parseDouble(fields[2]),
+				parseDouble(fields[3]),
+				parseInt(fields[4]));
+
+		if (keyframe.frame < 0 || keyframe.width <= 0.0 || keyframe.iterations < 2) {
+			throw new IllegalArgumentException("invalid keyframe: " + line);
+		}
+
+		return keyframe;
+	}
+}
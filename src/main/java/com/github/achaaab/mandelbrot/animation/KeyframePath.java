@@ -0,0 +1,108 @@
+package com.github.achaaab.mandelbrot.animation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.lang.Math.pow;
+import static java.lang.Math.round;
+
+/**
+ * Path of an animation through keyframes. Between 2 keyframes, the center and the maximum number of iterations are
+ * interpolated linearly, whereas the width is interpolated geometrically, so that the zoom speed is constant.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class KeyframePath {
+
+	/**
+	 * Reads a keyframe file, one keyframe per line. Blank lines and lines starting with {@code #} are ignored.
+	 *
+	 * @param reader reader of the keyframe file
+	 * @return read path
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalArgumentException if a line is not a valid keyframe, or if the file has no keyframe
+	 * @since 0.0.2
+	 */
+	public static KeyframePath read(BufferedReader reader) throws IOException {
+
+		var keyframes = new ArrayList<Keyframe>();
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+
+			if (!line.isBlank() && !line.strip().startsWith("#")) {
+				keyframes.add(Keyframe.parse(line));
+			}
+		}
+
+		return new KeyframePath(keyframes);
+	}
+
+	private final List<Keyframe> keyframes;
+
+	/**
+	 * Creates a new keyframe path.
+	 *
+	 * @param keyframes keyframes, in any order
+	 * @throws IllegalArgumentException if there is no keyframe, or if 2 keyframes have the same frame index
+	 * @since 0.0.2
+	 */
+	public KeyframePath(List<Keyframe> keyframes) {
+
+		if (keyframes.isEmpty()) {
+			throw new IllegalArgumentException("no keyframe");
+		}
+
+		this.keyframes = keyframes.stream().sorted(Comparator.comparingInt(Keyframe::frame)).toList();
+
+		for (var index = 1; index < this.keyframes.size(); index++) {
+
+			if (this.keyframes.get(index).frame() == this.keyframes.get(index - 1).frame()) {
+				throw new IllegalArgumentException("duplicate keyframe: " + this.keyframes.get(index).frame());
+			}
+		}
+	}
+
+	/**
+	 * @return number of frames, up to the last keyframe
+	 * @since 0.0.2
+	 */
+	public int getFrameCount() {
+		return keyframes.getLast().frame() + 1;
+	}
+
+	/**
+	 * Interpolates the view of a frame. Frames before the first keyframe have its view.
+	 *
+	 * @param frame frame index
+	 * @return view of the frame
+	 * @since 0.0.2
+	 */
+	public Keyframe getFrame(int frame) {
+
+		var next = 0;
+
+		while (next < keyframes.size() - 1 && keyframes.get(next).frame() < frame) {
+			next++;
+		}
+
+		var end = keyframes.get(next);
+
+		if (next == 0 || end.frame() <= frame) {
+			return new Keyframe(frame, end.centerX(), end.centerY(), end.width(), end.iterations());
+		}
+
+		var start = keyframes.get(next - 1);
+		var t = (double) (frame - start.frame()) / (end.frame() - start.frame());
+
+		return new Keyframe(frame,
+				start.centerX() + t * (end.centerX() - start.centerX()),
+				start.centerY() + t * (end.centerY() - start.centerY()),
+				start.width() * pow(end.width() / start.width(), t),
+				(int) round(start.iterations() + t * (end.iterations() - start.iterations())));
+	}
+}
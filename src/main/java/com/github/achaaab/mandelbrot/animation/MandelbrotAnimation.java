@@ -0,0 +1,59 @@
+package com.github.achaaab.mandelbrot.animation;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * Headless application rendering the frames of a keyframed Mandelbrot animation as an image sequence.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotAnimation {
+
+	/// Entry point of the animation renderer.
+	///
+	/// @param arguments
+	///     0. computing method (see [ComputingMethod])
+	///     1. frame width in pixels
+	///     2. frame height in pixels
+	///     3. keyframe file, one keyframe per line: `frame centerX centerY width iterations`
+	///     4. output directory
+	/// @throws IOException if an I/O error occurs while reading the keyframes or writing the frames
+	/// @throws InterruptedException if the rendering is interrupted
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException, InterruptedException {
+
+		var method = ComputingMethod.valueOf(arguments[0]);
+		var width = parseInt(arguments[1]);
+		var height = parseInt(arguments[2]);
+		var keyframeFile = Path.of(arguments[3]);
+		var outputDirectory = Path.of(arguments[4]);
+
+		KeyframePath path;
+
+		try (var reader = Files.newBufferedReader(keyframeFile)) {
+			path = KeyframePath.read(reader);
+		}
+
+		Files.createDirectories(outputDirectory);
+
+		var fractal = method.create(-2.0, 0.6, -1.3, 1.3, 2);
+		fractal.setSmooth(true);
+
+		var pipeline = new AnimationPipeline(fractal, width, height, outputDirectory);
+		var start = System.nanoTime();
+		pipeline.run(path);
+		var duration = (System.nanoTime() - start) / 1_000_000;
+
+		IO.println(String.format("%d frames, %d pixels computed, %d pixels reused (%d ms)",
+				pipeline.getWrittenFrameCount(), pipeline.getComputedPixelCount(), pipeline.getReusedPixelCount(),
+				duration));
+	}
+}
@@ -0,0 +1,218 @@
+package com.github.achaaab.mandelbrot.batch;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+import com.github.achaaab.mandelbrot.RenderRequest;
+import com.github.achaaab.mandelbrot.fractal.RenderService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.achaaab.mandelbrot.fractal.RenderPriority.BATCH;
+import static java.time.Instant.now;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor;
+
+/**
+ * Renders the jobs of a job file as batch tasks of a render service, one task per tile, so that the views sharing the
+ * service take precedence between two tiles. A fixed number of jobs are rendered at the same time, the next job of the
+ * file being started when one is written. The memory of the image of a job is acquired from a global budget when the
+ * job is started, and it is released once the image is written: the number of alive images is bounded, only running
+ * jobs hold memory, and reading the job file pauses while every job slot is busy or the budget is exhausted. Images
+ * are written on virtual threads, so that the render service only computes tiles.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class BatchRenderer {
+
+	private final RenderService renderService;
+	private final int workerCount;
+	private final MemoryBudget memoryBudget;
+	private final AtomicInteger completedJobCount;
+	private final AtomicInteger failedJobCount;
+
+	/**
+	 * Creates a new batch renderer.
+	 *
+	 * @param workerCount number of jobs rendered at the same time
+	 * @param memoryBudget number of bytes of the images alive at the same time
+	 * @since 0.0.2
+	 */
+	public BatchRenderer(int workerCount, long memoryBudget) {
+		this(RenderService.getShared(), workerCount, memoryBudget);
+	}
+
+	/**
+	 * Creates a new batch renderer, running its jobs on a render service.
+	 *
+	 * @param renderService render service running the tiles of the jobs
+	 * @param workerCount number of jobs rendered at the same time
+	 * @param memoryBudget number of bytes of the images alive at the same time
+	 * @since 0.0.2
+	 */
+	public BatchRenderer(RenderService renderService, int workerCount, long memoryBudget) {
+
+		this.renderService = renderService;
+		this.workerCount = workerCount;
+		this.memoryBudget = new MemoryBudget(memoryBudget);
+
+		completedJobCount = new AtomicInteger();
+		failedJobCount = new AtomicInteger();
+	}
+
+	/**
+	 * Renders every job of a job file, one job per line. Blank lines and lines starting with {@code #} are ignored.
+	 * Invalid or failing jobs are reported and skipped.
+	 *
+	 * @param jobReader reader of the job file
+	 * @throws IOException if an I/O error occurs while reading the job file
+	 * @throws InterruptedException if the current thread is interrupted while waiting for memory or for job slots
+	 * @since 0.0.2
+	 */
+	public void run(BufferedReader jobReader) throws IOException, InterruptedException {
+
+		// renders are independent of the fractal settings, so each computing method has a single fractal
+		var fractals = new EnumMap<ComputingMethod, MandelbrotFractal>(ComputingMethod.class);
+		var idleWorkers = new Semaphore(workerCount);
+		var writer = newVirtualThreadPerTaskExecutor();
+
+		try {
+
+			String line;
+			var lineNumber = 0;
+
+			while ((line = jobReader.readLine()) != null) {
+
+				lineNumber++;
+
+				if (!line.isBlank() && !line.strip().startsWith("#")) {
+
+					try {
+
+						var job = RenderJob.parse(line);
+						idleWorkers.acquire();
+
+						try {
+
+							var acquiredMemory = memoryBudget.acquire(job.getImageSize());
+
+							render(job, fractals, writer).whenComplete((ignored, exception) -> {
+
+								memoryBudget.release(acquiredMemory);
+								idleWorkers.release();
+							});
+
+						} catch (InterruptedException interruptedException) {
+
+							idleWorkers.release();
+							throw interruptedException;
+						}
+
+					} catch (IllegalArgumentException illegalArgumentException) {
+
+						failedJobCount.incrementAndGet();
+						System.err.printf("Invalid job at line %d: %s.%n", lineNumber,
+								illegalArgumentException.getMessage());
+					}
+				}
+			}
+
+		} finally {
+
+			// every job slot is idle once the running jobs are written
+			idleWorkers.acquireUninterruptibly(workerCount);
+			writer.close();
+			fractals.values().forEach(MandelbrotFractal::release);
+		}
+	}
+
+	/**
+	 * Starts rendering a job, then writes its image and reports it.
+	 *
+	 * @param job job to render
+	 * @param fractals fractals by computing method, completed if the job needs a new one
+	 * @param writer executor writing the image
+	 * @return future completed once the job is written or has failed
+	 * @since 0.0.2
+	 */
+	private CompletableFuture<Void> render(RenderJob job, Map<ComputingMethod, MandelbrotFractal> fractals,
+			Executor writer) {
+
+		var start = now();
+		CompletableFuture<BufferedImage> image;
+
+		try {
+
+			var fractal = fractals.computeIfAbsent(job.method(), method -> method.create(-2.0, 0.6, -1.3, 1.3, 2));
+
+			var request = new RenderRequest(job.minX(), job.maxX(), job.minY(), job.maxY(), job.width(),
+					job.height(), job.iterations(), false, 1, null, BATCH);
+
+			image = fractal.render(request, null, renderService);
+
+		} catch (RuntimeException exception) {
+
+			image = failedFuture(exception);
+		}
+
+		return image.thenAcceptAsync(renderedImage -> write(renderedImage, job), writer).whenComplete(
+				(ignored, exception) -> {
+
+					if (exception == null) {
+
+						completedJobCount.incrementAndGet();
+						var duration = Duration.between(start, now());
+						IO.println(String.format("%s (%d ms)", job.output(), duration.toMillis()));
+
+					} else {
+
+						var cause = exception instanceof CompletionException ? exception.getCause() : exception;
+						failedJobCount.incrementAndGet();
+						System.err.printf("Job error for %s: %s.%n", job.output(), cause.getMessage());
+					}
+				});
+	}
+
+	/**
+	 * @param image rendered image
+	 * @param job rendered job
+	 * @throws UncheckedIOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private static void write(BufferedImage image, RenderJob job) {
+
+		try {
+			ImageIO.write(image, "png", job.output().toFile());
+		} catch (IOException ioException) {
+			throw new UncheckedIOException(ioException);
+		}
+	}
+
+	/**
+	 * @return number of jobs rendered and written
+	 * @since 0.0.2
+	 */
+	public int getCompletedJobCount() {
+		return completedJobCount.get();
+	}
+
+	/**
+	 * @return number of invalid or failed jobs
+	 * @since 0.0.2
+	 */
+	public int getFailedJobCount() {
+		return failedJobCount.get();
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.achaaab.mandelbrot.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.time.Instant.now;
+
+/**
+ * Headless application rendering the images described by a job file, several at a time, with a bounded memory.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotBatch {
+
+	/// Entry point of the batch renderer.
+	///
+	/// @param arguments
+	///     0. job file, one job per line: `method width height iterations output minX maxX minY maxY`
+	///     1. optional number of jobs rendered at the same time (number of processors by default)
+	///     2. optional memory budget of the images in mebibytes (512 by default)
+	/// @throws IOException if an I/O error occurs while reading the job file
+	/// @throws InterruptedException if the application is interrupted
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException, InterruptedException {
+
+		var jobFile = Path.of(arguments[0]);
+
+		var workerCount = arguments.length > 1 ?
+				parseInt(arguments[1]) :
+				Runtime.getRuntime().availableProcessors();
+
+		var memoryBudget = arguments.length > 2 ? parseLong(arguments[2]) : 512;
+		var renderer = new BatchRenderer(workerCount, memoryBudget << 20);
+
+		try (var jobReader = Files.newBufferedReader(jobFile)) {
+
+			var start = now();
+			renderer.run(jobReader);
+			var duration = Duration.between(start, now());
+
+			IO.println(String.format("%d jobs completed, %d failed (%.1fs)",
+					renderer.getCompletedJobCount(), renderer.getFailedJobCount(), duration.toMillis() / 1000.0));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.achaaab.mandelbrot.batch;
+
+import static java.lang.Math.min;
+
+/**
+ * Number of bytes that can be allocated, shared by concurrent jobs. Acquiring bytes blocks until enough bytes are
+ * released, so that the acquiring thread is slowed down to the pace of the releasing threads.
+ * This class is thread-safe.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class MemoryBudget {
+
+	private final long capacity;
+
+	private long available;
+
+	/**
+	 * Creates a new memory budget, fully available.
+	 *
+	 * @param capacity number of bytes of the budget
+	 * @since 0.0.2
+	 */
+	public MemoryBudget(long capacity) {
+
+		this.capacity = capacity;
+
+		available = capacity;
+	}
+
+	/**
+	 * Waits until the requested number of bytes is available, then acquires it. A request larger than the capacity
+	 * is reduced to the capacity, so that it waits for the whole budget instead of waiting forever.
+	 *
+	 * @param bytes number of bytes to acquire
+	 * @return number of bytes acquired, to release later
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 * @since 0.0.2
+	 */
+	public synchronized long acquire(long bytes) throws InterruptedException {
+
+		var acquired = min(bytes, capacity);
+
+		while (available < acquired) {
+			wait();
+		}
+
+		available -= acquired;
+		return acquired;
+	}
+
+	/**
+	 * @param bytes number of bytes to release, as returned by {@link #acquire(long)}
+	 * @since 0.0.2
+	 */
+	public synchronized void release(long bytes) {
+
+		available += bytes;
+		notifyAll();
+	}
+}
@@ -0,0 +1,64 @@
+package com.github.achaaab.mandelbrot.batch;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+
+import java.nio.file.Path;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+/**
+ * Rendering of a single image, as described by a line of a job file:
+ * {@code method width height iterations output minX maxX minY maxY}.
+ *
+ * @param method computing method
+ * @param width image width in pixels
+ * @param height image height in pixels
+ * @param iterations maximum number of iterations
+ * @param output output PNG file
+ * @param minX minimum x
+ * @param maxX maximum x
+ * @param minY minimum y
+ * @param maxY maximum y
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public record RenderJob(ComputingMethod method, int width, int height, int iterations, Path output,
+		double minX, double maxX, double minY, double maxY) {
+
+	/**
+	 * Parses a line of a job file, whose fields are separated by whitespaces.
+	 *
+	 * @param line line to parse
+	 * @return parsed job
+	 * @throws IllegalArgumentException if the line is not a valid job
+	 * @since 0.0.2
+	 */
+	public static RenderJob parse(String line) {
+
+		var fields = line.trim().split("\\s+");
+
+		if (fields.length != 9) {
+			throw new IllegalArgumentException("9 fields expected: " + line);
+		}
+
+		return new RenderJob(
+				ComputingMethod.valueOf(fields[0]),
+				parseInt(fields[1]),
+				parseInt(fields[2]),
+				parseInt(fields[3]),
+				Path.of(fields[4]),
+				parseDouble(fields[5]),
+				parseDouble(fields[6]),
+				parseDouble(fields[7]),
+				parseDouble(fields[8]));
+	}
+
+	/**
+	 * @return number of bytes of the image buffer of this job
+	 * @since 0.0.2
+	 */
+	public long getImageSize() {
+		return (long) width * height * Integer.BYTES;
+	}
+}
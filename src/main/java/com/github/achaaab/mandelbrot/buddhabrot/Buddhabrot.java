@@ -0,0 +1,402 @@
+package com.github.achaaab.mandelbrot.buddhabrot;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+import com.github.achaaab.mandelbrot.MandelbrotFractalCpu;
+import com.github.achaaab.mandelbrot.fractal.Fractal;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.achaaab.mandelbrot.MandelbrotInterior.isInMainComponents;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Buddhabrot: density of the orbits of escaping points {@code c} under {@code z = z² + c}, or anti-Buddhabrot:
+ * density of the orbits of points that do not escape. Orbits are sampled at random and accumulated progressively,
+ * so that the density image converges as samples are added.
+ *
+ * <p>Each worker accumulates into its own {@code int[]} histogram, merged into the shared density at the end of the
+ * call, so that the hot path has no synchronization.</p>
+ *
+ * <p>Samples are importance-weighted with a coarse Mandelbrot pre-pass over the sampling area: cells near the set
+ * boundary, whose orbits are long, are sampled more often than cells far from the set, and cells whose orbits cannot
+ * contribute (deep interior for the Buddhabrot, exterior for the anti-Buddhabrot) are not sampled. Each orbit is
+ * accumulated with a weight inversely proportional to the importance of its cell, so that the density is unbiased.
+ * Importances are powers of 2 dividing {@link #BOUNDARY_IMPORTANCE}, so that weights are integers.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class Buddhabrot extends Fractal {
+
+	/**
+	 * Minimum x and y of the sampling area, a square containing the Mandelbrot set.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double SAMPLING_MIN = -2.0;
+
+	/**
+	 * Width and height of the sampling area.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double SAMPLING_SIZE = 4.0;
+
+	/**
+	 * Number of cells per axis of the importance map.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int IMPORTANCE_GRID_SIZE = 512;
+
+	/**
+	 * Maximum number of iterations of the pre-pass, so that its cost does not grow with the orbit length.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int IMPORTANCE_MAX_ITERATIONS = 4096;
+
+	/**
+	 * Importance of cells touching the set boundary, sampled with a weight of 1.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int BOUNDARY_IMPORTANCE = 16;
+
+	/**
+	 * Importance of exterior cells whose neighbourhood escapes after at least {@link #NEAR_ITERATIONS} iterations.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int NEAR_IMPORTANCE = 4;
+
+	/**
+	 * Importance of other exterior cells, whose orbits are short.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int FAR_IMPORTANCE = 1;
+
+	/**
+	 * Minimum number of iterations of the neighbourhood of a cell, for the cell to be near the set.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int NEAR_ITERATIONS = 16;
+
+	private static final double BAILOUT = 4.0;
+
+	private int iterations;
+	private boolean anti;
+
+	private int[] cellImportances;
+	private long[] cumulativeImportances;
+	private int importanceIterations;
+	private boolean importanceAnti;
+
+	private int imageWidth;
+	private int imageHeight;
+	private double viewMinX;
+	private double viewMaxY;
+	private double inverseScaleX;
+	private double inverseScaleY;
+	private long[] density;
+	private long sampleCount;
+
+	/**
+	 * Creates a new Buddhabrot.
+	 *
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param iterations maximum length of accumulated orbits
+	 * @since 0.0.2
+	 */
+	public Buddhabrot(double minX, double maxX, double minY, double maxY, int iterations) {
+
+		super(minX, maxX, minY, maxY);
+
+		setIterations(iterations);
+	}
+
+	/**
+	 * Clears the accumulated density and starts a new accumulation for the current bounds, iterations and mode.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @since 0.0.2
+	 */
+	public void reset(int width, int height) {
+
+		if (density == null || imageWidth != width || imageHeight != height) {
+			density = new long[width * height];
+		} else {
+			Arrays.fill(density, 0);
+		}
+
+		imageWidth = width;
+		imageHeight = height;
+		viewMinX = getMinX();
+		viewMaxY = getMaxY();
+		inverseScaleX = width / getWidth();
+		inverseScaleY = height / getHeight();
+		sampleCount = 0;
+
+		if (cellImportances == null || importanceIterations != iterations || importanceAnti != anti) {
+			computeImportances();
+		}
+	}
+
+	/**
+	 * Samples orbits and adds them to the accumulated density. {@link #reset(int, int)} must have been called first.
+	 *
+	 * @param count number of orbits to sample
+	 * @since 0.0.2
+	 */
+	public void sample(long count) {
+
+		var workerCount = Runtime.getRuntime().availableProcessors();
+
+		range(0, workerCount).parallel().forEach(worker ->
+				sampleWorker(count / workerCount + (worker < count % workerCount ? 1 : 0)));
+
+		sampleCount += count;
+	}
+
+	/**
+	 * Samples orbits into a histogram of the current worker, merged into the density whenever its counts could
+	 * overflow, and at the end.
+	 *
+	 * @param count number of orbits to sample
+	 * @since 0.0.2
+	 */
+	private void sampleWorker(long count) {
+
+		var random = ThreadLocalRandom.current();
+		var histogram = new int[imageWidth * imageHeight];
+		var orbitX = new double[iterations];
+		var orbitY = new double[iterations];
+
+		var cellSize = SAMPLING_SIZE / IMPORTANCE_GRID_SIZE;
+		var totalImportance = cumulativeImportances[cumulativeImportances.length - 1];
+
+		// a single orbit adds at most iterations x weight to a histogram count
+		var mergeThreshold = Integer.MAX_VALUE - (long) iterations * BOUNDARY_IMPORTANCE;
+		var histogramTotal = 0L;
+
+		for (var sample = 0L; sample < count; sample++) {
+
+			var cell = Arrays.binarySearch(cumulativeImportances, random.nextLong(totalImportance) + 1);
+			cell = cell < 0 ? -cell - 1 : cell;
+
+			// the first cell with the given cumulative importance, skipping cells of importance 0
+			while (cellImportances[cell] == 0) {
+				cell--;
+			}
+
+			var x0 = SAMPLING_MIN + (cell % IMPORTANCE_GRID_SIZE + random.nextDouble()) * cellSize;
+			var y0 = SAMPLING_MIN + SAMPLING_SIZE - (cell / IMPORTANCE_GRID_SIZE + random.nextDouble()) * cellSize;
+
+			if (!anti && isInMainComponents(x0, y0)) {
+				continue;
+			}
+
+			var x = 0.0;
+			var y = 0.0;
+			var xx = 0.0;
+			var yy = 0.0;
+			var length = 0;
+
+			while (length < iterations && xx + yy <= BAILOUT) {
+
+				y = (x + x) * y + y0;
+				x = xx - yy + x0;
+				xx = x * x;
+				yy = y * y;
+
+				orbitX[length] = x;
+				orbitY[length] = y;
+				length++;
+			}
+
+			if (xx + yy > BAILOUT != anti) {
+
+				var weight = BOUNDARY_IMPORTANCE / cellImportances[cell];
+
+				for (var point = 0; point < length; point++) {
+
+					var u = (orbitX[point] - viewMinX) * inverseScaleX;
+					var v = (viewMaxY - orbitY[point]) * inverseScaleY;
+
+					// compared before truncation, which rounds toward 0
+					if (u >= 0 && u < imageWidth && v >= 0 && v < imageHeight) {
+						histogram[(int) v * imageWidth + (int) u] += weight;
+					}
+				}
+
+				histogramTotal += (long) length * weight;
+
+				if (histogramTotal > mergeThreshold) {
+
+					merge(histogram);
+					Arrays.fill(histogram, 0);
+					histogramTotal = 0;
+				}
+			}
+		}
+
+		merge(histogram);
+	}
+
+	/**
+	 * @param histogram histogram of a worker to add to the density
+	 * @since 0.0.2
+	 */
+	private void merge(int[] histogram) {
+
+		synchronized (density) {
+
+			for (var pixelIndex = 0; pixelIndex < histogram.length; pixelIndex++) {
+				density[pixelIndex] += histogram[pixelIndex];
+			}
+		}
+	}
+
+	/**
+	 * Classifies the cells of the sampling area with a coarse Mandelbrot pre-pass, and computes their cumulative
+	 * importances.
+	 *
+	 * @since 0.0.2
+	 */
+	private void computeImportances() {
+
+		var prepassIterations = min(iterations, IMPORTANCE_MAX_ITERATIONS);
+		var samplingMax = SAMPLING_MIN + SAMPLING_SIZE;
+
+		var prepass = new MandelbrotFractalCpu(SAMPLING_MIN, samplingMax, SAMPLING_MIN, samplingMax, prepassIterations);
+		var grid = new IterationImage(IMPORTANCE_GRID_SIZE, IMPORTANCE_GRID_SIZE, false);
+		prepass.compute(grid);
+
+		var gridIterations = grid.getIterations();
+		var cellCount = IMPORTANCE_GRID_SIZE * IMPORTANCE_GRID_SIZE;
+
+		cellImportances = new int[cellCount];
+		cumulativeImportances = new long[cellCount];
+
+		var cumulativeImportance = 0L;
+
+		for (var cell = 0; cell < cellCount; cell++) {
+
+			var column = cell % IMPORTANCE_GRID_SIZE;
+			var row = cell / IMPORTANCE_GRID_SIZE;
+			var interiorCount = 0;
+			var neighbourCount = 0;
+			var maxEscape = 0;
+
+			for (var neighbourRow = max(row - 1, 0); neighbourRow <= min(row + 1, IMPORTANCE_GRID_SIZE - 1);
+					neighbourRow++) {
+
+				for (var neighbourColumn = max(column - 1, 0);
+						neighbourColumn <= min(column + 1, IMPORTANCE_GRID_SIZE - 1); neighbourColumn++) {
+
+					var iteration = gridIterations[neighbourRow * IMPORTANCE_GRID_SIZE + neighbourColumn];
+
+					if (iteration == prepassIterations) {
+						interiorCount++;
+					} else {
+						maxEscape = max(maxEscape, iteration);
+					}
+
+					neighbourCount++;
+				}
+			}
+
+			int importance;
+
+			if (interiorCount == neighbourCount) {
+				importance = anti ? BOUNDARY_IMPORTANCE : 0;
+			} else if (interiorCount > 0) {
+				importance = BOUNDARY_IMPORTANCE;
+			} else if (anti) {
+				importance = 0;
+			} else if (maxEscape >= NEAR_ITERATIONS) {
+				importance = NEAR_IMPORTANCE;
+			} else {
+				importance = FAR_IMPORTANCE;
+			}
+
+			cellImportances[cell] = importance;
+			cumulativeImportance += importance;
+			cumulativeImportances[cell] = cumulativeImportance;
+		}
+
+		importanceIterations = iterations;
+		importanceAnti = anti;
+	}
+
+	/**
+	 * Maps the accumulated density to gray levels, with a square root so that faint orbits remain visible.
+	 *
+	 * @param image image in which to write the gray levels, of the size given to {@link #reset(int, int)}
+	 * @since 0.0.2
+	 */
+	public void colorize(BufferedImage image) {
+
+		var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		var maxDensity = Arrays.stream(density).max().orElse(0);
+		var scale = maxDensity == 0 ? 0.0 : 255.0 / sqrt(maxDensity);
+
+		range(0, density.length).parallel().forEach(pixelIndex -> {
+
+			var level = (int) (sqrt(density[pixelIndex]) * scale);
+			rgb[pixelIndex] = level << 16 | level << 8 | level;
+		});
+	}
+
+	/**
+	 * @return maximum length of accumulated orbits
+	 * @since 0.0.2
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @param iterations maximum length of accumulated orbits
+	 * @since 0.0.2
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = max(iterations, 2);
+	}
+
+	/**
+	 * @return whether the orbits of points that do not escape are accumulated instead of escaping ones
+	 * @since 0.0.2
+	 */
+	public boolean isAnti() {
+		return anti;
+	}
+
+	/**
+	 * @param anti whether the orbits of points that do not escape are accumulated instead of escaping ones
+	 * @since 0.0.2
+	 */
+	public void setAnti(boolean anti) {
+		this.anti = anti;
+	}
+
+	/**
+	 * @return number of orbits sampled since the last reset
+	 * @since 0.0.2
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+}
@@ -0,0 +1,52 @@
+package com.github.achaaab.mandelbrot.buddhabrot;
+
+import com.github.achaaab.mandelbrot.fractal.FractalView;
+
+import javax.swing.JFrame;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static javax.swing.SwingUtilities.invokeLater;
+import static javax.swing.WindowConstants.EXIT_ON_CLOSE;
+
+/**
+ * Simple desktop application drawing the Buddhabrot progressively.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class BuddhabrotApplication {
+
+	/// Entry point of the application. Creates and show a Buddhabrot GUI.
+	///
+	/// @param arguments
+	///     0. optional maximum orbit length (1024 by default)
+	///     1. optional number of samples after which the accumulation stops (1 billion by default)
+	/// @since 0.0.2
+	///
+	void main(String... arguments) {
+
+		invokeLater(() -> {
+
+			var iterations = arguments.length > 0 ? parseInt(arguments[0]) : 1024;
+			var sampleTarget = arguments.length > 1 ? parseLong(arguments[1]) : 1_000_000_000L;
+			var viewWidth = 1024;
+			var viewHeight = 1024;
+
+			var view = new FractalView(viewWidth, viewHeight);
+			view.setMessageDisplayed(true);
+
+			var fractal = new Buddhabrot(-2.0, 1.0, -1.5, 1.5, iterations);
+
+			var controller = new BuddhabrotController(fractal, view, sampleTarget);
+			controller.requestUpdate();
+
+			var frame = new JFrame("Buddhabrot rendering");
+			frame.setDefaultCloseOperation(EXIT_ON_CLOSE);
+			frame.setContentPane(view);
+			frame.pack();
+			frame.setResizable(false);
+			frame.setVisible(true);
+		});
+	}
+}
@@ -0,0 +1,139 @@
+package com.github.achaaab.mandelbrot.buddhabrot;
+
+import com.github.achaaab.mandelbrot.fractal.FractalController;
+import com.github.achaaab.mandelbrot.fractal.FractalView;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseWheelEvent;
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.achaaab.mandelbrot.util.Utilities.time;
+import static java.lang.Math.min;
+
+/**
+ * Progressive Buddhabrot controller: each update adds a batch of samples to the accumulated density and displays it,
+ * then requests the next update until the sample target is reached. Moving the view or changing settings restarts
+ * the accumulation. Shift + mouse wheel rotation doubles or halves the maximum orbit length, and the B key toggles
+ * the anti-Buddhabrot.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class BuddhabrotController extends FractalController<Buddhabrot> implements KeyListener {
+
+	/**
+	 * Number of samples added by each update.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final long BATCH_SAMPLE_COUNT = 1 << 20;
+
+	private final long sampleTarget;
+
+	private List<Object> accumulatedSettings;
+	private Duration accumulationDuration;
+
+	/**
+	 * Creates a new Buddhabrot controller.
+	 *
+	 * @param fractal Buddhabrot
+	 * @param view fractal view
+	 * @param sampleTarget number of samples after which the accumulation stops
+	 * @since 0.0.2
+	 */
+	public BuddhabrotController(Buddhabrot fractal, FractalView view, long sampleTarget) {
+
+		super(fractal, view);
+
+		this.sampleTarget = sampleTarget;
+
+		view.addKeyListener(this);
+	}
+
+	@Override
+	public void keyPressed(KeyEvent event) {
+
+		if (event.getKeyCode() == KeyEvent.VK_B) {
+
+			fractal.setAnti(!fractal.isAnti());
+			requestUpdate();
+		}
+	}
+
+	@Override
+	public void keyReleased(KeyEvent event) {
+
+	}
+
+	@Override
+	public void keyTyped(KeyEvent event) {
+
+	}
+
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent event) {
+
+		if (event.isShiftDown()) {
+
+			var iterations = fractal.getIterations();
+
+			fractal.setIterations(event.getWheelRotation() < 0 ? iterations * 2 : iterations / 2);
+			requestUpdate();
+
+		} else {
+
+			super.mouseWheelMoved(event);
+		}
+	}
+
+	@Override
+	protected void update() {
+
+		var image = view.getImage();
+
+		var settings = List.<Object>of(
+				fractal.getMinX(), fractal.getMaxX(), fractal.getMinY(), fractal.getMaxY(),
+				fractal.getIterations(), fractal.isAnti());
+
+		if (!settings.equals(accumulatedSettings)) {
+
+			fractal.reset(image.getWidth(), image.getHeight());
+			accumulatedSettings = settings;
+			accumulationDuration = Duration.ZERO;
+		}
+
+		var remainingSampleCount = sampleTarget - fractal.getSampleCount();
+
+		if (remainingSampleCount > 0) {
+
+			var batchDuration = time(() -> {
+
+				fractal.sample(min(BATCH_SAMPLE_COUNT, remainingSampleCount));
+				fractal.colorize(image);
+			});
+
+			accumulationDuration = accumulationDuration.plus(batchDuration);
+		}
+
+		update(getBuddhabrotMessage());
+
+		if (fractal.getSampleCount() < sampleTarget) {
+			requestUpdate();
+		}
+	}
+
+	/**
+	 * @return message with the accumulation progress
+	 * @since 0.0.2
+	 */
+	private String getBuddhabrotMessage() {
+
+		return getMessage() + String.format("    %d iterations    %s    %,d samples (%.1fs)",
+				fractal.getIterations(),
+				fractal.isAnti() ? "anti-Buddhabrot" : "Buddhabrot",
+				fractal.getSampleCount(),
+				accumulationDuration.toMillis() / 1000.0);
+	}
+}
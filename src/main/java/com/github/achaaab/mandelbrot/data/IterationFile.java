@@ -0,0 +1,298 @@
+package com.github.achaaab.mandelbrot.data;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+import com.github.achaaab.mandelbrot.IterationImage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT_UNALIGNED;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Raw result of a Mandelbrot rendering, before coloring, stored in a memory-mapped file. It can be recolored,
+ * cropped or downsampled without computing the fractal again.
+ *
+ * <p>Rows are grouped in blocks, compressed independently so that any region can be read by decoding only the blocks
+ * it covers. File layout, all values being big-endian:</p>
+ * <ul>
+ *   <li>0: magic number {@code MANDITER}</li>
+ *   <li>8: format version</li>
+ *   <li>12: flags, bit 0 being set if fractions are stored</li>
+ *   <li>16: image width in pixels</li>
+ *   <li>20: image height in pixels</li>
+ *   <li>24: maximum number of iterations</li>
+ *   <li>28: ordinal of the computing method, -1 if unknown</li>
+ *   <li>32: block height in rows</li>
+ *   <li>36: block count</li>
+ *   <li>40: minimum x, maximum x, minimum y, maximum y</li>
+ *   <li>72: reserved</li>
+ *   <li>80: {@code blockCount + 1} offsets of blocks, the last one being the end of the last block</li>
+ *   <li>then the blocks: iteration counts row by row from top to bottom, each being the zigzag varint of its
+ *   difference with the previous pixel of the block, followed, if fractions are stored, by fractions quantized
+ *   to 16 bits unsigned integers</li>
+ * </ul>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class IterationFile implements AutoCloseable {
+
+	static final long MAGIC = 0x4D414E44_49544552L;
+	static final int VERSION = 1;
+	static final int FLAG_SMOOTH = 1;
+	static final long HEADER_SIZE = 80;
+	static final int BLOCK_HEIGHT = 16;
+
+	private static final float QUANTIZATION_SCALE = 0xFFFF;
+
+	private static final ValueLayout.OfLong LONG_LAYOUT = JAVA_LONG_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfInt INT_LAYOUT = JAVA_INT_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfShort SHORT_LAYOUT = JAVA_SHORT_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfDouble DOUBLE_LAYOUT = JAVA_DOUBLE_UNALIGNED.withOrder(BIG_ENDIAN);
+
+	/**
+	 * @param fraction fraction of a normalized iteration count
+	 * @return fraction quantized to a 16 bits unsigned integer
+	 * @since 0.0.2
+	 */
+	static int quantize(float fraction) {
+		return round(min(max(fraction, 0.0f), 1.0f) * QUANTIZATION_SCALE);
+	}
+
+	/**
+	 * @param value fraction quantized to a 16 bits unsigned integer
+	 * @return fraction of a normalized iteration count
+	 * @since 0.0.2
+	 */
+	static float dequantize(short value) {
+		return (value & 0xFFFF) / QUANTIZATION_SCALE;
+	}
+
+	private final FileChannel channel;
+	private final Arena arena;
+	private final MemorySegment segment;
+	private final boolean smooth;
+	private final int width;
+	private final int height;
+	private final int iterations;
+	private final ComputingMethod method;
+	private final int blockHeight;
+	private final double minX;
+	private final double maxX;
+	private final double minY;
+	private final double maxY;
+
+	/**
+	 * Opens an existing iteration file for reading.
+	 *
+	 * @param path path of the iteration file
+	 * @throws IOException if an I/O error occurs or if the file is not a complete iteration file
+	 * @since 0.0.2
+	 */
+	public IterationFile(Path path) throws IOException {
+
+		channel = FileChannel.open(path, READ);
+		arena = Arena.ofShared();
+
+		try {
+
+			segment = channel.map(READ_ONLY, 0, channel.size(), arena);
+
+			if (segment.byteSize() < HEADER_SIZE || segment.get(LONG_LAYOUT, 0) != MAGIC) {
+				throw new IOException("not a complete iteration file: " + path);
+			}
+
+			var version = segment.get(INT_LAYOUT, 8);
+
+			if (version != VERSION) {
+				throw new IOException("unsupported iteration file version: " + version);
+			}
+
+			var methodOrdinal = segment.get(INT_LAYOUT, 28);
+
+			smooth = (segment.get(INT_LAYOUT, 12) & FLAG_SMOOTH) != 0;
+			width = segment.get(INT_LAYOUT, 16);
+			height = segment.get(INT_LAYOUT, 20);
+			iterations = segment.get(INT_LAYOUT, 24);
+			method = methodOrdinal < 0 ? null : ComputingMethod.values()[methodOrdinal];
+			blockHeight = segment.get(INT_LAYOUT, 32);
+			minX = segment.get(DOUBLE_LAYOUT, 40);
+			maxX = segment.get(DOUBLE_LAYOUT, 48);
+			minY = segment.get(DOUBLE_LAYOUT, 56);
+			maxY = segment.get(DOUBLE_LAYOUT, 64);
+
+		} catch (IOException | RuntimeException exception) {
+
+			close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Reads a region of the image, keeping 1 pixel out of {@code step} in both directions. Only the blocks covering
+	 * the region are decoded.
+	 *
+	 * @param x left pixel column of the region
+	 * @param y top pixel row of the region
+	 * @param regionWidth width of the region in pixels
+	 * @param regionHeight height of the region in pixels
+	 * @param step sampling step, 1 to read every pixel
+	 * @return iteration image of {@code ceil(regionWidth / step) x ceil(regionHeight / step)} pixels, smooth if
+	 * this file stores fractions
+	 * @since 0.0.2
+	 */
+	public IterationImage read(int x, int y, int regionWidth, int regionHeight, int step) {
+
+		if (x < 0 || y < 0 || regionWidth <= 0 || regionHeight <= 0 || step <= 0 ||
+				x + regionWidth > width || y + regionHeight > height) {
+
+			throw new IllegalArgumentException("invalid region");
+		}
+
+		var imageWidth = (regionWidth + step - 1) / step;
+		var imageHeight = (regionHeight + step - 1) / step;
+		var image = new IterationImage(imageWidth, imageHeight, smooth);
+		var imageIterations = image.getIterations();
+		var imageFractions = image.getFractions();
+
+		var blockIterations = new int[blockHeight * width];
+		var blockFractions = smooth ? new float[blockHeight * width] : null;
+		var decodedBlock = -1;
+
+		for (var imageRow = 0; imageRow < imageHeight; imageRow++) {
+
+			var row = y + imageRow * step;
+			var block = row / blockHeight;
+
+			if (block != decodedBlock) {
+
+				decodeBlock(block, blockIterations, blockFractions);
+				decodedBlock = block;
+			}
+
+			var blockOffset = (row - block * blockHeight) * width + x;
+			var imageOffset = imageRow * imageWidth;
+
+			for (var imageColumn = 0; imageColumn < imageWidth; imageColumn++) {
+
+				var blockIndex = blockOffset + imageColumn * step;
+				imageIterations[imageOffset + imageColumn] = blockIterations[blockIndex];
+
+				if (smooth) {
+					imageFractions[imageOffset + imageColumn] = blockFractions[blockIndex];
+				}
+			}
+		}
+
+		image.setMaxIterations(iterations);
+		return image;
+	}
+
+	/**
+	 * @param block index of the block to decode
+	 * @param blockIterations array in which to store the iteration counts of the block
+	 * @param blockFractions array in which to store the fractions of the block, {@code null} if not smooth
+	 * @since 0.0.2
+	 */
+	private void decodeBlock(int block, int[] blockIterations, float[] blockFractions) {
+
+		var offset = segment.get(LONG_LAYOUT, HEADER_SIZE + (long) block * Long.BYTES);
+		var pixelCount = min(blockHeight, height - block * blockHeight) * width;
+		var previous = 0;
+
+		for (var pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+
+			var zigzag = 0;
+			var shift = 0;
+			byte value;
+
+			do {
+
+				value = segment.get(JAVA_BYTE, offset++);
+				zigzag |= (value & 0x7F) << shift;
+				shift += 7;
+
+			} while (value < 0);
+
+			previous += zigzag >>> 1 ^ -(zigzag & 1);
+			blockIterations[pixelIndex] = previous;
+		}
+
+		if (blockFractions != null) {
+
+			for (var pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+
+				blockFractions[pixelIndex] = dequantize(segment.get(SHORT_LAYOUT, offset));
+				offset += Short.BYTES;
+			}
+		}
+	}
+
+	/**
+	 * @return whether fractions of normalized iteration counts are stored
+	 * @since 0.0.2
+	 */
+	public boolean isSmooth() {
+		return smooth;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return method used to compute the iterations, {@code null} if unknown
+	 * @since 0.0.2
+	 */
+	public ComputingMethod getMethod() {
+		return method;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		try {
+			arena.close();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.github.achaaab.mandelbrot.data;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+import com.github.achaaab.mandelbrot.IterationImage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static com.github.achaaab.mandelbrot.data.IterationFile.BLOCK_HEIGHT;
+import static com.github.achaaab.mandelbrot.data.IterationFile.FLAG_SMOOTH;
+import static com.github.achaaab.mandelbrot.data.IterationFile.HEADER_SIZE;
+import static com.github.achaaab.mandelbrot.data.IterationFile.MAGIC;
+import static com.github.achaaab.mandelbrot.data.IterationFile.VERSION;
+import static com.github.achaaab.mandelbrot.data.IterationFile.quantize;
+import static java.lang.Math.min;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes an {@link IterationFile} strip by strip, so that the whole iteration image is never held in memory.
+ * Blocks have variable sizes, so they are appended sequentially, then the header and the block index are written
+ * when the writer is closed. An interrupted file has no magic number and is rejected by the reader.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class IterationFileWriter implements AutoCloseable {
+
+	private final FileChannel channel;
+	private final int width;
+	private final int height;
+	private final boolean smooth;
+	private final int iterations;
+	private final ComputingMethod method;
+	private final double minX;
+	private final double maxX;
+	private final double minY;
+	private final double maxY;
+	private final long[] blockOffsets;
+	private final int[] blockIterations;
+	private final float[] blockFractions;
+	private final ByteBuffer blockBuffer;
+
+	private int writtenRowCount;
+	private int blockRowCount;
+	private int blockIndex;
+	private long position;
+
+	/**
+	 * Creates a new iteration file, replacing any existing file at the given path.
+	 *
+	 * @param path path of the iteration file
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param smooth whether to store fractions of normalized iteration counts
+	 * @param iterations maximum number of iterations
+	 * @param method method used to compute the iterations
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public IterationFileWriter(Path path, int width, int height, boolean smooth, int iterations,
+			ComputingMethod method, double minX, double maxX, double minY, double maxY) throws IOException {
+
+		this.width = width;
+		this.height = height;
+		this.smooth = smooth;
+		this.iterations = iterations;
+		this.method = method;
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minY = minY;
+		this.maxY = maxY;
+
+		channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING);
+
+		var blockCount = (height + BLOCK_HEIGHT - 1) / BLOCK_HEIGHT;
+		var blockPixelCount = BLOCK_HEIGHT * width;
+
+		blockOffsets = new long[blockCount + 1];
+		blockIterations = new int[blockPixelCount];
+		blockFractions = smooth ? new float[blockPixelCount] : null;
+
+		// worst case: 5 bytes per varint, 2 bytes per quantized fraction
+		blockBuffer = ByteBuffer.allocate(blockPixelCount * (smooth ? 7 : 5));
+
+		position = HEADER_SIZE + (long) blockOffsets.length * Long.BYTES;
+	}
+
+	/**
+	 * Appends consecutive rows, following the previously written ones.
+	 *
+	 * @param strip iteration image of full rows, smooth if this file is smooth
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public void write(IterationImage strip) throws IOException {
+
+		var stripIterations = strip.getIterations();
+		var stripFractions = strip.getFractions();
+		var stripHeight = strip.getHeight();
+		var stripRow = 0;
+
+		if (strip.getWidth() != width || writtenRowCount + stripHeight > height) {
+			throw new IllegalArgumentException("strip does not fit in the iteration file");
+		}
+
+		while (stripRow < stripHeight) {
+
+			var rowCount = min(stripHeight - stripRow, BLOCK_HEIGHT - blockRowCount);
+			var length = rowCount * width;
+
+			System.arraycopy(stripIterations, stripRow * width, blockIterations, blockRowCount * width, length);
+
+			if (smooth) {
+				System.arraycopy(stripFractions, stripRow * width, blockFractions, blockRowCount * width, length);
+			}
+
+			stripRow += rowCount;
+			blockRowCount += rowCount;
+			writtenRowCount += rowCount;
+
+			if (blockRowCount == BLOCK_HEIGHT || writtenRowCount == height) {
+				writeBlock();
+			}
+		}
+	}
+
+	/**
+	 * Encodes the pending block and appends it to the file. Each iteration count is stored as the zigzag varint of
+	 * its difference with the previous pixel in the block, so that the large uniform areas of a Mandelbrot image
+	 * take 1 byte per pixel. Fractions follow, quantized to 16 bits.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void writeBlock() throws IOException {
+
+		var pixelCount = blockRowCount * width;
+		var previous = 0;
+
+		blockBuffer.clear();
+
+		for (var pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+
+			var iteration = blockIterations[pixelIndex];
+			var delta = iteration - previous;
+			var zigzag = delta << 1 ^ delta >> 31;
+
+			while ((zigzag & ~0x7F) != 0) {
+
+				blockBuffer.put((byte) (zigzag & 0x7F | 0x80));
+				zigzag >>>= 7;
+			}
+
+			blockBuffer.put((byte) zigzag);
+			previous = iteration;
+		}
+
+		if (smooth) {
+
+			for (var pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+				blockBuffer.putShort((short) quantize(blockFractions[pixelIndex]));
+			}
+		}
+
+		blockBuffer.flip();
+		blockOffsets[blockIndex++] = position;
+
+		while (blockBuffer.hasRemaining()) {
+			position += channel.write(blockBuffer, position);
+		}
+
+		blockRowCount = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		try {
+
+			if (writtenRowCount != height) {
+				throw new IOException("incomplete iteration file: " + writtenRowCount + " rows of " + height);
+			}
+
+			blockOffsets[blockIndex] = position;
+
+			var index = ByteBuffer.allocate(blockOffsets.length * Long.BYTES);
+			index.asLongBuffer().put(blockOffsets);
+			channel.write(index, HEADER_SIZE);
+
+			// the header is written last, so that only complete files are readable
+			channel.force(false);
+
+			var header = ByteBuffer.allocate((int) HEADER_SIZE);
+
+			header.putLong(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(smooth ? FLAG_SMOOTH : 0);
+			header.putInt(width);
+			header.putInt(height);
+			header.putInt(iterations);
+			header.putInt(method == null ? -1 : method.ordinal());
+			header.putInt(BLOCK_HEIGHT);
+			header.putInt(blockIndex);
+			header.putDouble(minX);
+			header.putDouble(maxX);
+			header.putDouble(minY);
+			header.putDouble(maxY);
+			header.clear();
+
+			channel.write(header, 0);
+			channel.force(false);
+
+		} finally {
+
+			channel.close();
+		}
+	}
+}
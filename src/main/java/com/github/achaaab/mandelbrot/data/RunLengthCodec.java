@@ -0,0 +1,208 @@
+package com.github.achaaab.mandelbrot.data;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+
+import java.nio.ByteBuffer;
+
+import static com.github.achaaab.mandelbrot.data.IterationFile.dequantize;
+import static com.github.achaaab.mandelbrot.data.IterationFile.quantize;
+
+/**
+ * Delta and run-length coding of iteration images. Consecutive equal values are stored as a single run: its length
+ * and the difference with the value of the previous run, both as varints. Interior areas and bands of equal
+ * iteration counts, covering most of a Mandelbrot image, take a few bytes per run instead of a few bytes per pixel.
+ * Fractions, quantized to 16 bits, are coded the same way after the iteration counts.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public final class RunLengthCodec {
+
+	/**
+	 * @param pixelCount number of pixels
+	 * @param smooth whether fractions are coded
+	 * @return maximum number of bytes used to code the given number of pixels
+	 * @since 0.0.2
+	 */
+	public static int getMaxEncodedSize(int pixelCount, boolean smooth) {
+
+		// a run of a single pixel: 1 byte of length, at most 5 bytes of delta, or 3 for a quantized fraction
+		return pixelCount * (smooth ? 10 : 6);
+	}
+
+	/**
+	 * Codes an iteration image.
+	 *
+	 * @param image iteration image to code
+	 * @param buffer buffer in which to write the coded image, with at least {@link #getMaxEncodedSize} bytes
+	 * remaining
+	 * @since 0.0.2
+	 */
+	public static void encode(IterationImage image, ByteBuffer buffer) {
+
+		var iterations = image.getIterations();
+		var pixelCount = iterations.length;
+
+		encodeRuns(pixelCount, pixelIndex -> iterations[pixelIndex], buffer);
+
+		if (image.isSmooth()) {
+
+			var fractions = image.getFractions();
+			encodeRuns(pixelCount, pixelIndex -> quantize(fractions[pixelIndex]), buffer);
+		}
+	}
+
+	/**
+	 * Decodes an iteration image. The maximum number of iterations is not coded and must be set by the caller.
+	 *
+	 * @param buffer buffer from which to read the coded image
+	 * @param image iteration image to fill, of the coded size and smoothness
+	 * @since 0.0.2
+	 */
+	public static void decode(ByteBuffer buffer, IterationImage image) {
+
+		var iterations = image.getIterations();
+		var pixelCount = iterations.length;
+
+		decodeRuns(buffer, pixelCount, (pixelIndex, value) -> iterations[pixelIndex] = value);
+
+		if (image.isSmooth()) {
+
+			var fractions = image.getFractions();
+			decodeRuns(buffer, pixelCount, (pixelIndex, value) -> fractions[pixelIndex] = dequantize((short) value));
+		}
+	}
+
+	/**
+	 * @param pixelCount number of values
+	 * @param values values to code, by pixel index
+	 * @param buffer buffer in which to write the runs
+	 * @since 0.0.2
+	 */
+	private static void encodeRuns(int pixelCount, PixelValues values, ByteBuffer buffer) {
+
+		var previousValue = 0;
+		var pixelIndex = 0;
+
+		while (pixelIndex < pixelCount) {
+
+			var value = values.get(pixelIndex);
+			var runEnd = pixelIndex + 1;
+
+			while (runEnd < pixelCount && values.get(runEnd) == value) {
+				runEnd++;
+			}
+
+			var delta = value - previousValue;
+
+			putVarint(buffer, runEnd - pixelIndex);
+			putVarint(buffer, delta << 1 ^ delta >> 31);
+
+			previousValue = value;
+			pixelIndex = runEnd;
+		}
+	}
+
+	/**
+	 * @param buffer buffer from which to read the runs
+	 * @param pixelCount number of values
+	 * @param values consumer of the decoded values, by pixel index
+	 * @since 0.0.2
+	 */
+	private static void decodeRuns(ByteBuffer buffer, int pixelCount, PixelConsumer values) {
+
+		var value = 0;
+		var pixelIndex = 0;
+
+		while (pixelIndex < pixelCount) {
+
+			var runEnd = pixelIndex + getVarint(buffer);
+			var zigzag = getVarint(buffer);
+
+			value += zigzag >>> 1 ^ -(zigzag & 1);
+
+			while (pixelIndex < runEnd) {
+				values.accept(pixelIndex++, value);
+			}
+		}
+	}
+
+	/**
+	 * @param buffer buffer in which to write
+	 * @param value unsigned value to write, on 1 to 5 bytes
+	 * @since 0.0.2
+	 */
+	private static void putVarint(ByteBuffer buffer, int value) {
+
+		while ((value & ~0x7F) != 0) {
+
+			buffer.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * @param buffer buffer from which to read
+	 * @return read unsigned value
+	 * @since 0.0.2
+	 */
+	private static int getVarint(ByteBuffer buffer) {
+
+		var value = 0;
+		var shift = 0;
+		byte octet;
+
+		do {
+
+			octet = buffer.get();
+			value |= (octet & 0x7F) << shift;
+			shift += 7;
+
+		} while (octet < 0);
+
+		return value;
+	}
+
+	/**
+	 * Values of pixels, by pixel index.
+	 *
+	 * @since 0.0.2
+	 */
+	@FunctionalInterface
+	private interface PixelValues {
+
+		/**
+		 * @param pixelIndex pixel index
+		 * @return value of the pixel
+		 * @since 0.0.2
+		 */
+		int get(int pixelIndex);
+	}
+
+	/**
+	 * Consumer of decoded pixel values.
+	 *
+	 * @since 0.0.2
+	 */
+	@FunctionalInterface
+	private interface PixelConsumer {
+
+		/**
+		 * @param pixelIndex pixel index
+		 * @param value value of the pixel
+		 * @since 0.0.2
+		 */
+		void accept(int pixelIndex, int value);
+	}
+
+	/**
+	 * Private constructor to prevent instantiation of this utility class.
+	 *
+	 * @since 0.0.2
+	 */
+	private RunLengthCodec() {
+
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.achaaab.mandelbrot.export;
+
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Computes the requested strips with a Mandelbrot fractal, so that an image can be exported while it is rendered,
+ * without holding more than one strip in memory.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class FractalStripSource implements StripSource {
+
+	private final MandelbrotFractal fractal;
+	private final int width;
+	private final int height;
+	private final double minX;
+	private final double minY;
+	private final double scaleX;
+	private final double scaleY;
+
+	private BufferedImage stripImage;
+
+	/**
+	 * Creates a new strip source.
+	 *
+	 * @param fractal Mandelbrot fractal computing the strips
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @since 0.0.2
+	 */
+	public FractalStripSource(MandelbrotFractal fractal, int width, int height,
+			double minX, double maxX, double minY, double maxY) {
+
+		this.fractal = fractal;
+		this.width = width;
+		this.height = height;
+		this.minX = minX;
+		this.minY = minY;
+
+		scaleX = (maxX - minX) / width;
+		scaleY = (maxY - minY) / height;
+	}
+
+	@Override
+	public void read(int firstRow, int rowCount, int[] rgb) {
+
+		// rows are numbered from the top, whereas y increases upward
+		var stripMinY = minY + (height - firstRow - rowCount) * scaleY;
+		fractal.setBounds(minX, minX + width * scaleX, stripMinY, stripMinY + rowCount * scaleY);
+
+		if (stripImage == null || stripImage.getHeight() != rowCount) {
+			stripImage = new BufferedImage(width, rowCount, TYPE_INT_RGB);
+		}
+
+		fractal.compute(stripImage);
+
+		var stripRgb = ((DataBufferInt) stripImage.getRaster().getDataBuffer()).getData();
+		System.arraycopy(stripRgb, 0, rgb, 0, width * rowCount);
+	}
+}
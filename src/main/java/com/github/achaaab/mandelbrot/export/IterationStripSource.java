@@ -0,0 +1,65 @@
+package com.github.achaaab.mandelbrot.export;
+
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+import com.github.achaaab.mandelbrot.data.IterationFile;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Colors the requested strips from an iteration file, so that a saved rendering can be recolored, cropped or
+ * downsampled without computing the fractal again.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class IterationStripSource implements StripSource {
+
+	private final IterationFile file;
+	private final MandelbrotFractal fractal;
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int step;
+
+	private BufferedImage stripImage;
+
+	/**
+	 * Creates a new strip source.
+	 *
+	 * @param file iteration file to read
+	 * @param fractal Mandelbrot fractal whose palette is used to color the iterations
+	 * @param x left pixel column of the exported region
+	 * @param y top pixel row of the exported region
+	 * @param width width of the exported region in pixels, before downsampling
+	 * @param step downsampling step, 1 to export every pixel
+	 * @since 0.0.2
+	 */
+	public IterationStripSource(IterationFile file, MandelbrotFractal fractal, int x, int y, int width, int step) {
+
+		this.file = file;
+		this.fractal = fractal;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.step = step;
+	}
+
+	@Override
+	public void read(int firstRow, int rowCount, int[] rgb) {
+
+		var iterationImage = file.read(x, y + firstRow * step, width, (rowCount - 1) * step + 1, step);
+		var stripWidth = iterationImage.getWidth();
+
+		if (stripImage == null || stripImage.getHeight() != rowCount) {
+			stripImage = new BufferedImage(stripWidth, rowCount, TYPE_INT_RGB);
+		}
+
+		fractal.colorize(iterationImage, stripImage);
+
+		var stripRgb = ((DataBufferInt) stripImage.getRaster().getDataBuffer()).getData();
+		System.arraycopy(stripRgb, 0, rgb, 0, stripWidth * rowCount);
+	}
+}
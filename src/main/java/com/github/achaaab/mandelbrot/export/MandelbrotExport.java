@@ -0,0 +1,172 @@
+package com.github.achaaab.mandelbrot.export;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+import com.github.achaaab.mandelbrot.IterationImage;
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+import com.github.achaaab.mandelbrot.data.IterationFile;
+import com.github.achaaab.mandelbrot.data.IterationFileWriter;
+import com.github.achaaab.mandelbrot.poster.PosterFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Headless application exporting a Mandelbrot image to PNG, streaming strips from the renderer (or from a poster
+ * file) to the encoder, so that the whole image is never held in memory. It can also save raw iteration data
+ * instead of colors, to recolor, crop or downsample it later without computing the fractal again.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotExport {
+
+	/**
+	 * Extension of iteration files.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final String ITERATION_EXTENSION = ".iter";
+
+	/**
+	 * Maximum number of pixels of the strips computed when saving iteration data.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int STRIP_PIXEL_COUNT = 1 << 20;
+
+	/// Entry point of the PNG exporter.
+	///
+	/// @param arguments either, to render and export an image:
+	///     0. computing method (see [ComputingMethod])
+	///     1. image width in pixels
+	///     2. image height in pixels
+	///     3. maximum number of iterations
+	///     4. output PNG file, or output iteration file if its extension is `.iter`
+	///     5. optional bounds: minimum x, maximum x, minimum y, maximum y
+	///
+	/// or, to export a rendered poster:
+	///     0. poster file
+	///     1. output PNG file
+	///
+	/// or, to recolor a saved iteration file:
+	///     0. iteration file
+	///     1. output PNG file
+	///     2. optional region and downsampling step: x, y, width, height, step
+	/// @throws IOException if an I/O error occurs
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException {
+
+		if (arguments[0].endsWith(ITERATION_EXTENSION)) {
+
+			try (var file = new IterationFile(Path.of(arguments[0]))) {
+
+				var x = arguments.length > 6 ? parseInt(arguments[2]) : 0;
+				var y = arguments.length > 6 ? parseInt(arguments[3]) : 0;
+				var width = arguments.length > 6 ? parseInt(arguments[4]) : file.getWidth();
+				var height = arguments.length > 6 ? parseInt(arguments[5]) : file.getHeight();
+				var step = arguments.length > 6 ? parseInt(arguments[6]) : 1;
+
+				var fractal = ComputingMethod.CPU.create(
+						file.getMinX(), file.getMaxX(), file.getMinY(), file.getMaxY(), file.getIterations());
+
+				var source = new IterationStripSource(file, fractal, x, y, width, step);
+				export((width + step - 1) / step, (height + step - 1) / step, source, Path.of(arguments[1]));
+			}
+
+		} else if (arguments.length == 2) {
+
+			try (var poster = PosterFile.openReadOnly(Path.of(arguments[0]))) {
+				export(poster.getWidth(), poster.getHeight(), poster::readRows, Path.of(arguments[1]));
+			}
+
+		} else {
+
+			var method = ComputingMethod.valueOf(arguments[0]);
+			var width = parseInt(arguments[1]);
+			var height = parseInt(arguments[2]);
+			var iterations = parseInt(arguments[3]);
+			var output = Path.of(arguments[4]);
+
+			var minX = arguments.length > 8 ? parseDouble(arguments[5]) : -2.0;
+			var maxX = arguments.length > 8 ? parseDouble(arguments[6]) : 0.6;
+			var minY = arguments.length > 8 ? parseDouble(arguments[7]) : -1.3;
+			var maxY = arguments.length > 8 ? parseDouble(arguments[8]) : 1.3;
+
+			var fractal = method.create(minX, maxX, minY, maxY, iterations);
+
+			if (arguments[4].endsWith(ITERATION_EXTENSION)) {
+
+				try (var writer = new IterationFileWriter(
+						output, width, height, true, iterations, method, minX, maxX, minY, maxY)) {
+
+					save(fractal, width, height, minX, maxX, minY, maxY, writer);
+				}
+
+			} else {
+
+				var source = new FractalStripSource(fractal, width, height, minX, maxX, minY, maxY);
+				export(width, height, source, output);
+			}
+		}
+	}
+
+	/**
+	 * Computes the iterations of an image strip by strip and saves them.
+	 *
+	 * @param fractal Mandelbrot fractal computing the strips
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param writer writer of the iteration file
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private static void save(MandelbrotFractal fractal, int width, int height,
+			double minX, double maxX, double minY, double maxY, IterationFileWriter writer) throws IOException {
+
+		var scaleX = (maxX - minX) / width;
+		var scaleY = (maxY - minY) / height;
+		var stripHeight = max(1, min(height, STRIP_PIXEL_COUNT / width));
+
+		for (var firstRow = 0; firstRow < height; firstRow += stripHeight) {
+
+			var rowCount = min(stripHeight, height - firstRow);
+
+			// rows are numbered from the top, whereas y increases upward
+			var stripMinY = minY + (height - firstRow - rowCount) * scaleY;
+			fractal.setBounds(minX, minX + width * scaleX, stripMinY, stripMinY + rowCount * scaleY);
+
+			var strip = new IterationImage(width, rowCount, true);
+			fractal.compute(strip);
+			writer.write(strip);
+		}
+	}
+
+	/**
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param source source of the image rows
+	 * @param output output PNG file
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private static void export(int width, int height, StripSource source, Path output) throws IOException {
+
+		var writer = new PngWriter(width, height);
+
+		try (var outputStream = new BufferedOutputStream(Files.newOutputStream(output))) {
+			writer.write(source, outputStream);
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package com.github.achaaab.mandelbrot.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+/**
+ * Streaming PNG encoder, filtering and compressing strips of rows in parallel.
+ *
+ * <p>Like pigz, each strip is compressed independently into raw deflate data ending on a byte boundary
+ * (sync flush), with the end of the previous strip as preset dictionary, so that compression ratio is barely
+ * affected. Compressed strips are written in order as IDAT chunks, and their Adler-32 checksums are combined into
+ * the zlib trailer. Memory usage is bounded by the strip size and the number of strips in flight, regardless of
+ * the image size.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class PngWriter {
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9C };
+
+	private static final int BYTES_PER_PIXEL = 3;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int STRIP_SIZE = 1024 * 1024;
+	private static final int ADLER_BASE = 65521;
+
+	private static final byte FILTER_NONE = 0;
+	private static final byte FILTER_SUB = 1;
+	private static final byte FILTER_UP = 2;
+	private static final byte FILTER_AVERAGE = 3;
+	private static final byte FILTER_PAETH = 4;
+
+	/**
+	 * Combines the Adler-32 checksums of 2 consecutive sequences of bytes, as {@code adler32_combine} of zlib.
+	 *
+	 * @param adler1 checksum of the first sequence
+	 * @param adler2 checksum of the second sequence
+	 * @param length2 length of the second sequence
+	 * @return checksum of the concatenation of both sequences
+	 * @since 0.0.2
+	 */
+	private static long combineAdler32(long adler1, long adler2, long length2) {
+
+		var remainder = length2 % ADLER_BASE;
+		var sum1 = adler1 & 0xFFFF;
+		var sum2 = remainder * sum1 % ADLER_BASE;
+
+		sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += (adler1 >> 16 & 0xFFFF) + (adler2 >> 16 & 0xFFFF) + ADLER_BASE - remainder;
+
+		sum1 %= ADLER_BASE;
+		sum2 %= ADLER_BASE;
+
+		return sum1 | sum2 << 16;
+	}
+
+	private final int width;
+	private final int height;
+	private final int stripHeight;
+	private final int dictionaryRows;
+	private final int threadCount;
+
+	/**
+	 * Creates a new PNG writer for RGB images of the given size.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @since 0.0.2
+	 */
+	public PngWriter(int width, int height) {
+
+		this.width = width;
+		this.height = height;
+
+		var rowSize = getRowSize();
+
+		stripHeight = max(1, min(height, STRIP_SIZE / rowSize));
+
+		// the row preceding the dictionary rows must belong to the previous strip too
+		dictionaryRows = min(stripHeight - 1, (DICTIONARY_SIZE + rowSize - 1) / rowSize);
+
+		threadCount = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * @return number of rows per strip
+	 * @since 0.0.2
+	 */
+	public int getStripHeight() {
+		return stripHeight;
+	}
+
+	/**
+	 * Reads the whole image from the given source, strip by strip, and writes it as PNG.
+	 * Strips are read in the calling thread, while previous strips are filtered and compressed in other threads.
+	 *
+	 * @param source source of the image rows
+	 * @param output stream to write the PNG image to
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public void write(StripSource source, OutputStream output) throws IOException {
+
+		var dataOutput = new DataOutputStream(output);
+
+		dataOutput.write(SIGNATURE);
+		writeHeader(dataOutput);
+
+		var pendingStrips = new ArrayDeque<Future<CompressedStrip>>();
+		var maxPendingStrips = 2 * threadCount;
+		var adler = 1L;
+		var first = true;
+
+		try (var executor = newFixedThreadPool(threadCount)) {
+
+			int[] previousRgb = null;
+
+			for (var firstRow = 0; firstRow < height; firstRow += stripHeight) {
+
+				var rowCount = min(stripHeight, height - firstRow);
+				var rgb = new int[rowCount * width];
+				source.read(firstRow, rowCount, rgb);
+
+				var last = firstRow + rowCount == height;
+				var strip = new Strip(rgb, rowCount, previousRgb, last);
+				pendingStrips.add(executor.submit(() -> compress(strip)));
+				previousRgb = rgb;
+
+				if (pendingStrips.size() == maxPendingStrips) {
+
+					var compressedStrip = getCompressedStrip(pendingStrips.remove());
+					writeData(dataOutput, compressedStrip, first, false, adler);
+					adler = combineAdler32(adler, compressedStrip.adler, compressedStrip.length);
+					first = false;
+				}
+			}
+
+			while (!pendingStrips.isEmpty()) {
+
+				var compressedStrip = getCompressedStrip(pendingStrips.remove());
+				adler = combineAdler32(adler, compressedStrip.adler, compressedStrip.length);
+				writeData(dataOutput, compressedStrip, first, pendingStrips.isEmpty(), adler);
+				first = false;
+			}
+		}
+
+		writeChunk(dataOutput, "IEND");
+		dataOutput.flush();
+	}
+
+	/**
+	 * @param future pending compression
+	 * @return compressed strip
+	 * @throws IOException if the compression failed or was interrupted
+	 * @since 0.0.2
+	 */
+	private static CompressedStrip getCompressedStrip(Future<CompressedStrip> future) throws IOException {
+
+		try {
+
+			return future.get();
+
+		} catch (InterruptedException cause) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException(cause);
+
+		} catch (ExecutionException cause) {
+
+			throw new IOException(cause.getCause());
+		}
+	}
+
+	/**
+	 * Writes the IHDR chunk: 8 bits per channel, RGB, no interlacing.
+	 *
+	 * @param output output to write to
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void writeHeader(DataOutputStream output) throws IOException {
+
+		var header = new ByteArrayOutputStream();
+		var headerOutput = new DataOutputStream(header);
+
+		headerOutput.writeInt(width);
+		headerOutput.writeInt(height);
+		headerOutput.writeByte(8);
+		headerOutput.writeByte(2);
+		headerOutput.writeByte(0);
+		headerOutput.writeByte(0);
+		headerOutput.writeByte(0);
+
+		writeChunk(output, "IHDR", header.toByteArray());
+	}
+
+	/**
+	 * Writes a compressed strip as an IDAT chunk, preceded by the zlib header for the first strip and followed by
+	 * the zlib trailer for the last one.
+	 *
+	 * @param output output to write to
+	 * @param strip compressed strip
+	 * @param first whether this is the first strip
+	 * @param last whether this is the last strip
+	 * @param adler Adler-32 checksum of the whole uncompressed data, only used for the last strip
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private static void writeData(DataOutputStream output, CompressedStrip strip, boolean first, boolean last,
+			long adler) throws IOException {
+
+		var header = first ? ZLIB_HEADER : new byte[0];
+		var trailer = last ? ByteBuffer.allocate(Integer.BYTES).putInt((int) adler).array() : new byte[0];
+
+		writeChunk(output, "IDAT", header, strip.data, trailer);
+	}
+
+	/**
+	 * Writes a PNG chunk.
+	 *
+	 * @param output output to write to
+	 * @param type chunk type
+	 * @param parts chunk data, in several parts
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private static void writeChunk(DataOutputStream output, String type, byte[]... parts) throws IOException {
+
+		var typeBytes = type.getBytes(US_ASCII);
+		var length = 0;
+
+		for (var part : parts) {
+			length += part.length;
+		}
+
+		var crc = new CRC32();
+		crc.update(typeBytes);
+
+		output.writeInt(length);
+		output.write(typeBytes);
+
+		for (var part : parts) {
+
+			crc.update(part);
+			output.write(part);
+		}
+
+		output.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * @return size of a filtered row in bytes, including the filter type
+	 * @since 0.0.2
+	 */
+	private int getRowSize() {
+		return 1 + width * BYTES_PER_PIXEL;
+	}
+
+	/**
+	 * Filters consecutive rows, choosing for each row the filter minimizing the sum of absolute differences.
+	 *
+	 * @param rgb RGB pixels of the rows to filter
+	 * @param firstRow index of the first row to filter in the given pixels
+	 * @param rowCount number of rows to filter
+	 * @param previousRgb pixels containing the row preceding the first row to filter, {@code null} if it is the
+	 * first row of the image
+	 * @param previousRow index of the row preceding the first row to filter in {@code previousRgb}
+	 * @return filtered rows
+	 * @since 0.0.2
+	 */
+	private byte[] filter(int[] rgb, int firstRow, int rowCount, int[] previousRgb, int previousRow) {
+
+		var rowSize = getRowSize();
+		var lineSize = rowSize - 1;
+		var filtered = new byte[rowCount * rowSize];
+
+		var previousLine = new byte[lineSize];
+		var line = new byte[lineSize];
+		var candidates = new byte[5][lineSize];
+
+		if (previousRgb != null) {
+			unpack(previousRgb, previousRow, previousLine);
+		}
+
+		for (var row = 0; row < rowCount; row++) {
+
+			unpack(rgb, firstRow + row, line);
+
+			var bestFilter = FILTER_NONE;
+			var bestScore = Long.MAX_VALUE;
+
+			for (var filter = FILTER_NONE; filter <= FILTER_PAETH; filter++) {
+
+				var candidate = candidates[filter];
+				var score = 0L;
+
+				for (var k = 0; k < lineSize; k++) {
+
+					var x = line[k] & 0xFF;
+					var a = k < BYTES_PER_PIXEL ? 0 : line[k - BYTES_PER_PIXEL] & 0xFF;
+					var b = previousLine[k] & 0xFF;
+					var c = k < BYTES_PER_PIXEL ? 0 : previousLine[k - BYTES_PER_PIXEL] & 0xFF;
+
+					var predictor = switch (filter) {
+
+						case FILTER_SUB -> a;
+						case FILTER_UP -> b;
+						case FILTER_AVERAGE -> (a + b) >> 1;
+						case FILTER_PAETH -> paeth(a, b, c);
+						default -> 0;
+					};
+
+					var value = (byte) (x - predictor);
+					candidate[k] = value;
+					score += abs(value);
+				}
+
+				if (score < bestScore) {
+
+					bestScore = score;
+					bestFilter = filter;
+				}
+			}
+
+			var offset = row * rowSize;
+			filtered[offset] = bestFilter;
+			System.arraycopy(candidates[bestFilter], 0, filtered, offset + 1, lineSize);
+
+			var swap = previousLine;
+			previousLine = line;
+			line = swap;
+		}
+
+		return filtered;
+	}
+
+	/**
+	 * @param rgb RGB pixels
+	 * @param row index of the row to unpack
+	 * @param line array in which to store the unpacked bytes of the row
+	 * @since 0.0.2
+	 */
+	private void unpack(int[] rgb, int row, byte[] line) {
+
+		var pixelIndex = row * width;
+
+		for (var i = 0; i < width; i++) {
+
+			var pixel = rgb[pixelIndex++];
+			var offset = i * BYTES_PER_PIXEL;
+
+			line[offset] = (byte) (pixel >> 16);
+			line[offset + 1] = (byte) (pixel >> 8);
+			line[offset + 2] = (byte) pixel;
+		}
+	}
+
+	/**
+	 * @param a left byte
+	 * @param b upper byte
+	 * @param c upper left byte
+	 * @return Paeth predictor
+	 * @since 0.0.2
+	 */
+	private static int paeth(int a, int b, int c) {
+
+		var p = a + b - c;
+		var pa = abs(p - a);
+		var pb = abs(p - b);
+		var pc = abs(p - c);
+
+		return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+	}
+
+	/**
+	 * Strip to filter and compress.
+	 *
+	 * @param rgb RGB pixels of the strip
+	 * @param rowCount number of rows in the strip
+	 * @param previousRgb RGB pixels of the previous strip, {@code null} for the first strip
+	 * @param last whether this is the last strip of the image
+	 * @since 0.0.2
+	 */
+	private record Strip(int[] rgb, int rowCount, int[] previousRgb, boolean last) {
+
+	}
+
+	/**
+	 * Compressed strip.
+	 *
+	 * @param data raw deflate data
+	 * @param adler Adler-32 checksum of the uncompressed (filtered) data
+	 * @param length length of the uncompressed (filtered) data
+	 * @since 0.0.2
+	 */
+	private record CompressedStrip(byte[] data, long adler, long length) {
+
+	}
+
+	/**
+	 * Filters and compresses a strip. The end of the previous strip is filtered again to be used as preset
+	 * dictionary: filters are chosen deterministically, so it is exactly the data preceding this strip in the
+	 * zlib stream.
+	 *
+	 * @param strip strip to compress
+	 * @return compressed strip
+	 * @since 0.0.2
+	 */
+	private CompressedStrip compress(Strip strip) {
+
+		var rgb = strip.rgb;
+		var rowCount = strip.rowCount;
+		var previousRgb = strip.previousRgb;
+
+		var filtered = filter(rgb, 0, rowCount, previousRgb, stripHeight - 1);
+
+		var adler = new Adler32();
+		adler.update(filtered);
+
+		var deflater = new Deflater(DEFAULT_COMPRESSION, true);
+
+		try {
+
+			if (previousRgb != null && dictionaryRows > 0) {
+
+				var firstDictionaryRow = stripHeight - dictionaryRows;
+				var dictionary = filter(previousRgb, firstDictionaryRow, dictionaryRows, previousRgb,
+						firstDictionaryRow - 1);
+
+				deflater.setDictionary(dictionary);
+			}
+
+			deflater.setInput(filtered);
+
+			var compressed = new ByteArrayOutputStream(filtered.length / 4);
+			var buffer = new byte[64 * 1024];
+
+			if (strip.last) {
+
+				deflater.finish();
+
+				while (!deflater.finished()) {
+
+					var length = deflater.deflate(buffer);
+					compressed.write(buffer, 0, length);
+				}
+
+			} else {
+
+				int length;
+
+				// with sync flush, the output is complete when the buffer is not filled up
+				do {
+
+					length = deflater.deflate(buffer, 0, buffer.length, SYNC_FLUSH);
+					compressed.write(buffer, 0, length);
+
+				} while (length == buffer.length);
+			}
+
+			return new CompressedStrip(compressed.toByteArray(), adler.getValue(), filtered.length);
+
+		} finally {
+
+			deflater.end();
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.achaaab.mandelbrot.export;
+
+import java.io.IOException;
+
+/**
+ * Source of consecutive image rows, read strip by strip from the top of the image.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+@FunctionalInterface
+public interface StripSource {
+
+	/**
+	 * Reads consecutive full rows.
+	 *
+	 * @param firstRow first row to read (from the top)
+	 * @param rowCount number of rows to read
+	 * @param rgb array in which to store the RGB pixels of the read rows
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	void read(int firstRow, int rowCount, int[] rgb) throws IOException;
+}
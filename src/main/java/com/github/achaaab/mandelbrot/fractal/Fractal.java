@@ -14,6 +14,19 @@ public abstract class Fractal {
 	private double halfHeight;
 
 	public Fractal(double minX, double maxX, double minY, double maxY) {
+		setBounds(minX, maxX, minY, maxY);
+	}
+
+	/**
+	 * Sets the visible area of this fractal.
+	 *
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @since 0.0.2
+	 */
+	public void setBounds(double minX, double maxX, double minY, double maxY) {
 
 		centerX = (minX + maxX) / 2;
 		centerY = (minY + maxY) / 2;
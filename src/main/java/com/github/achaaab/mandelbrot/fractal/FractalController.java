@@ -1,20 +1,21 @@
 package com.github.achaaab.mandelbrot.fractal;
 
-import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.lang.reflect.InvocationTargetException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.github.achaaab.mandelbrot.fractal.RenderPriority.INTERACTIVE;
+import static com.github.achaaab.mandelbrot.fractal.RenderPriority.SPECULATIVE;
 import static java.lang.Math.pow;
 import static java.lang.String.format;
-import static java.lang.Thread.currentThread;
-import static java.util.concurrent.Executors.newSingleThreadExecutor;
 
 /**
  * @param <F> fractal type
@@ -24,34 +25,84 @@ import static java.util.concurrent.Executors.newSingleThreadExecutor;
 public abstract class FractalController<F extends Fractal>
 		implements MouseMotionListener, MouseWheelListener, MouseListener {
 
+	/**
+	 * Delay in milliseconds without dragging, zooming or resizing after which the interaction is considered ended.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int INTERACTION_END_DELAY = 200;
+
 	protected final F fractal;
 	protected final FractalView view;
 
 	private final Point previousMousePosition;
+	private final Dimension fittedSize;
+	private volatile Point focus;
+	private volatile Point dragDirection;
+	private volatile int wheelDirection;
 
-	private final ExecutorService executor;
+	private final RenderService.Client renderClient;
 	private final AtomicBoolean updatePending;
 	private final AtomicBoolean updateRequested;
 
+	private final Timer interactionEndTimer;
+	private volatile boolean interacting;
+
 	/**
 	 * @param fractal
 	 * @param view
 	 * @since 0.0.1
 	 */
 	public FractalController(F fractal, FractalView view) {
+		this(fractal, view, RenderService.getShared());
+	}
+
+	/**
+	 * Creates a controller running its updates on a render service, along with other views and background jobs. Updates
+	 * are run as interactive tasks and speculative work as speculative tasks, one at a time.
+	 *
+	 * @param fractal
+	 * @param view
+	 * @param renderService render service running the updates
+	 * @since 0.0.2
+	 */
+	public FractalController(F fractal, FractalView view, RenderService renderService) {
 
 		this.fractal = fractal;
 		this.view = view;
 
 		previousMousePosition = new Point();
+		fittedSize = new Dimension(view.getImage().getWidth(), view.getImage().getHeight());
 
-		executor = newSingleThreadExecutor();
+		renderClient = renderService.createClient();
 		updatePending = new AtomicBoolean();
 		updateRequested = new AtomicBoolean();
 
+		// until the wheel is rotated, the next zoom step is expected to zoom in
+		wheelDirection = -1;
+
+		interactionEndTimer = new Timer(INTERACTION_END_DELAY, event -> {
+
+			interacting = false;
+			interactionEnded();
+		});
+
+		interactionEndTimer.setRepeats(false);
+
 		view.addMouseListener(this);
 		view.addMouseMotionListener(this);
 		view.addMouseWheelListener(this);
+
+		view.addComponentListener(new ComponentAdapter() {
+
+			@Override
+			public void componentResized(ComponentEvent event) {
+
+				fit();
+				interact();
+				requestUpdate();
+			}
+		});
 	}
 
 	@Override
@@ -73,21 +124,35 @@ public abstract class FractalController<F extends Fractal>
 		fractal.translate(dx / scaleX, -dy / scaleY);
 
 		previousMousePosition.setLocation(mousePosition);
+		focus = mousePosition;
 
+		if (dx != 0 || dy != 0) {
+			dragDirection = new Point(dx, dy);
+		}
+
+		interact();
 		requestUpdate();
 	}
 
 	@Override
 	public void mouseMoved(MouseEvent event) {
+
 		previousMousePosition.setLocation(event.getPoint());
+		focus = event.getPoint();
 	}
 
 	@Override
 	public void mouseWheelMoved(MouseWheelEvent event) {
 
-		var factor = pow(2, -event.getWheelRotation() / 10.0);
+		var factor = getZoomFactor(event.getWheelRotation());
 
 		var mousePosition = event.getPoint();
+		focus = mousePosition;
+		dragDirection = null;
+
+		if (event.getWheelRotation() != 0) {
+			wheelDirection = Integer.signum(event.getWheelRotation());
+		}
 
 		var fractalWidth = fractal.getWidth();
 		var fractalHeight = fractal.getHeight();
@@ -102,6 +167,7 @@ public abstract class FractalController<F extends Fractal>
 
 		fractal.zoom(x, y, factor);
 
+		interact();
 		requestUpdate();
 	}
 
@@ -138,7 +204,7 @@ public abstract class FractalController<F extends Fractal>
 	public void requestUpdate() {
 
 		if (updatePending.compareAndSet(false, true)) {
-			executor.submit(() -> update());
+			renderClient.execute(INTERACTIVE, this::fitAndUpdate);
 		} else {
 			updateRequested.set(true);
 		}
@@ -152,41 +218,147 @@ public abstract class FractalController<F extends Fractal>
 	}
 
 	/**
+	 * Displays the updated image with a message, by swapping the view images without waiting for the painting, then
+	 * runs the next requested update or speculates if none is requested.
+	 *
 	 * @param message
 	 * @since 0.0.1
 	 */
 	protected final void update(String message) {
 
-		var interrupted = false;
+		view.setMessage(message);
+		view.swap();
 
-		try {
+		if (updateRequested.compareAndSet(true, false)) {
 
-			view.setMessage(message);
-			SwingUtilities.invokeAndWait(view::paintImmediately);
+			fitAndUpdate();
 
-		} catch (InterruptedException interruptedException) {
+		} else {
 
-			interrupted = true;
+			updatePending.set(false);
+			renderClient.execute(SPECULATIVE, this::speculate);
+		}
+	}
 
-		} catch (InvocationTargetException invocationTargetException) {
+	/**
+	 * Fits the view images to the view size, then updates them.
+	 *
+	 * @since 0.0.2
+	 */
+	private void fitAndUpdate() {
 
-			System.err.printf("Repaint error: %s.%n", invocationTargetException.getMessage());
+		view.fitImages();
+		update();
+	}
 
-		} finally {
+	/**
+	 * Fits the fractal area to the view size if it changed, keeping its center and the size of its pixels, so that the
+	 * resized view shows more or less of the same fractal. Like the other changes of the fractal, this is done on the
+	 * event dispatch thread, the view images being resized by the next update.
+	 *
+	 * @since 0.0.2
+	 */
+	private void fit() {
 
-			if (!interrupted && updateRequested.compareAndSet(true, false)) {
+		var size = view.getSize();
 
-				update();
+		if (size.width <= 0 || size.height <= 0 || size.equals(fittedSize)) {
+			return;
+		}
 
-			} else {
+		var width = fractal.getWidth() * size.width / fittedSize.width;
+		var height = fractal.getHeight() * size.height / fittedSize.height;
+		var centerX = (fractal.getMinX() + fractal.getMaxX()) / 2;
+		var centerY = (fractal.getMinY() + fractal.getMaxY()) / 2;
 
-				updatePending.set(false);
+		fractal.setBounds(centerX - width / 2, centerX + width / 2, centerY - height / 2, centerY + height / 2);
+		fittedSize.setSize(size);
+	}
 
-				if (interrupted) {
-					currentThread().interrupt();
-				}
-			}
-		}
+	/**
+	 * Marks the user as dragging, zooming or resizing, until no such input is received for {@link #INTERACTION_END_DELAY}.
+	 *
+	 * @since 0.0.2
+	 */
+	private void interact() {
+
+		interacting = true;
+		interactionEndTimer.restart();
+	}
+
+	/**
+	 * @return whether the user is dragging, zooming or resizing
+	 * @since 0.0.2
+	 */
+	protected boolean isInteracting() {
+		return interacting;
+	}
+
+	/**
+	 * Called on the event dispatch thread when the user stopped dragging, zooming or resizing. This implementation does
+	 * nothing.
+	 *
+	 * @since 0.0.2
+	 */
+	protected void interactionEnded() {
+
+	}
+
+	/**
+	 * Speculatively computes likely next views, when the controller is idle. It is run as a speculative task, after
+	 * an update if no other update is requested. Implementations should return as soon as
+	 * {@link #isUpdatePending()} is {@code true}, so that real updates preempt speculative work. This implementation
+	 * does nothing.
+	 *
+	 * @since 0.0.2
+	 */
+	protected void speculate() {
+
+	}
+
+	/**
+	 * @return whether an update is pending, in which case speculative work should stop
+	 * @since 0.0.2
+	 */
+	protected boolean isUpdatePending() {
+		return updatePending.get();
+	}
+
+	/**
+	 * @param wheelRotation number of mouse wheel clicks, negative to zoom in
+	 * @return zoom factor
+	 * @since 0.0.2
+	 */
+	protected static double getZoomFactor(int wheelRotation) {
+		return pow(2, -wheelRotation / 10.0);
+	}
+
+	/**
+	 * @return last displacement of the view area by a drag, in pixels, {@code null} if the mouse wheel was rotated
+	 * since the last drag
+	 * @since 0.0.2
+	 */
+	protected Point getDragDirection() {
+		return dragDirection;
+	}
+
+	/**
+	 * @return sign of the last mouse wheel rotation, negative to zoom in
+	 * @since 0.0.2
+	 */
+	protected int getWheelDirection() {
+		return wheelDirection;
+	}
+
+	/**
+	 * @return last position of the mouse over the view, where the user is looking, or the center of the view if the
+	 * mouse has not moved yet
+	 * @since 0.0.2
+	 */
+	protected Point getFocus() {
+
+		var focus = this.focus;
+		return focus == null ? new Point(view.getWidth() / 2, view.getHeight() / 2) : focus;
 	}
 
 	/**
@@ -1,13 +1,18 @@
 package com.github.achaaab.mandelbrot.fractal;
 
 import javax.swing.JComponent;
+import javax.swing.Timer;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.io.Serial;
 
 import static com.github.achaaab.mandelbrot.util.SwingUtilities.getTextBounds;
 import static com.github.achaaab.mandelbrot.util.SwingUtilities.scale;
@@ -15,16 +20,26 @@ import static java.awt.Color.BLACK;
 import static java.awt.Color.RED;
 import static java.awt.Font.MONOSPACED;
 import static java.awt.Font.PLAIN;
-import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.awt.image.VolatileImage.IMAGE_INCOMPATIBLE;
+import static java.awt.image.VolatileImage.IMAGE_OK;
 
 /**
- * Default fractal view.
+ * Default fractal view. Renderers mark the image areas they changed, from any thread, and the marked areas are
+ * coalesced and painted at display rate on the event dispatch thread, so that renderers never wait for Swing.
+ *
+ * <p>The view is double buffered: renderers write the back image while the front image is painted, then swap them
+ * without copying, so that painted frames are always consistent. Areas of the back image can also be published
+ * before the swap, for progressive rendering. The front image is presented through a volatile image, only stale
+ * areas being copied to it.</p>
  *
  * @author Jonathan Guéhenneux
  * @since 0.0.0
  */
 public class FractalView extends JComponent {
 
+	@Serial
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Bottom left position of the message.
 	 *
@@ -36,10 +51,36 @@ public class FractalView extends JComponent {
 	private static final Color MESSAGE_COLOR = RED;
 	private static final int MESSAGE_MARGIN = scale(4.0f);
 
-	private final BufferedImage image;
+	/**
+	 * Delay in milliseconds between 2 paintings of dirty areas.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int PAINT_PERIOD = 16;
+
+	/**
+	 * Number of free image arrays kept by the pool: the back and front images of the previous size, so that a resize
+	 * within the same size class reuses them.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int POOL_CAPACITY = 2;
+
+	private final transient FrameBufferPool pool;
+	private final transient Object bufferLock;
+	private transient volatile BufferedImage backImage;
+	private transient BufferedImage frontImage;
+	private long frontGeneration;
+	private transient VolatileImage presentationImage;
+	private Rectangle staleArea;
+
 	private boolean messageDisplayed;
 	private String message;
 
+	private final transient Object dirtyAreaLock;
+	private final Timer paintTimer;
+	private Rectangle dirtyArea;
+
 	/**
 	 * Creates a new fractal view.
 	 *
@@ -49,9 +90,19 @@ public class FractalView extends JComponent {
 	 */
 	public FractalView(int width, int height) {
 
-		image = new BufferedImage(width, height, TYPE_INT_RGB);
+		pool = new FrameBufferPool(POOL_CAPACITY);
+		bufferLock = new Object();
+		backImage = pool.createImage(width, height);
+		frontImage = pool.createImage(width, height);
+
 		messageDisplayed = false;
 
+		dirtyAreaLock = new Object();
+		paintTimer = new Timer(PAINT_PERIOD, event -> paintDirtyArea());
+
+		// receives key events, for controllers binding rendering options to keys
+		setFocusable(true);
+
 		var preferredSize = new Dimension(width, height);
 		setPreferredSize(preferredSize);
 	}
@@ -65,13 +116,189 @@ public class FractalView extends JComponent {
 		paintImmediately(0, 0, getWidth(), getHeight());
 	}
 
+	/**
+	 * Marks an area as dirty, to be painted at the next display refresh. This method can be called from any thread
+	 * and does not wait for the painting.
+	 *
+	 * @param area dirty area, in pixels
+	 * @since 0.0.2
+	 */
+	public void markDirty(Rectangle area) {
+
+		synchronized (dirtyAreaLock) {
+
+			if (dirtyArea == null) {
+
+				dirtyArea = new Rectangle(area);
+				paintTimer.start();
+
+			} else {
+
+				dirtyArea.add(area);
+			}
+		}
+	}
+
+	/**
+	 * Marks the whole view as dirty.
+	 *
+	 * @see #markDirty(Rectangle)
+	 * @since 0.0.2
+	 */
+	public void markDirty() {
+		markDirty(getImageBounds());
+	}
+
+	/**
+	 * Swaps the back and front images, without copying them, then marks the whole view as dirty. The new back image
+	 * holds an older frame, renderers must overwrite it entirely.
+	 *
+	 * @since 0.0.2
+	 */
+	public void swap() {
+
+		synchronized (bufferLock) {
+
+			var image = frontImage;
+			frontImage = backImage;
+			backImage = image;
+			frontGeneration++;
+			staleArea = getImageBounds();
+		}
+
+		markDirty();
+	}
+
+	/**
+	 * Copies a completed area of the back image to the front image, then marks it as dirty, so that it is painted
+	 * before the swap.
+	 *
+	 * @param area completed area of the back image, in pixels
+	 * @since 0.0.2
+	 */
+	public void publish(Rectangle area) {
+
+		var clippedArea = area.intersection(getImageBounds());
+
+		if (clippedArea.isEmpty()) {
+			return;
+		}
+
+		synchronized (bufferLock) {
+
+			var width = frontImage.getWidth();
+			var backRgb = ((DataBufferInt) backImage.getRaster().getDataBuffer()).getData();
+			var frontRgb = ((DataBufferInt) frontImage.getRaster().getDataBuffer()).getData();
+
+			for (var row = clippedArea.y; row < clippedArea.y + clippedArea.height; row++) {
+
+				var offset = row * width + clippedArea.x;
+				System.arraycopy(backRgb, offset, frontRgb, offset, clippedArea.width);
+			}
+
+			if (staleArea == null) {
+				staleArea = clippedArea;
+			} else {
+				staleArea.add(clippedArea);
+			}
+		}
+
+		markDirty(clippedArea);
+	}
+
+	/**
+	 * Resizes the back and front images to the size of the view, if they differ. New images are taken from a
+	 * size-classed pool, and the previous front image is kept centered in the new one until the next swap, so that
+	 * partial results remain displayed across the resize. This method must be called by the rendering thread,
+	 * between 2 frames.
+	 *
+	 * @return whether the images were resized
+	 * @since 0.0.2
+	 */
+	public boolean fitImages() {
+
+		var width = getWidth();
+		var height = getHeight();
+
+		if (width <= 0 || height <= 0 || width == backImage.getWidth() && height == backImage.getHeight()) {
+			return false;
+		}
+
+		synchronized (bufferLock) {
+
+			var previousBackImage = backImage;
+			var previousFrontImage = frontImage;
+
+			backImage = pool.createImage(width, height);
+			frontImage = pool.createImage(width, height);
+
+			var graphics = frontImage.createGraphics();
+
+			try {
+
+				graphics.setColor(BLACK);
+				graphics.fillRect(0, 0, width, height);
+				graphics.drawImage(previousFrontImage,
+						(width - previousFrontImage.getWidth()) / 2,
+						(height - previousFrontImage.getHeight()) / 2, null);
+
+			} finally {
+
+				graphics.dispose();
+			}
+
+			pool.release(previousBackImage);
+			pool.release(previousFrontImage);
+
+			// the presentation image is resized by the next painting
+			frontGeneration++;
+			staleArea = getImageBounds();
+		}
+
+		markDirty();
+		return true;
+	}
+
+	/**
+	 * @return bounds of the images
+	 * @since 0.0.2
+	 */
+	private Rectangle getImageBounds() {
+		return new Rectangle(0, 0, frontImage.getWidth(), frontImage.getHeight());
+	}
+
+	/**
+	 * Paints the bounding box of the areas marked dirty since the last painting, or stops the paint timer if there
+	 * is none.
+	 *
+	 * @since 0.0.2
+	 */
+	private void paintDirtyArea() {
+
+		Rectangle area;
+
+		synchronized (dirtyAreaLock) {
+
+			area = dirtyArea;
+			dirtyArea = null;
+
+			if (area == null) {
+				paintTimer.stop();
+			}
+		}
+
+		if (area != null) {
+			paintImmediately(area);
+		}
+	}
+
 	@Override
 	public void paintComponent(Graphics graphics) {
 
 		var graphics2d = (Graphics2D) graphics;
 
 		super.paintComponent(graphics2d);
-		graphics2d.drawImage(image, 0, 0, this);
+		drawFrontImage(graphics2d);
 
 		if (messageDisplayed && message != null) {
 
@@ -88,8 +315,104 @@ public class FractalView extends JComponent {
 		}
 	}
 
+	/**
+	 * Draws the front image through the presentation image, copying its stale areas first. The front image is
+	 * drawn directly if volatile images are not supported. The buffer lock is only held to get the front image and
+	 * its stale area, so that swaps and publications do not wait for the painting. If the front image is swapped or
+	 * resized during the copy, the copy may be torn and the new front image is copied before being drawn.
+	 *
+	 * @param graphics graphics in which to draw
+	 * @since 0.0.2
+	 */
+	private void drawFrontImage(Graphics2D graphics) {
+
+		var presented = false;
+
+		while (!presented) {
+
+			BufferedImage image;
+			Rectangle area;
+			long generation;
+
+			synchronized (bufferLock) {
+
+				image = frontImage;
+				area = staleArea;
+				generation = frontGeneration;
+				staleArea = null;
+			}
+
+			var configuration = getGraphicsConfiguration();
+
+			if (configuration == null) {
+
+				graphics.drawImage(image, 0, 0, null);
+				return;
+			}
+
+			var width = image.getWidth();
+			var height = image.getHeight();
+
+			var status = presentationImage == null ?
+					IMAGE_INCOMPATIBLE :
+					presentationImage.validate(configuration);
+
+			if (status == IMAGE_INCOMPATIBLE ||
+					presentationImage.getWidth() != width || presentationImage.getHeight() != height) {
+
+				if (presentationImage != null) {
+					presentationImage.flush();
+				}
+
+				presentationImage = configuration.createCompatibleVolatileImage(width, height);
+				status = IMAGE_INCOMPATIBLE;
+			}
+
+			if (status != IMAGE_OK) {
+				area = new Rectangle(0, 0, width, height);
+			}
+
+			if (area != null) {
+
+				var presentationGraphics = presentationImage.createGraphics();
+
+				try {
+
+					presentationGraphics.setClip(area);
+					presentationGraphics.drawImage(image, 0, 0, null);
+
+				} finally {
+
+					presentationGraphics.dispose();
+				}
+			}
+
+			if (isFrontGeneration(generation)) {
+
+				graphics.drawImage(presentationImage, 0, 0, null);
+				presented = !presentationImage.contentsLost();
+			}
+		}
+	}
+
+	/**
+	 * @param generation generation of the front image
+	 * @return whether the front image is still of the given generation, not swapped nor resized since
+	 * @since 0.0.2
+	 */
+	private boolean isFrontGeneration(long generation) {
+
+		synchronized (bufferLock) {
+			return frontGeneration == generation;
+		}
+	}
+
+	/**
+	 * @return back image, in which to render the next frame
+	 * @since 0.0.0
+	 */
 	public BufferedImage getImage() {
-		return image;
+		return backImage;
 	}
 
 	public boolean isMessageDisplayed() {
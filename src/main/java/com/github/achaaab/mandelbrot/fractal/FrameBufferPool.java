@@ -0,0 +1,119 @@
+package com.github.achaaab.mandelbrot.fractal;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static java.awt.image.Raster.createPackedRaster;
+import static java.lang.Long.highestOneBit;
+import static java.lang.Math.max;
+
+/**
+ * Pool of RGB frame images, so that resizing a view does not allocate a new multi-megabyte image at every step. Images
+ * are backed by arrays of size classes: multiples of an eighth of the previous power of 2. An array is therefore
+ * reused by every image of the same size class, while wasting at most 12.5 % of its size. This class is thread-safe.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class FrameBufferPool {
+
+	private static final DirectColorModel RGB_COLOR_MODEL = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+	/**
+	 * Gives the size class of a buffer: the smallest multiple of an eighth of the previous power of 2 that is greater
+	 * than or equal to the size.
+	 *
+	 * @param size buffer size, in elements
+	 * @return buffer capacity, in elements
+	 * @since 0.0.2
+	 */
+	public static long getSizeClass(long size) {
+
+		var step = max(highestOneBit(size - 1) >> 3, 1);
+		return (size + step - 1) / step * step;
+	}
+
+	private final int capacity;
+	private final Deque<int[]> freeArrays;
+
+	/**
+	 * Creates a new empty pool.
+	 *
+	 * @param capacity maximum number of free arrays kept, the least recently released being dropped first
+	 * @since 0.0.2
+	 */
+	public FrameBufferPool(int capacity) {
+
+		this.capacity = capacity;
+
+		freeArrays = new ArrayDeque<>(capacity + 1);
+	}
+
+	/**
+	 * Creates an RGB image, with the same type and layout as {@link BufferedImage#TYPE_INT_RGB}, backed by a pooled
+	 * array. Its content is undefined.
+	 *
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @return created image, to release when no longer used
+	 * @since 0.0.2
+	 */
+	public BufferedImage createImage(int width, int height) {
+
+		var pixelCount = width * height;
+		var dataBuffer = new DataBufferInt(acquire(pixelCount), pixelCount);
+		var raster = createPackedRaster(dataBuffer, width, height, width, RGB_COLOR_MODEL.getMasks(), null);
+
+		return new BufferedImage(RGB_COLOR_MODEL, raster, false, null);
+	}
+
+	/**
+	 * Releases an image created by this pool, so that its array can back a later image.
+	 *
+	 * @param image image to release, it must not be used afterward
+	 * @since 0.0.2
+	 */
+	public void release(BufferedImage image) {
+		release(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+	}
+
+	/**
+	 * @param size minimum array length
+	 * @return free array of the size class, or a new one if there is none
+	 * @since 0.0.2
+	 */
+	private synchronized int[] acquire(int size) {
+
+		var sizeClass = getSizeClass(size);
+		var iterator = freeArrays.iterator();
+
+		while (iterator.hasNext()) {
+
+			var array = iterator.next();
+
+			if (array.length == sizeClass) {
+
+				iterator.remove();
+				return array;
+			}
+		}
+
+		return new int[(int) sizeClass];
+	}
+
+	/**
+	 * @param array array to release
+	 * @since 0.0.2
+	 */
+	private synchronized void release(int[] array) {
+
+		freeArrays.addFirst(array);
+
+		if (freeArrays.size() > capacity) {
+			freeArrays.removeLast();
+		}
+	}
+}
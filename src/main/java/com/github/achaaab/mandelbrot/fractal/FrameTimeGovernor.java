@@ -0,0 +1,75 @@
+package com.github.achaaab.mandelbrot.fractal;
+
+import java.time.Duration;
+
+import static java.lang.Math.clamp;
+import static java.lang.Math.sqrt;
+
+/**
+ * Picks the resolution of interactive frames so that they are rendered within a target frame time. The cost of a
+ * pixel is estimated from the recent frames, so that the resolution follows the cost of the viewed area.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class FrameTimeGovernor {
+
+	/**
+	 * Lowest resolution, relative to the full resolution on each axis.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final double MIN_SCALE = 1.0 / 8;
+
+	/**
+	 * Weight of the last frame in the estimated cost of a pixel.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double SMOOTHING = 0.5;
+
+	private final long targetFrameTime;
+	private double pixelCost;
+
+	/**
+	 * Creates a new governor, starting at full resolution.
+	 *
+	 * @param targetFrameTime time in which to render interactive frames
+	 * @since 0.0.2
+	 */
+	public FrameTimeGovernor(Duration targetFrameTime) {
+
+		this.targetFrameTime = targetFrameTime.toNanos();
+
+		pixelCost = 0.0;
+	}
+
+	/**
+	 * @param pixelCount number of pixels at full resolution
+	 * @return resolution at which to render the next interactive frame, relative to the full resolution on each
+	 * axis, between {@link #MIN_SCALE} and 1
+	 * @since 0.0.2
+	 */
+	public synchronized double getScale(long pixelCount) {
+
+		return pixelCost == 0.0 ?
+				1.0 :
+				clamp(sqrt(targetFrameTime / (pixelCost * pixelCount)), MIN_SCALE, 1.0);
+	}
+
+	/**
+	 * Updates the estimated cost of a pixel with a rendered frame.
+	 *
+	 * @param pixelCount number of rendered pixels
+	 * @param frameTime time spent rendering the frame
+	 * @since 0.0.2
+	 */
+	public synchronized void update(long pixelCount, Duration frameTime) {
+
+		var framePixelCost = (double) frameTime.toNanos() / pixelCount;
+
+		pixelCost = pixelCost == 0.0 ?
+				framePixelCost :
+				SMOOTHING * framePixelCost + (1 - SMOOTHING) * pixelCost;
+	}
+}
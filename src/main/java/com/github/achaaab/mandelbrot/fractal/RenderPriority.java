@@ -0,0 +1,31 @@
+package com.github.achaaab.mandelbrot.fractal;
+
+/**
+ * Priority of a render task, from the highest to the lowest.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public enum RenderPriority {
+
+	/**
+	 * Work the user is waiting for, such as the next frame of a view.
+	 *
+	 * @since 0.0.2
+	 */
+	INTERACTIVE,
+
+	/**
+	 * Work the user may wait for soon, such as prefetched tiles.
+	 *
+	 * @since 0.0.2
+	 */
+	SPECULATIVE,
+
+	/**
+	 * Work nobody is watching, such as batch jobs and exports.
+	 *
+	 * @since 0.0.2
+	 */
+	BATCH
+}
@@ -0,0 +1,379 @@
+package com.github.achaaab.mandelbrot.fractal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static com.github.achaaab.mandelbrot.fractal.RenderPriority.INTERACTIVE;
+import static java.lang.Math.max;
+import static java.lang.System.nanoTime;
+
+/**
+ * Runs the render tasks of several clients (views, background jobs) on one bounded pool of workers. The parallel
+ * streams of the engines, forked from the tasks, run on the same pool, so that clients do not compete for the common
+ * pool without coordination. This class is thread-safe.
+ *
+ * <p>Each client starts its tasks in submission order, running at most a given number of them at the same time, one
+ * by default. The number of clients running tasks is bounded: when a client ends its tasks, the next client to start
+ * is the one whose next task has the highest priority, and among those of the same priority, the one which used the
+ * least running time, for fairness. Interactive tasks may always start, on a slot kept for them, while other tasks
+ * only start when no interactive task is waiting or running. Running tasks are never interrupted, so background
+ * clients should submit tasks of limited duration.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class RenderService {
+
+	/**
+	 * Default number of clients running tasks at the same time, the last slot being kept for interactive tasks.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int DEFAULT_CONCURRENCY = 4;
+
+	private static RenderService sharedService;
+
+	/**
+	 * @return render service shared by the whole application, using every available processor, created on first use
+	 * @since 0.0.2
+	 */
+	public static synchronized RenderService getShared() {
+
+		if (sharedService == null) {
+			sharedService = new RenderService(Runtime.getRuntime().availableProcessors(), DEFAULT_CONCURRENCY);
+		}
+
+		return sharedService;
+	}
+
+	private final ForkJoinPool pool;
+	private final int concurrency;
+	private final List<Client> clients;
+
+	private int runningClientCount;
+	private int interactiveCount;
+	private long sequence;
+
+	/**
+	 * Creates a new render service.
+	 *
+	 * @param parallelism number of workers
+	 * @param concurrency maximum number of clients running tasks at the same time, at least 2 so that a slot is kept
+	 * for interactive tasks
+	 * @since 0.0.2
+	 */
+	public RenderService(int parallelism, int concurrency) {
+
+		this.concurrency = max(concurrency, 2);
+
+		pool = new ForkJoinPool(parallelism);
+		clients = new ArrayList<>();
+
+		runningClientCount = 0;
+		interactiveCount = 0;
+		sequence = 0;
+	}
+
+	/**
+	 * Creates a new client, running its tasks one at a time.
+	 *
+	 * @return created client
+	 * @since 0.0.2
+	 */
+	public Client createClient() {
+		return createClient(1);
+	}
+
+	/**
+	 * Creates a new client, running several tasks at the same time, such as a pool of batch workers pulling their
+	 * jobs from the queue of the client. A client only takes one slot of the service, whatever its concurrency.
+	 *
+	 * @param concurrency maximum number of tasks of the client running at the same time
+	 * @return created client
+	 * @since 0.0.2
+	 */
+	public synchronized Client createClient(int concurrency) {
+
+		var client = new Client(max(concurrency, 1));
+
+		// a new client starts with the least running time of the other clients, not to be favored indefinitely
+		client.runningTime = clients.stream().mapToLong(other -> other.runningTime).min().orElse(0);
+		clients.add(client);
+
+		return client;
+	}
+
+	/**
+	 * @return maximum number of clients running tasks at the same time
+	 * @since 0.0.2
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Gives the workers of this service, for short asynchronous actions related to render tasks, such as the delivery
+	 * of rendered tiles. Actions executed directly on the workers do not take a slot of this service.
+	 *
+	 * @return workers of this service
+	 * @since 0.0.2
+	 */
+	public Executor getExecutor() {
+		return pool;
+	}
+
+	/**
+	 * @return number of clients running tasks
+	 * @since 0.0.2
+	 */
+	public synchronized int getRunningClientCount() {
+		return runningClientCount;
+	}
+
+	/**
+	 * Starts waiting tasks, while slots are available.
+	 *
+	 * @since 0.0.2
+	 */
+	private synchronized void dispatch() {
+
+		var client = getNextClient();
+
+		while (client != null) {
+
+			var task = client.tasks.poll();
+			var runningClient = client;
+
+			if (client.runningCount++ == 0) {
+				runningClientCount++;
+			}
+
+			if (task.priority() == INTERACTIVE) {
+				interactiveCount++;
+			}
+
+			pool.execute(() -> run(runningClient, task));
+			client = getNextClient();
+		}
+	}
+
+	/**
+	 * @return the client whose next task is to start, {@code null} if no task can start
+	 * @since 0.0.2
+	 */
+	private Client getNextClient() {
+
+		Client next = null;
+
+		for (var client : clients) {
+
+			var task = client.tasks.peek();
+			var startable = client.runningCount < client.concurrency && task != null;
+
+			if (startable && (next == null || isBefore(client, task, next))) {
+				next = client;
+			}
+		}
+
+		if (next == null) {
+			return null;
+		}
+
+		// a running client already has a slot, the last slot is kept for interactive tasks
+		var slotCount = next.runningCount > 0 ? runningClientCount : runningClientCount + 1;
+
+		if (next.tasks.peek().priority() == INTERACTIVE) {
+			return slotCount <= concurrency ? next : null;
+		} else {
+			return slotCount < concurrency && interactiveCount == 0 ? next : null;
+		}
+	}
+
+	/**
+	 * @param client waiting client
+	 * @param task next task of the waiting client
+	 * @param other other waiting client
+	 * @return whether the task of the waiting client is to start before the task of the other client
+	 * @since 0.0.2
+	 */
+	private static boolean isBefore(Client client, Task task, Client other) {
+
+		var otherTask = other.tasks.peek();
+		var priorityComparison = task.priority().compareTo(otherTask.priority());
+
+		if (priorityComparison != 0) {
+			return priorityComparison < 0;
+		} else if (client.runningTime != other.runningTime) {
+			return client.runningTime < other.runningTime;
+		} else {
+			return task.sequence() < otherTask.sequence();
+		}
+	}
+
+	/**
+	 * Runs a task on a worker, then starts the next tasks.
+	 *
+	 * @param client client of the task
+	 * @param task task to run
+	 * @since 0.0.2
+	 */
+	private void run(Client client, Task task) {
+
+		var start = nanoTime();
+
+		try {
+
+			task.action().run();
+
+		} finally {
+
+			synchronized (this) {
+
+				client.runningTime += nanoTime() - start;
+
+				if (--client.runningCount == 0) {
+					runningClientCount--;
+				}
+
+				if (task.priority() == INTERACTIVE) {
+					interactiveCount--;
+				}
+
+				client.closeIfDone();
+			}
+
+			dispatch();
+		}
+	}
+
+	/**
+	 * Client of the render service, starting its tasks in submission order and running a bounded number of them at
+	 * the same time. With a concurrency of 1, it runs its tasks one at a time, as a single thread executor would, but
+	 * on the workers of the service.
+	 *
+	 * @author Jonathan Guéhenneux
+	 * @since 0.0.2
+	 */
+	public final class Client {
+
+		private final int concurrency;
+		private final Queue<Task> tasks;
+		private int runningCount;
+		private long runningTime;
+		private CompletableFuture<Void> closing;
+
+		/**
+		 * Creates a new client, without task.
+		 *
+		 * @param concurrency maximum number of tasks of this client running at the same time
+		 * @since 0.0.2
+		 */
+		private Client(int concurrency) {
+
+			this.concurrency = concurrency;
+
+			tasks = new ArrayDeque<>();
+			runningCount = 0;
+		}
+
+		/**
+		 * Submits a task, started after the previous tasks of this client.
+		 *
+		 * @param priority priority of the task
+		 * @param action action to run
+		 * @return future completed when the action has run
+		 * @since 0.0.2
+		 */
+		public CompletableFuture<Void> execute(RenderPriority priority, Runnable action) {
+
+			return submit(priority, () -> {
+
+				action.run();
+				return null;
+			});
+		}
+
+		/**
+		 * Submits a task, started after the previous tasks of this client.
+		 *
+		 * @param priority priority of the task
+		 * @param action action to run
+		 * @param <T> result type
+		 * @return future completed with the result of the action, or exceptionally if the action fails
+		 * @since 0.0.2
+		 */
+		public <T> CompletableFuture<T> submit(RenderPriority priority, Supplier<T> action) {
+
+			var future = new CompletableFuture<T>();
+
+			Runnable completingAction = () -> {
+
+				try {
+					future.complete(action.get());
+				} catch (RuntimeException | Error exception) {
+					future.completeExceptionally(exception);
+				}
+			};
+
+			synchronized (RenderService.this) {
+				tasks.add(new Task(priority, completingAction, sequence++));
+			}
+
+			dispatch();
+
+			return future;
+		}
+
+		/**
+		 * Removes this client from the service once its tasks are run, this client must not be used afterward.
+		 *
+		 * @return future completed when every task of this client has run
+		 * @since 0.0.2
+		 */
+		public CompletableFuture<Void> close() {
+
+			synchronized (RenderService.this) {
+
+				if (closing == null) {
+
+					closing = new CompletableFuture<>();
+					closeIfDone();
+				}
+
+				return closing;
+			}
+		}
+
+		/**
+		 * Removes this client from the service if it is closed and all its tasks have run.
+		 *
+		 * @since 0.0.2
+		 */
+		private void closeIfDone() {
+
+			if (closing != null && runningCount == 0 && tasks.isEmpty()) {
+
+				clients.remove(this);
+				closing.complete(null);
+			}
+		}
+	}
+
+	/**
+	 * Submitted task.
+	 *
+	 * @param priority priority of the task
+	 * @param action action to run, completing the future of the task
+	 * @param sequence submission order, among every task of the service
+	 * @since 0.0.2
+	 */
+	private record Task(RenderPriority priority, Runnable action, long sequence) {
+
+	}
+}
@@ -10,6 +10,7 @@ import org.jocl.cl_device_id;
 import org.jocl.cl_kernel;
 import org.jocl.cl_mem;
 import org.jocl.cl_platform_id;
+import org.jocl.cl_program;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
@@ -159,8 +160,20 @@ public class JoclHelper {
 	 * @since 0.0.0
 	 */
 	public static cl_mem createOutputBuffer(cl_context context, int width, int height) {
+		return createOutputBuffer(context, (long) width * height);
+	}
+
+	/**
+	 * Creates a write-only buffer of {@code elementCount} int values.
+	 *
+	 * @param context OpenCL context used to create the buffer object
+	 * @param elementCount number of int values
+	 * @return created buffer
+	 * @since 0.0.2
+	 */
+	public static cl_mem createOutputBuffer(cl_context context, long elementCount) {
 
-		var size = (long) width * height * Sizeof.cl_int;
+		var size = elementCount * Sizeof.cl_int;
 		return createBuffer(context, CL.CL_MEM_WRITE_ONLY, size);
 	}
 
@@ -205,6 +218,30 @@ public class JoclHelper {
 	 * @since 0.0.0
 	 */
 	public static cl_kernel createKernel(cl_context context, String resourceName, String name) {
+		return createKernel(createProgram(context, resourceName), name);
+	}
+
+	/**
+	 * Creates a kernel from a built program.
+	 *
+	 * @param program built program
+	 * @param name name of the kernel (it must exist in the given program)
+	 * @return created kernel
+	 * @since 0.0.2
+	 */
+	public static cl_kernel createKernel(cl_program program, String name) {
+		return clCreateKernel(program, name, null);
+	}
+
+	/**
+	 * Creates and builds a program for a given OpenCL context, loading the source code from the named resource.
+	 *
+	 * @param context OpenCL context
+	 * @param resourceName name of the resource containing the program source code
+	 * @return built program
+	 * @since 0.0.2
+	 */
+	public static cl_program createProgram(cl_context context, String resourceName) {
 
 		try {
 
@@ -217,7 +254,7 @@ public class JoclHelper {
 			var program = clCreateProgramWithSource(context, 1, sourcePointer, null, null);
 			clBuildProgram(program, 0, null, null, null, null);
 
-			return clCreateKernel(program, name, null);
+			return program;
 
 		} catch (IOException cause) {
 
@@ -418,7 +455,29 @@ public class JoclHelper {
 	}
 
 	/**
-	 * Reads RGB values from the given RGB buffer and writes it into the given image.
+	 * Enqueues the given 2D kernel over a band of rows: work item {@code (i, j)} is executed for every column
+	 * {@code i} and every row {@code j} of the band. Nothing is enqueued if the band is empty.
+	 *
+	 * @param queue queue in which the kernel will be enqueued
+	 * @param kernel kernel to enqueue
+	 * @param width number of columns
+	 * @param firstRow first row of the band
+	 * @param rowCount number of rows of the band
+	 * @since 0.0.2
+	 */
+	public static void enqueue(cl_command_queue queue, cl_kernel kernel, int width, int firstRow, int rowCount) {
+
+		if (rowCount > 0) {
+
+			var globalWorkOffset = new long[] { 0, firstRow };
+			var globalWorkSize = new long[] { width, rowCount };
+			clEnqueueNDRangeKernel(queue, kernel, 2, globalWorkOffset, globalWorkSize, null, 0, null, null);
+		}
+	}
+
+	/**
+	 * Reads RGB values from the given RGB buffer and writes it into the given image. Only the pixels of the image are
+	 * read, its data array may be larger.
 	 *
 	 * @param commandQueue queue in which the read command will be queued
 	 * @param rgbBuffer RGB values
@@ -431,7 +490,7 @@ public class JoclHelper {
 		var dataBuffer = (DataBufferInt) raster.getDataBuffer();
 		var data = dataBuffer.getData();
 
-		readBuffer(commandQueue, rgbBuffer, data);
+		readBuffer(commandQueue, rgbBuffer, data, image.getWidth() * image.getHeight());
 	}
 
 	/**
@@ -443,8 +502,37 @@ public class JoclHelper {
 	 * @since 0.0.0
 	 */
 	public static void readBuffer(cl_command_queue commandQueue, cl_mem buffer, int[] array) {
+		readBuffer(commandQueue, buffer, array, array.length);
+	}
 
-		var size = (long) array.length * Sizeof.cl_int;
+	/**
+	 * Fills the beginning of the given array reading from the given buffer.
+	 *
+	 * @param commandQueue queue in which the read command will be queued
+	 * @param buffer buffer to read
+	 * @param array array to write
+	 * @param elementCount number of int values to read
+	 * @since 0.0.2
+	 */
+	public static void readBuffer(cl_command_queue commandQueue, cl_mem buffer, int[] array, int elementCount) {
+
+		var size = (long) elementCount * Sizeof.cl_int;
+		var arrayPointer = Pointer.to(array);
+
+		clEnqueueReadBuffer(commandQueue, buffer, CL.CL_TRUE, 0, size, arrayPointer, 0, null, null);
+	}
+
+	/**
+	 * Fills the given array reading from the given buffer.
+	 *
+	 * @param commandQueue queue in which the read command will be queued
+	 * @param buffer buffer to read
+	 * @param array array to write
+	 * @since 0.0.2
+	 */
+	public static void readBuffer(cl_command_queue commandQueue, cl_mem buffer, float[] array) {
+
+		var size = (long) array.length * Sizeof.cl_float;
 		var arrayPointer = Pointer.to(array);
 
 		clEnqueueReadBuffer(commandQueue, buffer, CL.CL_TRUE, 0, size, arrayPointer, 0, null, null);
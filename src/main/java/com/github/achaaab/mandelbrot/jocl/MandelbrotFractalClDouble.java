@@ -1,5 +1,6 @@
 package com.github.achaaab.mandelbrot.jocl;
 
+import com.github.achaaab.mandelbrot.IterationImage;
 import com.github.achaaab.mandelbrot.MandelbrotFractal;
 import org.jocl.CL;
 import org.jocl.cl_command_queue;
@@ -8,19 +9,28 @@ import org.jocl.cl_kernel;
 import org.jocl.cl_mem;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
+import static com.github.achaaab.mandelbrot.fractal.FrameBufferPool.getSizeClass;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createBuffer;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createCommandQueue;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createContext;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createKernel;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createOutputBuffer;
+import static com.github.achaaab.mandelbrot.jocl.JoclHelper.createProgram;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.dumpDeviceKeyInformation;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.enqueue;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.getDevices;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.getPlatforms;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.hasDoublePrecisionSupport;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.loadImage;
+import static com.github.achaaab.mandelbrot.jocl.JoclHelper.readBuffer;
 import static com.github.achaaab.mandelbrot.jocl.JoclHelper.setKernelArgument;
+import static org.jocl.CL.clReleaseCommandQueue;
+import static org.jocl.CL.clReleaseContext;
+import static org.jocl.CL.clReleaseKernel;
+import static org.jocl.CL.clReleaseMemObject;
+import static org.jocl.CL.clReleaseProgram;
 
 /**
  * Mandelbrot fractal computed with OpenCL, using double precision floating point numbers.
@@ -33,10 +43,16 @@ public class MandelbrotFractalClDouble extends MandelbrotFractal {
 	private final cl_context context;
 	private final cl_command_queue commandQueue;
 	private final cl_kernel kernel;
+	private final cl_kernel iterationKernel;
 
 	private cl_mem rgbBuffer;
+	private long rgbBufferSize;
 	private final cl_mem paletteBuffer;
 
+	private cl_mem iterationBuffer;
+	private cl_mem fractionBuffer;
+	private long iterationBufferSize;
+
 	/**
 	 * @param minX
 	 * @param maxX
@@ -63,10 +79,41 @@ public class MandelbrotFractalClDouble extends MandelbrotFractal {
 		context = createContext(platform, device);
 
 		commandQueue = createCommandQueue(context, device);
-		kernel = createKernel(context, "kernels/mandelbrot_double.cl", "computeMandelbrot");
+		var program = createProgram(context, "kernels/mandelbrot_double.cl");
+		kernel = createKernel(program, "computeMandelbrot");
+		iterationKernel = createKernel(program, "computeIterations");
+		// the kernels keep the program alive until they are released
+		clReleaseProgram(program);
 		paletteBuffer = createBuffer(context, commandQueue, palette);
 	}
 
+	@Override
+	protected MandelbrotFractal createWorker() {
+		return new MandelbrotFractalClDouble(getMinX(), getMaxX(), getMinY(), getMaxY(), iterations);
+	}
+
+	@Override
+	public void release() {
+
+		super.release();
+
+		if (rgbBuffer != null) {
+			clReleaseMemObject(rgbBuffer);
+		}
+
+		if (iterationBuffer != null) {
+
+			clReleaseMemObject(iterationBuffer);
+			clReleaseMemObject(fractionBuffer);
+		}
+
+		clReleaseMemObject(paletteBuffer);
+		clReleaseKernel(kernel);
+		clReleaseKernel(iterationKernel);
+		clReleaseCommandQueue(commandQueue);
+		clReleaseContext(context);
+	}
+
 	@Override
 	public void compute(BufferedImage image) {
 
@@ -79,8 +126,17 @@ public class MandelbrotFractalClDouble extends MandelbrotFractal {
 		var scaleX = width / imageWidth;
 		var scaleY = height / imageHeight;
 
-		if (rgbBuffer == null) {
-			rgbBuffer = createOutputBuffer(context, imageWidth, imageHeight);
+		// buffers are sized by class, so that resizing the view does not reallocate them at every step
+		var bufferSize = getSizeClass(imageWidth * imageHeight);
+
+		if (rgbBufferSize != bufferSize) {
+
+			if (rgbBuffer != null) {
+				clReleaseMemObject(rgbBuffer);
+			}
+
+			rgbBuffer = createOutputBuffer(context, bufferSize);
+			rgbBufferSize = bufferSize;
 		}
 
 		var kernelArgumentIndex = 0;
@@ -94,9 +150,81 @@ public class MandelbrotFractalClDouble extends MandelbrotFractal {
 		setKernelArgument(kernel, kernelArgumentIndex++, scaleY);
 		setKernelArgument(kernel, kernelArgumentIndex++, iterations);
 		setKernelArgument(kernel, kernelArgumentIndex++, paletteBuffer);
-		setKernelArgument(kernel, kernelArgumentIndex, palette.length);
+		setKernelArgument(kernel, kernelArgumentIndex++, palette.length);
+		setKernelArgument(kernel, kernelArgumentIndex++, getBailout());
+		setKernelArgument(kernel, kernelArgumentIndex++, smooth ? 1 : 0);
+		setKernelArgument(kernel, kernelArgumentIndex, (float) SMOOTH_OFFSET);
+
+		// rows copied from their mirror about the real axis are not computed
+		var mirrorRowSum = getMirrorRowSum(minY, scaleY, imageHeight);
+		var mirroredRowEnd = getMirroredRowEnd(mirrorRowSum);
 
-		enqueue(commandQueue, kernel, imageWidth, imageHeight);
+		enqueue(commandQueue, kernel, imageWidth, 0, getFirstMirroredRow(mirrorRowSum, imageHeight));
+		enqueue(commandQueue, kernel, imageWidth, mirroredRowEnd, imageHeight - mirroredRowEnd);
 		loadImage(commandQueue, rgbBuffer, image);
+
+		var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		mirrorRows(rgb, imageWidth, imageHeight, mirrorRowSum);
+	}
+
+	@Override
+	public void compute(IterationImage image) {
+
+		var minX = getMinX();
+		var minY = getMinY();
+		var width = getWidth();
+		var height = getHeight();
+		var imageWidth = image.getWidth();
+		var imageHeight = image.getHeight();
+		var scaleX = width / imageWidth;
+		var scaleY = height / imageHeight;
+		var smooth = image.isSmooth();
+
+		var bufferSize = getSizeClass(imageWidth * imageHeight);
+
+		if (iterationBufferSize != bufferSize) {
+
+			if (iterationBuffer != null) {
+
+				clReleaseMemObject(iterationBuffer);
+				clReleaseMemObject(fractionBuffer);
+			}
+
+			// fractions are floats, of the same size as ints
+			iterationBuffer = createOutputBuffer(context, bufferSize);
+			fractionBuffer = createOutputBuffer(context, bufferSize);
+			iterationBufferSize = bufferSize;
+		}
+
+		var kernelArgumentIndex = 0;
+
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, iterationBuffer);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, fractionBuffer);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, imageWidth);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, imageHeight);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, minX);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, minY);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, scaleX);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, scaleY);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, iterations);
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, (smooth ? SMOOTH_BAILOUT : BAILOUT));
+		setKernelArgument(iterationKernel, kernelArgumentIndex++, smooth ? 1 : 0);
+		setKernelArgument(iterationKernel, kernelArgumentIndex, (float) SMOOTH_OFFSET);
+
+		image.setMaxIterations(iterations);
+
+		var mirrorRowSum = getMirrorRowSum(minY, scaleY, imageHeight);
+		var mirroredRowEnd = getMirroredRowEnd(mirrorRowSum);
+
+		enqueue(commandQueue, iterationKernel, imageWidth, 0, getFirstMirroredRow(mirrorRowSum, imageHeight));
+		enqueue(commandQueue, iterationKernel, imageWidth, mirroredRowEnd, imageHeight - mirroredRowEnd);
+		readBuffer(commandQueue, iterationBuffer, image.getIterations());
+		mirrorRows(image.getIterations(), imageWidth, imageHeight, mirrorRowSum);
+
+		if (smooth) {
+
+			readBuffer(commandQueue, fractionBuffer, image.getFractions());
+			mirrorRows(image.getFractions(), imageWidth, imageHeight, mirrorRowSum);
+		}
 	}
 }
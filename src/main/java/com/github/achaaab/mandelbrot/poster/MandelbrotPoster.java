@@ -0,0 +1,54 @@
+package com.github.achaaab.mandelbrot.poster;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+/**
+ * Headless application rendering a Mandelbrot poster of arbitrary size into a raw memory-mapped file.
+ * An interrupted rendering resumes when the application is run again with the same arguments.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotPoster {
+
+	private static final int TILE_SIZE = 512;
+
+	/// Entry point of the poster renderer.
+	///
+	/// @param arguments
+	///     0. computing method (see [ComputingMethod])
+	///     1. image width in pixels
+	///     2. image height in pixels
+	///     3. maximum number of iterations
+	///     4. output file
+	///     5. optional bounds: minimum x, maximum x, minimum y, maximum y
+	/// @throws IOException if an I/O error occurs while writing the poster
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException {
+
+		var method = ComputingMethod.valueOf(arguments[0]);
+		var width = parseInt(arguments[1]);
+		var height = parseInt(arguments[2]);
+		var iterations = parseInt(arguments[3]);
+		var output = Path.of(arguments[4]);
+
+		var minX = arguments.length > 8 ? parseDouble(arguments[5]) : -2.0;
+		var maxX = arguments.length > 8 ? parseDouble(arguments[6]) : 0.6;
+		var minY = arguments.length > 8 ? parseDouble(arguments[7]) : -1.3;
+		var maxY = arguments.length > 8 ? parseDouble(arguments[8]) : 1.3;
+
+		var fractal = method.create(minX, maxX, minY, maxY, iterations);
+		var renderer = new PosterRenderer(fractal);
+
+		try (var poster = PosterFile.open(output, width, height, TILE_SIZE, minX, maxX, minY, maxY, iterations)) {
+			renderer.render(poster);
+		}
+	}
+}
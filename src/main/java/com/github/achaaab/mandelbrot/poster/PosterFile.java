@@ -0,0 +1,449 @@
+package com.github.achaaab.mandelbrot.poster;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static java.lang.Math.min;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Raw RGB image of arbitrary size, stored in a memory-mapped file and written tile by tile.
+ * Completed tiles are recorded in a journal next to the image file, so that an interrupted rendering can resume
+ * where it stopped. Heap usage does not depend on the image size.
+ *
+ * <p>File layout, all values being big-endian:</p>
+ * <ul>
+ *   <li>0: magic number {@code MANDPSTR}</li>
+ *   <li>8: format version</li>
+ *   <li>12: image width in pixels</li>
+ *   <li>16: image height in pixels</li>
+ *   <li>20: tile size in pixels</li>
+ *   <li>24: maximum number of iterations</li>
+ *   <li>28: reserved</li>
+ *   <li>32: minimum x, maximum x, minimum y, maximum y</li>
+ *   <li>64: {@code width x height} RGB integers, row by row from top to bottom</li>
+ * </ul>
+ * <p>The journal is a sequence of completed tile indices, as 4 bytes big-endian integers.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class PosterFile implements AutoCloseable {
+
+	private static final long MAGIC = 0x4D414E44_50535452L;
+	private static final int VERSION = 1;
+
+	private static final ValueLayout.OfLong LONG_LAYOUT = JAVA_LONG_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfInt INT_LAYOUT = JAVA_INT_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfDouble DOUBLE_LAYOUT = JAVA_DOUBLE_UNALIGNED.withOrder(BIG_ENDIAN);
+
+	/**
+	 * Size of the header in bytes. It is a multiple of 4 so that pixels are aligned.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final long HEADER_SIZE = 64;
+
+	/**
+	 * Creates a new poster file, or resumes the existing one if its journal is present and its header matches
+	 * the given parameters.
+	 *
+	 * @param path path of the image file, the journal is created next to it
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param tileSize tile size in pixels
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param iterations maximum number of iterations
+	 * @return opened poster file
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if an interrupted rendering with different parameters is found at the given path
+	 * @since 0.0.2
+	 */
+	public static PosterFile open(Path path, int width, int height, int tileSize,
+			double minX, double maxX, double minY, double maxY, int iterations) throws IOException {
+
+		var journalPath = getJournalPath(path);
+		var resuming = Files.exists(path) && Files.exists(journalPath);
+
+		var channel = resuming ?
+				FileChannel.open(path, READ, WRITE) :
+				FileChannel.open(path, READ, WRITE, CREATE, TRUNCATE_EXISTING);
+
+		var size = HEADER_SIZE + (long) width * height * Integer.BYTES;
+
+		if (!resuming) {
+
+			// grows the file, leaving pixels as holes until they are written
+			channel.write(ByteBuffer.allocate(1), size - 1);
+		}
+
+		var poster = new PosterFile(channel, READ_WRITE, journalPath, resuming);
+
+		if (resuming) {
+
+			if (poster.width != width || poster.height != height || poster.tileSize != tileSize ||
+					poster.iterations != iterations ||
+					poster.minX != minX || poster.maxX != maxX || poster.minY != minY || poster.maxY != maxY) {
+
+				poster.close();
+				throw new IllegalStateException("interrupted rendering with different parameters in " + path);
+			}
+
+		} else {
+
+			poster.writeHeader(width, height, tileSize, minX, maxX, minY, maxY, iterations);
+		}
+
+		return poster;
+	}
+
+	/**
+	 * Opens an existing poster file for reading.
+	 *
+	 * @param path path of the image file
+	 * @return opened poster file
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public static PosterFile openReadOnly(Path path) throws IOException {
+
+		var channel = FileChannel.open(path, READ);
+		return new PosterFile(channel, READ_ONLY, null, true);
+	}
+
+	/**
+	 * @param path path of an image file
+	 * @return path of the journal associated with the given image file
+	 * @since 0.0.2
+	 */
+	private static Path getJournalPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".journal");
+	}
+
+	private final FileChannel channel;
+	private final Arena arena;
+	private final MemorySegment segment;
+	private final FileChannel journal;
+	private final BitSet completedTiles;
+
+	private int width;
+	private int height;
+	private int tileSize;
+	private int iterations;
+	private double minX;
+	private double maxX;
+	private double minY;
+	private double maxY;
+
+	/**
+	 * @param channel channel of the image file
+	 * @param mode mapping mode
+	 * @param journalPath path of the journal, {@code null} if the poster is only read
+	 * @param readHeader whether to read the header of the existing image file
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private PosterFile(FileChannel channel, FileChannel.MapMode mode, Path journalPath, boolean readHeader)
+			throws IOException {
+
+		this.channel = channel;
+
+		arena = Arena.ofShared();
+		segment = channel.map(mode, 0, channel.size(), arena);
+		completedTiles = new BitSet();
+
+		if (readHeader) {
+			readHeader();
+		}
+
+		if (journalPath == null) {
+
+			journal = null;
+
+		} else {
+
+			if (Files.exists(journalPath)) {
+				readJournal(journalPath);
+			}
+
+			journal = FileChannel.open(journalPath, WRITE, CREATE, APPEND);
+		}
+	}
+
+	/**
+	 * @throws IOException if the file is not a poster file
+	 * @since 0.0.2
+	 */
+	private void readHeader() throws IOException {
+
+		if (segment.byteSize() < HEADER_SIZE || segment.get(LONG_LAYOUT, 0) != MAGIC) {
+			throw new IOException("not a poster file");
+		}
+
+		var version = segment.get(INT_LAYOUT, 8);
+
+		if (version != VERSION) {
+			throw new IOException("unsupported poster file version: " + version);
+		}
+
+		width = segment.get(INT_LAYOUT, 12);
+		height = segment.get(INT_LAYOUT, 16);
+		tileSize = segment.get(INT_LAYOUT, 20);
+		iterations = segment.get(INT_LAYOUT, 24);
+		minX = segment.get(DOUBLE_LAYOUT, 32);
+		maxX = segment.get(DOUBLE_LAYOUT, 40);
+		minY = segment.get(DOUBLE_LAYOUT, 48);
+		maxY = segment.get(DOUBLE_LAYOUT, 56);
+	}
+
+	/**
+	 * @param width image width in pixels
+	 * @param height image height in pixels
+	 * @param tileSize tile size in pixels
+	 * @param minX minimum x
+	 * @param maxX maximum x
+	 * @param minY minimum y
+	 * @param maxY maximum y
+	 * @param iterations maximum number of iterations
+	 * @since 0.0.2
+	 */
+	private void writeHeader(int width, int height, int tileSize,
+			double minX, double maxX, double minY, double maxY, int iterations) {
+
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.iterations = iterations;
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minY = minY;
+		this.maxY = maxY;
+
+		segment.set(LONG_LAYOUT, 0, MAGIC);
+		segment.set(INT_LAYOUT, 8, VERSION);
+		segment.set(INT_LAYOUT, 12, width);
+		segment.set(INT_LAYOUT, 16, height);
+		segment.set(INT_LAYOUT, 20, tileSize);
+		segment.set(INT_LAYOUT, 24, iterations);
+		segment.set(DOUBLE_LAYOUT, 32, minX);
+		segment.set(DOUBLE_LAYOUT, 40, maxX);
+		segment.set(DOUBLE_LAYOUT, 48, minY);
+		segment.set(DOUBLE_LAYOUT, 56, maxY);
+		segment.asSlice(0, HEADER_SIZE).force();
+	}
+
+	/**
+	 * Reads completed tiles from the journal. A trailing incomplete entry, left by a crash while appending,
+	 * is ignored.
+	 *
+	 * @param journalPath path of the journal
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void readJournal(Path journalPath) throws IOException {
+
+		var buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+
+		while (buffer.remaining() >= Integer.BYTES) {
+			completedTiles.set(buffer.getInt());
+		}
+	}
+
+	/**
+	 * Writes a computed tile, flushes it to the storage device, then records it as completed in the journal.
+	 *
+	 * @param tileIndex index of the tile
+	 * @param rgb tile pixels, row by row from top to bottom
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public void writeTile(int tileIndex, int[] rgb) throws IOException {
+
+		var x = getTileX(tileIndex);
+		var y = getTileY(tileIndex);
+		var tileWidth = getTileWidth(tileIndex);
+		var tileHeight = getTileHeight(tileIndex);
+
+		for (var row = 0; row < tileHeight; row++) {
+			MemorySegment.copy(rgb, row * tileWidth, segment, INT_LAYOUT, getOffset(x, y + row), tileWidth);
+		}
+
+		var start = getOffset(x, y);
+		var end = getOffset(x + tileWidth, y + tileHeight - 1);
+		segment.asSlice(start, end - start).force();
+
+		journal.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, tileIndex));
+		journal.force(false);
+
+		completedTiles.set(tileIndex);
+	}
+
+	/**
+	 * Reads consecutive full rows.
+	 *
+	 * @param firstRow first row to read (from the top)
+	 * @param rowCount number of rows to read
+	 * @param rgb array in which to store the pixels of the read rows
+	 * @since 0.0.2
+	 */
+	public void readRows(int firstRow, int rowCount, int[] rgb) {
+
+		var pixelCount = rowCount * width;
+		MemorySegment.copy(segment, INT_LAYOUT, getOffset(0, firstRow), rgb, 0, pixelCount);
+	}
+
+	/**
+	 * @param x pixel column
+	 * @param y pixel row (from the top)
+	 * @return offset of the pixel in the file
+	 * @since 0.0.2
+	 */
+	private long getOffset(int x, int y) {
+		return HEADER_SIZE + ((long) y * width + x) * Integer.BYTES;
+	}
+
+	/**
+	 * @return number of tile columns
+	 * @since 0.0.2
+	 */
+	public int getTileColumnCount() {
+		return (width + tileSize - 1) / tileSize;
+	}
+
+	/**
+	 * @return number of tile rows
+	 * @since 0.0.2
+	 */
+	public int getTileRowCount() {
+		return (height + tileSize - 1) / tileSize;
+	}
+
+	/**
+	 * @return number of tiles
+	 * @since 0.0.2
+	 */
+	public int getTileCount() {
+		return getTileColumnCount() * getTileRowCount();
+	}
+
+	/**
+	 * @param tileIndex index of a tile
+	 * @return left pixel column of the tile
+	 * @since 0.0.2
+	 */
+	public int getTileX(int tileIndex) {
+		return tileIndex % getTileColumnCount() * tileSize;
+	}
+
+	/**
+	 * @param tileIndex index of a tile
+	 * @return top pixel row of the tile
+	 * @since 0.0.2
+	 */
+	public int getTileY(int tileIndex) {
+		return tileIndex / getTileColumnCount() * tileSize;
+	}
+
+	/**
+	 * @param tileIndex index of a tile
+	 * @return width of the tile, smaller than the tile size for the last column
+	 * @since 0.0.2
+	 */
+	public int getTileWidth(int tileIndex) {
+		return min(tileSize, width - getTileX(tileIndex));
+	}
+
+	/**
+	 * @param tileIndex index of a tile
+	 * @return height of the tile, smaller than the tile size for the last row
+	 * @since 0.0.2
+	 */
+	public int getTileHeight(int tileIndex) {
+		return min(tileSize, height - getTileY(tileIndex));
+	}
+
+	/**
+	 * @param tileIndex index of a tile
+	 * @return whether the tile is recorded as completed in the journal
+	 * @since 0.0.2
+	 */
+	public boolean isCompleted(int tileIndex) {
+		return completedTiles.get(tileIndex);
+	}
+
+	/**
+	 * @return number of tiles recorded as completed in the journal
+	 * @since 0.0.2
+	 */
+	public int getCompletedTileCount() {
+		return completedTiles.cardinality();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		try {
+
+			if (journal != null) {
+				journal.close();
+			}
+
+		} finally {
+
+			arena.close();
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.achaaab.mandelbrot.poster;
+
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * Renders a poster file tile by tile, skipping the tiles already recorded as completed in its journal.
+ * Each tile is computed by the given Mandelbrot fractal, whose bounds are moved over the poster.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class PosterRenderer {
+
+	private final MandelbrotFractal fractal;
+
+	private BufferedImage tileImage;
+
+	/**
+	 * Creates a new poster renderer.
+	 *
+	 * @param fractal Mandelbrot fractal computing the tiles
+	 * @since 0.0.2
+	 */
+	public PosterRenderer(MandelbrotFractal fractal) {
+		this.fractal = fractal;
+	}
+
+	/**
+	 * Renders every tile not completed yet.
+	 *
+	 * @param poster poster to render
+	 * @throws IOException if an I/O error occurs while writing a tile
+	 * @since 0.0.2
+	 */
+	public void render(PosterFile poster) throws IOException {
+
+		var width = poster.getWidth();
+		var height = poster.getHeight();
+		var minX = poster.getMinX();
+		var minY = poster.getMinY();
+		var scaleX = (poster.getMaxX() - minX) / width;
+		var scaleY = (poster.getMaxY() - minY) / height;
+
+		var tileCount = poster.getTileCount();
+		var completedTileCount = poster.getCompletedTileCount();
+
+		for (var tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+
+			if (!poster.isCompleted(tileIndex)) {
+
+				var tileX = poster.getTileX(tileIndex);
+				var tileY = poster.getTileY(tileIndex);
+				var tileWidth = poster.getTileWidth(tileIndex);
+				var tileHeight = poster.getTileHeight(tileIndex);
+
+				// rows are stored from the top, whereas y increases upward
+				var tileMinX = minX + tileX * scaleX;
+				var tileMinY = minY + (height - tileY - tileHeight) * scaleY;
+
+				fractal.setBounds(
+						tileMinX, tileMinX + tileWidth * scaleX,
+						tileMinY, tileMinY + tileHeight * scaleY);
+
+				var image = getTileImage(tileWidth, tileHeight);
+				fractal.compute(image);
+
+				var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+				poster.writeTile(tileIndex, rgb);
+
+				completedTileCount++;
+
+				IO.println(String.format("tile %d / %d (%.1f%%)",
+						completedTileCount, tileCount, 100.0 * completedTileCount / tileCount));
+			}
+		}
+	}
+
+	/**
+	 * Gets an image of the requested size, reusing the previous one when possible. Only tiles of the last column
+	 * or of the last row have a different size.
+	 *
+	 * @param width image width
+	 * @param height image height
+	 * @return image of the requested size
+	 * @since 0.0.2
+	 */
+	private BufferedImage getTileImage(int width, int height) {
+
+		if (tileImage == null || tileImage.getWidth() != width || tileImage.getHeight() != height) {
+			tileImage = new BufferedImage(width, height, TYPE_INT_RGB);
+		}
+
+		return tileImage;
+	}
+}
@@ -0,0 +1,82 @@
+package com.github.achaaab.mandelbrot.server;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+import com.github.achaaab.mandelbrot.tile.TileCache;
+import com.github.achaaab.mandelbrot.tile.TileRenderer;
+import com.github.achaaab.mandelbrot.tile.TileStore;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor;
+
+/**
+ * Headless application serving Mandelbrot tiles over HTTP, for slippy map viewers. Requests are handled by
+ * virtual threads, so that many clients waiting for tiles cost little, while renderings are bounded separately.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotTileServer {
+
+	/// Entry point of the tile server.
+	///
+	/// @param arguments
+	///     0. computing method (see [ComputingMethod])
+	///     1. optional HTTP port (8080 by default)
+	///     2. optional maximum number of iterations (1024 by default)
+	///     3. optional maximum number of tiles rendered at the same time (number of processors by default)
+	///     4. optional PNG cache budget in mebibytes (256 by default)
+	///     5. optional directory of a persistent tile store
+	///     6. optional size cap of the persistent tile store in mebibytes (1024 by default)
+	/// @throws IOException if an I/O error occurs
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException {
+
+		var method = ComputingMethod.valueOf(arguments[0]);
+		var port = arguments.length > 1 ? parseInt(arguments[1]) : 8080;
+		var iterations = arguments.length > 2 ? parseInt(arguments[2]) : 1024;
+
+		var maxRenders = arguments.length > 3 ?
+				parseInt(arguments[3]) :
+				Runtime.getRuntime().availableProcessors();
+
+		var cacheBudget = arguments.length > 4 ? parseLong(arguments[4]) : 256;
+		var storeSizeCap = arguments.length > 6 ? parseLong(arguments[6]) : 1024;
+		var store = arguments.length > 5 ? new TileStore(Path.of(arguments[5]), storeSizeCap << 20) : null;
+
+		if (store != null) {
+
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+
+				try {
+					store.close();
+				} catch (IOException ioException) {
+					System.err.printf("Tile store error: %s.%n", ioException.getMessage());
+				}
+			}));
+		}
+
+		var cache = new TileCache<byte[]>(cacheBudget << 20, png -> png.length);
+
+		var handler = new TileHandler(() -> {
+
+			var fractal = method.create(-2.0, 0.6, -1.3, 1.3, iterations);
+			fractal.setSmooth(true);
+			return new TileRenderer(fractal, null, store);
+
+		}, maxRenders, cache);
+
+		var server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/", handler);
+		server.setExecutor(newVirtualThreadPerTaskExecutor());
+		server.start();
+
+		IO.println("Serving tiles at http://localhost:" + port + "/{z}/{x}/{y}.png");
+	}
+}
@@ -0,0 +1,251 @@
+package com.github.achaaab.mandelbrot.server;
+
+import com.github.achaaab.mandelbrot.tile.TileCache;
+import com.github.achaaab.mandelbrot.tile.TileKey;
+import com.github.achaaab.mandelbrot.tile.TileRenderer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static com.github.achaaab.mandelbrot.tile.TileRenderer.MAX_LEVEL;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.lang.Thread.currentThread;
+
+/**
+ * Serves PNG tiles at {@code /{z}/{x}/{y}.png}, following the XYZ convention of slippy maps: level 0 is a single
+ * tile and rows increase downward. Identical requests received while a tile is rendered wait for that rendering
+ * instead of starting another one. Renderings are bounded by a semaphore, independently of the number of requests
+ * being handled, and rendered tiles are cached as PNG.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class TileHandler implements HttpHandler {
+
+	private static final Pattern TILE_PATH = Pattern.compile("/(\\d{1,2})/(\\d{1,18})/(\\d{1,18})\\.png");
+
+	/**
+	 * Tiles of given parameters never change, browsers can keep them for a day.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final String CACHE_CONTROL = "public, max-age=86400";
+
+	private final Supplier<TileRenderer> rendererFactory;
+	private final Queue<TileRenderer> idleRenderers;
+	private final TileRenderer keyRenderer;
+	private final Semaphore renderPermits;
+	private final TileCache<byte[]> cache;
+	private final ConcurrentHashMap<TileKey, CompletableFuture<byte[]>> pendingTiles;
+
+	/**
+	 * Creates a new tile handler.
+	 *
+	 * @param rendererFactory factory of tile renderers, each one having its own fractal, all with the same settings
+	 * @param maxRenders maximum number of tiles rendered at the same time
+	 * @param cache cache of PNG tiles
+	 * @since 0.0.2
+	 */
+	public TileHandler(Supplier<TileRenderer> rendererFactory, int maxRenders, TileCache<byte[]> cache) {
+
+		this.rendererFactory = rendererFactory;
+		this.cache = cache;
+
+		idleRenderers = new ConcurrentLinkedQueue<>();
+		renderPermits = new Semaphore(maxRenders);
+		pendingTiles = new ConcurrentHashMap<>();
+
+		// only reads the settings of its fractal to build keys, it can be used at the same time to render tiles
+		keyRenderer = rendererFactory.get();
+		idleRenderers.add(keyRenderer);
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+
+		try (exchange) {
+
+			var matcher = TILE_PATH.matcher(exchange.getRequestURI().getPath());
+
+			if (!exchange.getRequestMethod().equals("GET")) {
+
+				exchange.sendResponseHeaders(405, -1);
+
+			} else if (!matcher.matches()) {
+
+				exchange.sendResponseHeaders(404, -1);
+
+			} else {
+
+				var level = parseInt(matcher.group(1));
+				var column = parseLong(matcher.group(2));
+				var tileRow = parseLong(matcher.group(3));
+
+				if (level > MAX_LEVEL || column >= 1L << level || tileRow >= 1L << level) {
+
+					exchange.sendResponseHeaders(404, -1);
+
+				} else {
+
+					// XYZ rows increase downward, whereas quadtree rows increase upward
+					sendPng(exchange, level, column, (1L << level) - 1 - tileRow);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends a tile, or an internal error if it cannot be rendered.
+	 *
+	 * @param exchange HTTP exchange
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void sendPng(HttpExchange exchange, int level, long column, long row) throws IOException {
+
+		byte[] png;
+
+		try {
+
+			png = getPng(level, column, row);
+
+		} catch (RuntimeException exception) {
+
+			System.err.printf("Tile error: %s.%n", exception.getMessage());
+			exchange.sendResponseHeaders(500, -1);
+			return;
+		}
+
+		var headers = exchange.getResponseHeaders();
+		headers.set("Content-Type", "image/png");
+		headers.set("Cache-Control", CACHE_CONTROL);
+
+		exchange.sendResponseHeaders(200, png.length);
+		exchange.getResponseBody().write(png);
+	}
+
+	/**
+	 * Gets a tile from the cache, or waits for its rendering if it is already being rendered, or renders it.
+	 *
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @return PNG tile
+	 * @since 0.0.2
+	 */
+	private byte[] getPng(int level, long column, long row) {
+
+		var key = keyRenderer.getKey(level, column, row);
+		var png = cache.get(key);
+
+		if (png == null) {
+
+			var renderedTile = new CompletableFuture<byte[]>();
+			var pendingTile = pendingTiles.putIfAbsent(key, renderedTile);
+
+			if (pendingTile == null) {
+
+				pendingTile = renderedTile;
+				render(level, column, row, key, renderedTile);
+			}
+
+			png = pendingTile.join();
+		}
+
+		return png;
+	}
+
+	/**
+	 * Renders a tile when a render permit is available, then caches it and completes its pending rendering.
+	 *
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @param key tile key
+	 * @param renderedTile pending rendering of the tile, to complete
+	 * @since 0.0.2
+	 */
+	private void render(int level, long column, long row, TileKey key, CompletableFuture<byte[]> renderedTile) {
+
+		try {
+
+			// the tile may have been cached between the cache miss and the registration of the pending rendering
+			var png = cache.get(key);
+
+			if (png == null) {
+
+				renderPermits.acquire();
+
+				try {
+					png = renderPng(level, column, row);
+				} finally {
+					renderPermits.release();
+				}
+
+				cache.put(key, png);
+			}
+
+			renderedTile.complete(png);
+
+		} catch (InterruptedException interruptedException) {
+
+			renderedTile.completeExceptionally(interruptedException);
+			currentThread().interrupt();
+
+		} catch (RuntimeException exception) {
+
+			renderedTile.completeExceptionally(exception);
+
+		} finally {
+
+			pendingTiles.remove(key);
+		}
+	}
+
+	/**
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @return rendered PNG tile
+	 * @since 0.0.2
+	 */
+	private byte[] renderPng(int level, long column, long row) {
+
+		var renderer = idleRenderers.poll();
+
+		if (renderer == null) {
+			renderer = rendererFactory.get();
+		}
+
+		try {
+
+			var tile = renderer.getTile(level, column, row);
+			var outputStream = new ByteArrayOutputStream();
+			ImageIO.write(tile, "png", outputStream);
+			return outputStream.toByteArray();
+
+		} catch (IOException ioException) {
+
+			throw new UncheckedIOException(ioException);
+
+		} finally {
+
+			idleRenderers.add(renderer);
+		}
+	}
+}
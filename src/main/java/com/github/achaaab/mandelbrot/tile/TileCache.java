@@ -0,0 +1,99 @@
+package com.github.achaaab.mandelbrot.tile;
+
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used cache of rendered tiles, bounded by a number of bytes rather than a number of tiles.
+ * This class is thread-safe.
+ *
+ * @param <T> tile type
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class TileCache<T> {
+
+	private final long budget;
+	private final ToLongFunction<? super T> sizeFunction;
+	private final LinkedHashMap<TileKey, T> tiles;
+
+	private long size;
+
+	/**
+	 * Creates a new empty tile cache.
+	 *
+	 * @param budget maximum number of bytes used by cached tiles
+	 * @param sizeFunction function giving the number of bytes used by a tile
+	 * @since 0.0.2
+	 */
+	public TileCache(long budget, ToLongFunction<? super T> sizeFunction) {
+
+		this.budget = budget;
+		this.sizeFunction = sizeFunction;
+
+		// access order, so that iteration starts with the least recently used tile
+		tiles = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @param key tile key
+	 * @return cached tile, {@code null} if the tile is not cached
+	 * @since 0.0.2
+	 */
+	public synchronized T get(TileKey key) {
+		return tiles.get(key);
+	}
+
+	/**
+	 * Caches a tile, then evicts the least recently used tiles until the budget is respected.
+	 *
+	 * @param key tile key
+	 * @param tile rendered tile, it must not be modified once cached
+	 * @since 0.0.2
+	 */
+	public synchronized void put(TileKey key, T tile) {
+
+		var replacedTile = tiles.put(key, tile);
+
+		if (replacedTile != null) {
+			size -= sizeFunction.applyAsLong(replacedTile);
+		}
+
+		size += sizeFunction.applyAsLong(tile);
+
+		var iterator = tiles.values().iterator();
+
+		while (size > budget && iterator.hasNext()) {
+
+			size -= sizeFunction.applyAsLong(iterator.next());
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes every cached tile.
+	 *
+	 * @since 0.0.2
+	 */
+	public synchronized void clear() {
+
+		tiles.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return number of bytes used by cached tiles
+	 * @since 0.0.2
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return maximum number of bytes used by cached tiles
+	 * @since 0.0.2
+	 */
+	public long getBudget() {
+		return budget;
+	}
+}
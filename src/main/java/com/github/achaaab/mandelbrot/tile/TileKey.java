@@ -0,0 +1,18 @@
+package com.github.achaaab.mandelbrot.tile;
+
+/**
+ * Address of a tile in the quadtree, completed with the parameters changing its pixels.
+ *
+ * @param level quadtree level, the root tile being at level 0
+ * @param x tile column, increasing to the right
+ * @param y tile row, increasing upward
+ * @param iterations maximum number of iterations
+ * @param precision number of bits of the floating point numbers used by the engine
+ * @param smooth whether escaping pixels are colored with the normalized iteration count
+ * @param antialiasing number of samples per axis computed for edge pixels
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public record TileKey(int level, long x, long y, int iterations, int precision, boolean smooth, int antialiasing) {
+
+}
@@ -0,0 +1,532 @@
+package com.github.achaaab.mandelbrot.tile;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static java.awt.RenderingHints.KEY_INTERPOLATION;
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.Math.ceil;
+import static java.lang.Math.floor;
+import static java.lang.Math.hypot;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.Math.scalb;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.synchronizedSet;
+import static java.util.Comparator.comparingDouble;
+
+/**
+ * Renders images by compositing square tiles of a power-of-two quadtree, computing only the tiles missing from
+ * a cache. Tiles are rendered at the first level whose resolution is at least the resolution of the image, then
+ * scaled down, so that zooming within a level and panning back and forth reuse cached tiles.
+ *
+ * <p>The root tile covers {@code [-4, 4] x [-4, 4]}, so that tile bounds are exact in binary floating point.</p>
+ *
+ * <p>If a persistent tile store is given, tiles missing from the cache are colored from stored iteration tiles, or
+ * computed as iteration tiles and stored, unless they are antialiased.</p>
+ *
+ * <p>The Mandelbrot set is symmetric about the real axis, and so is the quadtree: a tile whose mirror is cached is
+ * copied from it, only its bottom row being computed.</p>
+ *
+ * <p>Tiles are rendered in order of distance from a focus point, usually the mouse position, and each tile is
+ * reported as soon as it is drawn, so that the area the user is looking at is painted first.</p>
+ *
+ * <p>Tiles of likely next areas can be rendered speculatively while idle, speculation hits and misses being
+ * counted.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class TileRenderer {
+
+	/**
+	 * Width and height of tiles in pixels.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final int TILE_SIZE = 256;
+
+	private static final double ROOT_MIN = -4.0;
+	private static final double ROOT_SIZE = 8.0;
+
+	/**
+	 * Deepest level, far beyond the resolution of double precision, keeping tile indices in the range of longs.
+	 *
+	 * @since 0.0.2
+	 */
+	public static final int MAX_LEVEL = 60;
+
+	/**
+	 * Maximum number of speculatively rendered tiles remembered to count speculation hits, far more than a cache can
+	 * hold.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int MAX_SPECULATIVE_KEYS = 1 << 16;
+
+	/**
+	 * @param pixelSize size of an image pixel in the complex plane
+	 * @return first quadtree level whose pixels are not larger than the given size
+	 * @since 0.0.2
+	 */
+	public static int getLevel(double pixelSize) {
+
+		var level = (int) ceil(log(ROOT_SIZE / (TILE_SIZE * pixelSize)) / log(2));
+		return min(max(level, 0), MAX_LEVEL);
+	}
+
+	/**
+	 * @param tile rendered tile
+	 * @return number of bytes used by the pixels of the tile
+	 * @since 0.0.2
+	 */
+	public static long getSize(BufferedImage tile) {
+		return (long) tile.getWidth() * tile.getHeight() * Integer.BYTES;
+	}
+
+	/**
+	 * @param level quadtree level
+	 * @return width and height of tiles at the given level, in the complex plane
+	 * @since 0.0.2
+	 */
+	public static double getTileSize(int level) {
+		return scalb(ROOT_SIZE, -level);
+	}
+
+	/**
+	 * @param level quadtree level
+	 * @param index tile column (or row)
+	 * @return minimum x (or y) of the tile
+	 * @since 0.0.2
+	 */
+	public static double getTileMin(int level, long index) {
+		return ROOT_MIN + index * getTileSize(level);
+	}
+
+	private final MandelbrotFractal fractal;
+	private final TileCache<BufferedImage> cache;
+	private final TileStore store;
+
+	private final Set<TileKey> speculativeKeys;
+	private final AtomicLong speculationHitCount;
+	private final AtomicLong speculationMissCount;
+
+	/**
+	 * Creates a new tile renderer, without persistent tile store.
+	 *
+	 * @param fractal Mandelbrot fractal computing the tiles, dedicated to this renderer because its bounds are
+	 * changed for each tile
+	 * @param cache cache of rendered tiles, {@code null} to render every tile
+	 * @since 0.0.2
+	 */
+	public TileRenderer(MandelbrotFractal fractal, TileCache<BufferedImage> cache) {
+		this(fractal, cache, null);
+	}
+
+	/**
+	 * Creates a new tile renderer.
+	 *
+	 * @param fractal Mandelbrot fractal computing the tiles, dedicated to this renderer because its bounds are
+	 * changed for each tile
+	 * @param cache cache of rendered tiles, {@code null} to render every tile
+	 * @param store persistent store of iteration tiles, {@code null} to compute every tile missing from the cache
+	 * @since 0.0.2
+	 */
+	public TileRenderer(MandelbrotFractal fractal, TileCache<BufferedImage> cache, TileStore store) {
+
+		this.fractal = fractal;
+		this.cache = cache;
+		this.store = store;
+
+		speculativeKeys = synchronizedSet(newSetFromMap(new LinkedHashMap<>() {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<TileKey, Boolean> eldest) {
+				return size() > MAX_SPECULATIVE_KEYS;
+			}
+		}));
+
+		speculationHitCount = new AtomicLong();
+		speculationMissCount = new AtomicLong();
+	}
+
+	/**
+	 * Renders the current area of a Mandelbrot fractal, with its current iterations and coloring settings, from the
+	 * center of the image.
+	 *
+	 * @param viewFractal Mandelbrot fractal whose area and settings are rendered, it is not modified
+	 * @param image image in which to render
+	 * @since 0.0.2
+	 */
+	public void render(MandelbrotFractal viewFractal, BufferedImage image) {
+		render(viewFractal, image, new Point(image.getWidth() / 2, image.getHeight() / 2), rectangle -> {});
+	}
+
+	/**
+	 * Renders the current area of a Mandelbrot fractal, with its current iterations and coloring settings. Tiles
+	 * are rendered in order of distance from the focus.
+	 *
+	 * @param viewFractal Mandelbrot fractal whose area and settings are rendered, it is not modified
+	 * @param image image in which to render
+	 * @param focus point of the image rendered first
+	 * @param listener notified of the image area of each tile as soon as it is drawn
+	 * @since 0.0.2
+	 */
+	public void render(MandelbrotFractal viewFractal, BufferedImage image, Point focus,
+			Consumer<Rectangle> listener) {
+
+		applySettings(viewFractal);
+
+		var placements = getPlacements(
+				viewFractal.getMinX(), viewFractal.getMaxX(), viewFractal.getMinY(), viewFractal.getMaxY(),
+				image.getWidth(), image.getHeight(), focus);
+
+		var graphics = image.createGraphics();
+		graphics.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
+
+		try {
+
+			for (var placement : placements) {
+
+				countSpeculation(getKey(placement.level(), placement.column(), placement.row()));
+
+				var tile = getTile(placement.level(), placement.column(), placement.row());
+				var area = placement.area();
+
+				graphics.drawImage(tile, area.x, area.y, area.x + area.width, area.y + area.height,
+						0, 0, TILE_SIZE, TILE_SIZE, null);
+
+				listener.accept(area);
+			}
+
+		} finally {
+
+			graphics.dispose();
+		}
+	}
+
+	/**
+	 * Speculatively renders the tiles of an area that are missing from the cache, in order of distance from the
+	 * focus, so that a later rendering of the area is served from the cache. Speculation stops as soon as it is
+	 * preempted, or when it has rendered a quarter of the cache budget, so that it does not evict the tiles of the
+	 * current area.
+	 *
+	 * @param viewFractal Mandelbrot fractal whose settings are rendered, it is not modified
+	 * @param minX minimum x of the area
+	 * @param maxX maximum x of the area
+	 * @param minY minimum y of the area
+	 * @param maxY maximum y of the area
+	 * @param width width of the area in pixels
+	 * @param height height of the area in pixels
+	 * @param focus point of the area rendered first, in pixels
+	 * @param preempted whether a real rendering is waiting, checked before each tile
+	 * @return number of rendered tiles
+	 * @since 0.0.2
+	 */
+	public int prefetch(MandelbrotFractal viewFractal, double minX, double maxX, double minY, double maxY,
+			int width, int height, Point focus, BooleanSupplier preempted) {
+
+		if (cache == null) {
+			return 0;
+		}
+
+		applySettings(viewFractal);
+
+		var maxTileCount = cache.getBudget() / 4 / ((long) TILE_SIZE * TILE_SIZE * Integer.BYTES);
+		var tileCount = 0;
+
+		for (var placement : getPlacements(minX, maxX, minY, maxY, width, height, focus)) {
+
+			if (tileCount >= maxTileCount || preempted.getAsBoolean()) {
+				break;
+			}
+
+			var key = getKey(placement.level(), placement.column(), placement.row());
+
+			if (cache.get(key) == null) {
+
+				getTile(placement.level(), placement.column(), placement.row());
+				speculativeKeys.add(key);
+				tileCount++;
+			}
+		}
+
+		return tileCount;
+	}
+
+	/**
+	 * Counts a speculation hit if a tile about to be drawn was cached by speculation, or a miss if it is not cached.
+	 *
+	 * @param key key of the tile about to be drawn
+	 * @since 0.0.2
+	 */
+	private void countSpeculation(TileKey key) {
+
+		var cached = cache != null && cache.get(key) != null;
+
+		if (speculativeKeys.remove(key) && cached) {
+			speculationHitCount.incrementAndGet();
+		} else if (!cached) {
+			speculationMissCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Copies the iterations, coloring settings and interior index of a fractal to the fractal of this renderer.
+	 *
+	 * @param viewFractal Mandelbrot fractal whose settings are copied, it is not modified
+	 * @since 0.0.2
+	 */
+	private void applySettings(MandelbrotFractal viewFractal) {
+
+		fractal.setIterations(viewFractal.getIterations());
+		fractal.setSmooth(viewFractal.isSmooth());
+		fractal.setAntialiasing(viewFractal.getAntialiasing());
+		fractal.setInteriorIndex(viewFractal.getInteriorIndex());
+	}
+
+	/**
+	 * @param minX minimum x of the area
+	 * @param maxX maximum x of the area
+	 * @param minY minimum y of the area
+	 * @param maxY maximum y of the area
+	 * @param width width of the area in pixels
+	 * @param height height of the area in pixels
+	 * @param focus point of the area, in pixels
+	 * @return tiles covering the area, in order of distance from the focus
+	 * @since 0.0.2
+	 */
+	private List<TilePlacement> getPlacements(double minX, double maxX, double minY, double maxY,
+			int width, int height, Point focus) {
+
+		var scaleX = (maxX - minX) / width;
+		var scaleY = (maxY - minY) / height;
+		var level = getLevel(min(scaleX, scaleY));
+		var tileSize = getTileSize(level);
+
+		var firstColumn = (long) floor((minX - ROOT_MIN) / tileSize);
+		var lastColumn = (long) ceil((maxX - ROOT_MIN) / tileSize) - 1;
+		var firstRow = (long) floor((minY - ROOT_MIN) / tileSize);
+		var lastRow = (long) ceil((maxY - ROOT_MIN) / tileSize) - 1;
+
+		var placements = new ArrayList<TilePlacement>();
+
+		for (var row = firstRow; row <= lastRow; row++) {
+
+			for (var column = firstColumn; column <= lastColumn; column++) {
+
+				var tileMinX = getTileMin(level, column);
+				var tileMinY = getTileMin(level, row);
+
+				// image rows are numbered from the top, whereas y increases upward
+				var left = (int) round((tileMinX - minX) / scaleX);
+				var right = (int) round((tileMinX + tileSize - minX) / scaleX);
+				var top = (int) round((maxY - tileMinY - tileSize) / scaleY);
+				var bottom = (int) round((maxY - tileMinY) / scaleY);
+
+				var area = new Rectangle(left, top, right - left, bottom - top);
+				placements.add(new TilePlacement(level, column, row, area, getDistance(area, focus)));
+			}
+		}
+
+		placements.sort(comparingDouble(TilePlacement::distance));
+
+		return placements;
+	}
+
+	/**
+	 * @param area image area
+	 * @param point image point
+	 * @return distance from the point to the nearest point of the area, 0 if the area contains the point
+	 * @since 0.0.2
+	 */
+	private static double getDistance(Rectangle area, Point point) {
+
+		var dx = max(max(area.x - point.x, point.x - area.x - area.width), 0);
+		var dy = max(max(area.y - point.y, point.y - area.y - area.height), 0);
+
+		return hypot(dx, dy);
+	}
+
+	/**
+	 * Gets a tile from the cache, or renders and caches it if it is missing. The tile is rendered with the current
+	 * iterations and coloring settings of the fractal of this renderer.
+	 *
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @return rendered tile, it must not be modified
+	 * @since 0.0.2
+	 */
+	public BufferedImage getTile(int level, long column, long row) {
+
+		var key = getKey(level, column, row);
+		var tile = cache == null ? null : cache.get(key);
+
+		if (tile == null) {
+
+			var tileSize = getTileSize(level);
+			var tileMinX = getTileMin(level, column);
+			var tileMinY = getTileMin(level, row);
+
+			fractal.setBounds(tileMinX, tileMinX + tileSize, tileMinY, tileMinY + tileSize);
+			tile = new BufferedImage(TILE_SIZE, TILE_SIZE, TYPE_INT_RGB);
+
+			var mirrorTile = getMirrorTile(level, column, row);
+
+			if (mirrorTile != null) {
+				mirror(mirrorTile, tile, tileMinX, tileMinY, tileSize);
+			} else if (store == null || fractal.getAntialiasing() > 1) {
+				fractal.compute(tile);
+			} else {
+				fractal.colorize(getIterationTile(key), tile);
+			}
+
+			if (cache != null) {
+				cache.put(key, tile);
+			}
+		}
+
+		return tile;
+	}
+
+	/**
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @return cached tile symmetric to the given tile about the real axis, {@code null} if it is not cached or if
+	 * tiles are antialiased, since jittered samples are not symmetric
+	 * @since 0.0.2
+	 */
+	private BufferedImage getMirrorTile(int level, long column, long row) {
+
+		return cache == null || fractal.getAntialiasing() > 1 ?
+				null :
+				cache.get(getKey(level, column, -row - 1));
+	}
+
+	/**
+	 * Fills a tile from its mirror about the real axis. Tile pixels are sampled at their bottom left corner, so
+	 * every row but the bottom one is the mirror of a row of the mirror tile, shifted by one; the bottom row is
+	 * computed.
+	 *
+	 * @param mirrorTile tile symmetric to the tile to fill
+	 * @param tile tile to fill
+	 * @param tileMinX minimum x of the tile to fill
+	 * @param tileMinY minimum y of the tile to fill
+	 * @param tileSize width and height of the tile in the complex plane
+	 * @since 0.0.2
+	 */
+	private void mirror(BufferedImage mirrorTile, BufferedImage tile, double tileMinX, double tileMinY,
+			double tileSize) {
+
+		var mirrorRgb = ((DataBufferInt) mirrorTile.getRaster().getDataBuffer()).getData();
+		var rgb = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+
+		for (var row = 0; row < TILE_SIZE - 1; row++) {
+			System.arraycopy(mirrorRgb, (TILE_SIZE - 2 - row) * TILE_SIZE, rgb, row * TILE_SIZE, TILE_SIZE);
+		}
+
+		var bottomRow = new BufferedImage(TILE_SIZE, 1, TYPE_INT_RGB);
+		fractal.setBounds(tileMinX, tileMinX + tileSize, tileMinY, tileMinY + tileSize / TILE_SIZE);
+		fractal.compute(bottomRow);
+
+		var bottomRgb = ((DataBufferInt) bottomRow.getRaster().getDataBuffer()).getData();
+		System.arraycopy(bottomRgb, 0, rgb, (TILE_SIZE - 1) * TILE_SIZE, TILE_SIZE);
+	}
+
+	/**
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @return key of the tile, with the current iterations and coloring settings of the fractal of this renderer
+	 * @since 0.0.2
+	 */
+	public TileKey getKey(int level, long column, long row) {
+
+		return new TileKey(level, column, row,
+				fractal.getIterations(), fractal.getPrecision(), fractal.isSmooth(), fractal.getAntialiasing());
+	}
+
+	/**
+	 * Gets an iteration tile from the store, or computes and stores it if it is missing. The bounds of the fractal
+	 * must be the bounds of the tile.
+	 *
+	 * @param key tile key
+	 * @return iteration tile
+	 * @since 0.0.2
+	 */
+	private IterationImage getIterationTile(TileKey key) {
+
+		var iterationTile = store.get(key);
+
+		if (iterationTile == null) {
+
+			iterationTile = new IterationImage(TILE_SIZE, TILE_SIZE, key.smooth());
+			fractal.compute(iterationTile);
+
+			try {
+				store.put(key, iterationTile);
+			} catch (IOException ioException) {
+				System.err.printf("Tile store error: %s.%n", ioException.getMessage());
+			}
+		}
+
+		return iterationTile;
+	}
+
+	/**
+	 * @return cache of rendered tiles, {@code null} if rendered tiles are not cached
+	 * @since 0.0.2
+	 */
+	public TileCache<BufferedImage> getCache() {
+		return cache;
+	}
+
+	/**
+	 * @return number of drawn tiles that were rendered by speculation
+	 * @since 0.0.2
+	 */
+	public long getSpeculationHitCount() {
+		return speculationHitCount.get();
+	}
+
+	/**
+	 * @return number of drawn tiles that were missing from the cache
+	 * @since 0.0.2
+	 */
+	public long getSpeculationMissCount() {
+		return speculationMissCount.get();
+	}
+
+	/**
+	 * Tile to draw, with its image area.
+	 *
+	 * @param level quadtree level
+	 * @param column tile column
+	 * @param row tile row, increasing upward
+	 * @param area image area of the tile
+	 * @param distance distance from the focus to the area
+	 * @since 0.0.2
+	 */
+	private record TilePlacement(int level, long column, long row, Rectangle area, double distance) {
+
+	}
+}
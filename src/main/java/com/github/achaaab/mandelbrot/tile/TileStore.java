@@ -0,0 +1,614 @@
+package com.github.achaaab.mandelbrot.tile;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static com.github.achaaab.mandelbrot.data.RunLengthCodec.decode;
+import static com.github.achaaab.mandelbrot.data.RunLengthCodec.encode;
+import static com.github.achaaab.mandelbrot.data.RunLengthCodec.getMaxEncodedSize;
+import static com.github.achaaab.mandelbrot.tile.TileRenderer.TILE_SIZE;
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Persistent store of iteration tiles, surviving restarts and shareable between computers by copying its directory.
+ *
+ * <p>Tiles are appended to sparse segment files of fixed capacity, memory-mapped for reading and writing. Each record is
+ * self-describing, so the index is rebuilt by scanning record headers when the store is opened. When the total size
+ * exceeds the cap, the oldest segment is evicted: its tiles read since they were written are given a second chance
+ * and copied to the current segment, the others are dropped. Segments made mostly of superseded records are
+ * compacted the same way when the store is opened.</p>
+ *
+ * <p>Segment layout, all values being big-endian:</p>
+ * <ul>
+ *   <li>0: magic number {@code MANDTSEG}</li>
+ *   <li>8: format version</li>
+ *   <li>12: reserved</li>
+ *   <li>16: records, until a record without magic number</li>
+ * </ul>
+ * <p>Record layout:</p>
+ * <ul>
+ *   <li>0: magic number {@code TILE}, written last so that an interrupted write is ignored</li>
+ *   <li>4: quadtree level</li>
+ *   <li>8: tile column</li>
+ *   <li>16: tile row</li>
+ *   <li>24: maximum number of iterations</li>
+ *   <li>28: engine precision in bits</li>
+ *   <li>32: flags, bit 0 being set if fractions are stored</li>
+ *   <li>36: tile width in pixels</li>
+ *   <li>40: tile height in pixels</li>
+ *   <li>44: payload length in bytes</li>
+ *   <li>48: CRC-32 of the payload</li>
+ *   <li>52: reserved</li>
+ *   <li>56: payload, coded with {@link com.github.achaaab.mandelbrot.data.RunLengthCodec}</li>
+ * </ul>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class TileStore implements AutoCloseable {
+
+	/**
+	 * Number of segments when the store is full. The more segments, the smaller the part of the store dropped by
+	 * an eviction.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * Minimum capacity of segment files in bytes, large enough for any tile.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final long MIN_SEGMENT_CAPACITY = 1L << 20;
+
+	private static final long SEGMENT_MAGIC = 0x4D414E44_54534547L;
+	private static final int VERSION = 1;
+	private static final int RECORD_MAGIC = 0x54494C45;
+	private static final int FLAG_SMOOTH = 1;
+	private static final long SEGMENT_HEADER_SIZE = 16;
+	private static final int RECORD_HEADER_SIZE = 56;
+	private static final String SEGMENT_EXTENSION = ".seg";
+	private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{1,9})\\.seg");
+
+	private static final ValueLayout.OfLong LONG_LAYOUT = JAVA_LONG_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfInt INT_LAYOUT = JAVA_INT_UNALIGNED.withOrder(BIG_ENDIAN);
+
+	/**
+	 * @param memory memory of a segment
+	 * @param offset offset of a record
+	 * @return key of the record
+	 * @since 0.0.2
+	 */
+	private static TileKey readKey(MemorySegment memory, long offset) {
+
+		return new TileKey(
+				memory.get(INT_LAYOUT, offset + 4),
+				memory.get(LONG_LAYOUT, offset + 8),
+				memory.get(LONG_LAYOUT, offset + 16),
+				memory.get(INT_LAYOUT, offset + 24),
+				memory.get(INT_LAYOUT, offset + 28),
+				(memory.get(INT_LAYOUT, offset + 32) & FLAG_SMOOTH) != 0,
+				1);
+	}
+
+	/**
+	 * @param key tile key
+	 * @return key of the iteration tile, without antialiasing
+	 * @since 0.0.2
+	 */
+	private static TileKey normalize(TileKey key) {
+
+		return key.antialiasing() == 1 ? key :
+				new TileKey(key.level(), key.x(), key.y(), key.iterations(), key.precision(), key.smooth(), 1);
+	}
+
+	private final Path directory;
+	private final long sizeCap;
+	private final long segmentCapacity;
+	private final TreeMap<Integer, Segment> segments;
+	private final Map<TileKey, Entry> index;
+	private final ByteBuffer payloadBuffer;
+	private final CRC32 checksum;
+
+	private Segment currentSegment;
+	private int nextSegmentId;
+	private long size;
+
+	/**
+	 * Opens the tile store in the given directory, creating it if needed.
+	 *
+	 * @param directory directory of the segment files
+	 * @param sizeCap maximum number of bytes of records
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public TileStore(Path directory, long sizeCap) throws IOException {
+
+		this.directory = directory;
+		this.sizeCap = sizeCap;
+
+		segmentCapacity = max(sizeCap / SEGMENT_COUNT, MIN_SEGMENT_CAPACITY);
+		segments = new TreeMap<>();
+		index = new HashMap<>();
+		payloadBuffer = ByteBuffer.allocate(getMaxEncodedSize(TILE_SIZE * TILE_SIZE, true));
+		checksum = new CRC32();
+		nextSegmentId = 0;
+
+		Files.createDirectories(directory);
+
+		try (var paths = Files.list(directory)) {
+
+			for (var path : paths.filter(path -> path.toString().endsWith(SEGMENT_EXTENSION)).sorted().toList()) {
+
+				var matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+
+				// other files, such as stray copies, are ignored
+				if (!matcher.matches()) {
+					continue;
+				}
+
+				var id = parseInt(matcher.group(1));
+
+				// the identifier of an invalid segment is not reused, so that its file is never overwritten
+				nextSegmentId = max(nextSegmentId, id + 1);
+
+				try {
+
+					var segment = new Segment(id, path, 0);
+					segments.put(id, segment);
+					scan(segment);
+
+				} catch (IOException ioException) {
+
+					// such as a segment created right before a power loss, or partially copied from another node
+					System.err.printf("Tile store error: %s, segment skipped.%n", ioException.getMessage());
+				}
+			}
+		}
+
+		if (!segments.isEmpty()) {
+			currentSegment = segments.lastEntry().getValue();
+		}
+
+		compact();
+		evict();
+	}
+
+	/**
+	 * Indexes the records of a segment.
+	 *
+	 * @param segment segment to scan
+	 * @since 0.0.2
+	 */
+	private void scan(Segment segment) {
+
+		var memory = segment.memory;
+		var capacity = memory.byteSize();
+		var offset = SEGMENT_HEADER_SIZE;
+
+		while (offset + RECORD_HEADER_SIZE <= capacity && memory.get(INT_LAYOUT, offset) == RECORD_MAGIC) {
+
+			var payloadLength = memory.get(INT_LAYOUT, offset + 44);
+
+			// a corrupted length is handled like a torn tail
+			if (payloadLength < 0 || payloadLength > payloadBuffer.capacity() ||
+					payloadLength > capacity - offset - RECORD_HEADER_SIZE) {
+
+				break;
+			}
+
+			var recordSize = RECORD_HEADER_SIZE + payloadLength;
+
+			index(readKey(memory, offset), segment, offset, recordSize);
+			offset += recordSize;
+		}
+
+		segment.end = offset;
+		size += offset - SEGMENT_HEADER_SIZE;
+	}
+
+	/**
+	 * Records the location of a tile, superseding any previous record of the same tile.
+	 *
+	 * @param key tile key
+	 * @param segment segment of the record
+	 * @param offset offset of the record in the segment
+	 * @param recordSize size of the record in bytes
+	 * @since 0.0.2
+	 */
+	private void index(TileKey key, Segment segment, long offset, int recordSize) {
+
+		var entry = new Entry(segment, offset, recordSize);
+		var supersededEntry = index.put(key, entry);
+
+		if (supersededEntry != null) {
+			supersededEntry.segment.liveSize -= supersededEntry.recordSize;
+		}
+
+		segment.liveSize += recordSize;
+	}
+
+	/**
+	 * Gets a tile from the store. The antialiasing of the key is ignored, iteration tiles are not antialiased.
+	 *
+	 * @param key tile key
+	 * @return stored iteration tile, {@code null} if the tile is not stored or if its record is corrupted
+	 * @since 0.0.2
+	 */
+	public synchronized IterationImage get(TileKey key) {
+
+		key = normalize(key);
+
+		var entry = index.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		var memory = entry.segment.memory;
+		var offset = entry.offset;
+		var width = memory.get(INT_LAYOUT, offset + 36);
+		var height = memory.get(INT_LAYOUT, offset + 40);
+		var payloadLength = memory.get(INT_LAYOUT, offset + 44);
+		var payload = payloadBuffer.clear().limit(payloadLength);
+
+		// copied to the heap, because checksums cannot be computed on buffers of shared arenas
+		MemorySegment.ofBuffer(payload).copyFrom(memory.asSlice(offset + RECORD_HEADER_SIZE, payloadLength));
+
+		checksum.reset();
+		checksum.update(payload.duplicate());
+
+		if ((int) checksum.getValue() != memory.get(INT_LAYOUT, offset + 48)) {
+
+			index.remove(key);
+			entry.segment.liveSize -= entry.recordSize;
+			return null;
+		}
+
+		var tile = new IterationImage(width, height, key.smooth());
+		decode(payload, tile);
+		tile.setMaxIterations(key.iterations());
+
+		entry.referenced = true;
+		return tile;
+	}
+
+	/**
+	 * Appends a tile to the store, then evicts the oldest segments until the size cap is respected.
+	 * The antialiasing of the key is ignored, iteration tiles are not antialiased.
+	 *
+	 * @param key tile key
+	 * @param tile iteration tile, smooth if the key is smooth
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public synchronized void put(TileKey key, IterationImage tile) throws IOException {
+
+		key = normalize(key);
+
+		payloadBuffer.clear();
+		encode(tile, payloadBuffer);
+		payloadBuffer.flip();
+
+		checksum.reset();
+		checksum.update(payloadBuffer.duplicate());
+
+		var payloadLength = payloadBuffer.remaining();
+		var recordSize = RECORD_HEADER_SIZE + payloadLength;
+		var segment = reserve(recordSize);
+		var memory = segment.memory;
+		var offset = segment.end;
+
+		memory.set(INT_LAYOUT, offset + 4, key.level());
+		memory.set(LONG_LAYOUT, offset + 8, key.x());
+		memory.set(LONG_LAYOUT, offset + 16, key.y());
+		memory.set(INT_LAYOUT, offset + 24, key.iterations());
+		memory.set(INT_LAYOUT, offset + 28, key.precision());
+		memory.set(INT_LAYOUT, offset + 32, key.smooth() ? FLAG_SMOOTH : 0);
+		memory.set(INT_LAYOUT, offset + 36, tile.getWidth());
+		memory.set(INT_LAYOUT, offset + 40, tile.getHeight());
+		memory.set(INT_LAYOUT, offset + 44, payloadLength);
+		memory.set(INT_LAYOUT, offset + 48, (int) checksum.getValue());
+		memory.asSlice(offset + RECORD_HEADER_SIZE, payloadLength).copyFrom(MemorySegment.ofBuffer(payloadBuffer));
+		memory.set(INT_LAYOUT, offset, RECORD_MAGIC);
+
+		index(key, segment, offset, recordSize);
+		segment.end += recordSize;
+		size += recordSize;
+
+		evict();
+	}
+
+	/**
+	 * @param recordSize size of a record to append
+	 * @return segment with enough free space for the record, a new segment if the current one is full
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private Segment reserve(int recordSize) throws IOException {
+
+		if (currentSegment == null || currentSegment.end + recordSize > currentSegment.memory.byteSize()) {
+
+			if (currentSegment != null) {
+				currentSegment.memory.force();
+			}
+
+			var id = nextSegmentId++;
+			var path = directory.resolve(format("%08d%s", id, SEGMENT_EXTENSION));
+
+			currentSegment = new Segment(id, path, segmentCapacity);
+			segments.put(id, currentSegment);
+		}
+
+		return currentSegment;
+	}
+
+	/**
+	 * Copies a record to the current segment, keeping its tile in the store when its segment is deleted.
+	 *
+	 * @param key tile key
+	 * @param entry entry of the record to copy
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void move(TileKey key, Entry entry) throws IOException {
+
+		var recordSize = entry.recordSize;
+		var segment = reserve(recordSize);
+		var offset = segment.end;
+
+		// the magic number is copied last, like when a record is written
+		MemorySegment.copy(entry.segment.memory, entry.offset + Integer.BYTES,
+				segment.memory, offset + Integer.BYTES, recordSize - Integer.BYTES);
+
+		segment.memory.set(INT_LAYOUT, offset, RECORD_MAGIC);
+
+		index(key, segment, offset, recordSize);
+		segment.end += recordSize;
+		size += recordSize;
+	}
+
+	/**
+	 * Deletes the oldest segments until the size cap is respected. Tiles read since they were written or moved are
+	 * moved to the current segment, the other tiles of the deleted segments are dropped.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void evict() throws IOException {
+
+		while (size > sizeCap && segments.size() > 1) {
+
+			var oldestSegment = segments.firstEntry().getValue();
+			var oldestSize = oldestSegment.end - SEGMENT_HEADER_SIZE;
+
+			for (var indexEntry : getEntries(oldestSegment)) {
+
+				var entry = indexEntry.getValue();
+
+				// second chance, unless moving would exceed the cap once the oldest segment is deleted
+				if (entry.referenced && size + entry.recordSize - oldestSize <= sizeCap) {
+					move(indexEntry.getKey(), entry);
+				} else {
+					index.remove(indexEntry.getKey());
+				}
+			}
+
+			delete(oldestSegment);
+		}
+	}
+
+	/**
+	 * Moves the live records of the previous segments made mostly of superseded or corrupted records, then deletes
+	 * those segments.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public synchronized void compact() throws IOException {
+
+		for (var segment : new ArrayList<>(segments.values())) {
+
+			var usedSize = segment.end - SEGMENT_HEADER_SIZE;
+
+			if (segment != currentSegment && segment.liveSize < usedSize / 2) {
+
+				for (var indexEntry : getEntries(segment)) {
+					move(indexEntry.getKey(), indexEntry.getValue());
+				}
+
+				delete(segment);
+			}
+		}
+	}
+
+	/**
+	 * @param segment segment
+	 * @return index entries of the live records of the given segment
+	 * @since 0.0.2
+	 */
+	private ArrayList<Map.Entry<TileKey, Entry>> getEntries(Segment segment) {
+
+		var entries = new ArrayList<Map.Entry<TileKey, Entry>>();
+
+		for (var indexEntry : index.entrySet()) {
+
+			if (indexEntry.getValue().segment == segment) {
+				entries.add(Map.entry(indexEntry.getKey(), indexEntry.getValue()));
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Deletes a segment whose live records were moved or dropped.
+	 *
+	 * @param segment segment to delete
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void delete(Segment segment) throws IOException {
+
+		segments.remove(segment.id);
+		size -= segment.end - SEGMENT_HEADER_SIZE;
+		segment.close();
+		Files.delete(segment.path);
+	}
+
+	/**
+	 * @return number of stored tiles
+	 * @since 0.0.2
+	 */
+	public synchronized int getTileCount() {
+		return index.size();
+	}
+
+	/**
+	 * @return number of bytes of records, including superseded ones
+	 * @since 0.0.2
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+
+		for (var segment : segments.values()) {
+
+			segment.memory.force();
+			segment.close();
+		}
+
+		segments.clear();
+		index.clear();
+	}
+
+	/**
+	 * Memory-mapped segment file.
+	 *
+	 * @since 0.0.2
+	 */
+	private static class Segment {
+
+		private final int id;
+		private final Path path;
+		private final FileChannel channel;
+		private final Arena arena;
+		private final MemorySegment memory;
+
+		private long end;
+		private long liveSize;
+
+		/**
+		 * @param id segment identifier, increasing with the segment age
+		 * @param path path of the segment file
+		 * @param capacity capacity of the new segment file in bytes, {@code 0} to open an existing segment file
+		 * @throws IOException if an I/O error occurs or if an existing file is not a segment
+		 * @since 0.0.2
+		 */
+		private Segment(int id, Path path, long capacity) throws IOException {
+
+			this.id = id;
+			this.path = path;
+
+			var create = capacity > 0;
+
+			channel = create ?
+					FileChannel.open(path, READ, WRITE, CREATE_NEW) :
+					FileChannel.open(path, READ, WRITE);
+
+			if (create) {
+
+				// grows the file, leaving records as holes until they are written
+				channel.write(ByteBuffer.allocate(1), capacity - 1);
+			}
+
+			arena = Arena.ofShared();
+			memory = channel.map(READ_WRITE, 0, channel.size(), arena);
+
+			if (create) {
+
+				memory.set(LONG_LAYOUT, 0, SEGMENT_MAGIC);
+				memory.set(INT_LAYOUT, 8, VERSION);
+				end = SEGMENT_HEADER_SIZE;
+
+				// the header is written to disk at once, records are only forced when the segment is full
+				memory.force();
+
+			} else if (memory.byteSize() < SEGMENT_HEADER_SIZE || memory.get(LONG_LAYOUT, 0) != SEGMENT_MAGIC ||
+					memory.get(INT_LAYOUT, 8) != VERSION) {
+
+				close();
+				throw new IOException("not a tile segment: " + path);
+			}
+		}
+
+		/**
+		 * @throws IOException if an I/O error occurs
+		 * @since 0.0.2
+		 */
+		private void close() throws IOException {
+
+			try {
+				arena.close();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Location of a record in the index.
+	 *
+	 * @since 0.0.2
+	 */
+	private static class Entry {
+
+		private final Segment segment;
+		private final long offset;
+		private final int recordSize;
+
+		private boolean referenced;
+
+		/**
+		 * @param segment segment of the record
+		 * @param offset offset of the record in the segment
+		 * @param recordSize size of the record in bytes
+		 * @since 0.0.2
+		 */
+		private Entry(Segment segment, long offset, int recordSize) {
+
+			this.segment = segment;
+			this.offset = offset;
+			this.recordSize = recordSize;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.github.achaaab.mandelbrot.util;
+
+import static java.lang.Double.doubleToRawLongBits;
+
+/**
+ * Table-driven approximations of elementary functions, fast enough to be evaluated for every pixel.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public final class FastMath {
+
+	private static final int MANTISSA_BITS = 52;
+	private static final long MANTISSA_MASK = (1L << MANTISSA_BITS) - 1;
+	private static final int EXPONENT_BIAS = 1023;
+
+	private static final int TABLE_BITS = 10;
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+	private static final int TABLE_SHIFT = MANTISSA_BITS - TABLE_BITS;
+	private static final long TABLE_REMAINDER_MASK = (1L << TABLE_SHIFT) - 1;
+	private static final double TABLE_REMAINDER_SCALE = 1.0 / (1L << TABLE_SHIFT);
+
+	/**
+	 * {@code log2(1 + k / TABLE_SIZE)} for every {@code k} in {@code [0, TABLE_SIZE]}.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final double[] LOG2_TABLE = createLog2Table();
+
+	/**
+	 * @return table of base 2 logarithms of mantissas
+	 * @since 0.0.2
+	 */
+	private static double[] createLog2Table() {
+
+		var table = new double[TABLE_SIZE + 1];
+
+		for (var k = 0; k <= TABLE_SIZE; k++) {
+			table[k] = Math.log1p((double) k / TABLE_SIZE) / Math.log(2);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Approximates the base 2 logarithm of a positive, finite and normal number.
+	 * The exponent is read directly from the IEEE 754 representation, and the logarithm of the mantissa is
+	 * linearly interpolated in a table of 1024 entries. Absolute error is below {@code 2e-7}.
+	 * No check is performed on the argument: results for zero, negative, subnormal or non-finite arguments
+	 * are meaningless.
+	 *
+	 * @param x positive, finite and normal number
+	 * @return approximation of {@code log2(x)}
+	 * @since 0.0.2
+	 */
+	public static double log2(double x) {
+
+		var bits = doubleToRawLongBits(x);
+		var exponent = (int) (bits >>> MANTISSA_BITS) - EXPONENT_BIAS;
+		var mantissa = bits & MANTISSA_MASK;
+		var index = (int) (mantissa >>> TABLE_SHIFT);
+		var remainder = (mantissa & TABLE_REMAINDER_MASK) * TABLE_REMAINDER_SCALE;
+
+		var log0 = LOG2_TABLE[index];
+		var log1 = LOG2_TABLE[index + 1];
+
+		return exponent + log0 + remainder * (log1 - log0);
+	}
+
+	/**
+	 * Private constructor to prevent instantiation of this utility class.
+	 *
+	 * @since 0.0.2
+	 */
+	private FastMath() {
+
+	}
+}
@@ -0,0 +1,201 @@
+package com.github.achaaab.mandelbrot.video;
+
+import com.github.achaaab.mandelbrot.IterationImage;
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.Math.PI;
+import static java.lang.Math.cos;
+import static java.lang.Math.exp;
+import static java.lang.Math.min;
+import static java.lang.Math.sin;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Exponential map of a Mandelbrot fractal around a point: columns are angles and rows are decreasing radii on a
+ * logarithmic scale. Since the radius step is proportional to the radius, the strip is sampled in square cells at
+ * every scale, and a zoom of any depth is a vertical slide through it.
+ *
+ * <p>A deep strip does not fit the heap, so it is colored and stored in a memory-mapped temporary file, deleted when
+ * the strip is closed.</p>
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class LogPolarStrip implements AutoCloseable {
+
+	/**
+	 * Number of strip rows computed at once, bounding the heap used by point coordinates and iteration counts.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int CHUNK_HEIGHT = 64;
+
+	private final int width;
+	private final int height;
+	private final double centerX;
+	private final double centerY;
+	private final double maxRadius;
+	private final double logStep;
+
+	private final FileChannel channel;
+	private final Arena arena;
+	private final MemorySegment segment;
+
+	/**
+	 * Creates a new strip, not computed yet.
+	 *
+	 * @param path path of the temporary file storing the strip
+	 * @param width number of angles
+	 * @param height number of radii
+	 * @param centerX real part of the zoom center
+	 * @param centerY imaginary part of the zoom center
+	 * @param maxRadius radius of the first row
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public LogPolarStrip(Path path, int width, int height, double centerX, double centerY, double maxRadius)
+			throws IOException {
+
+		this.width = width;
+		this.height = height;
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.maxRadius = maxRadius;
+
+		// square cells: the radius step between rows equals the arc between columns
+		logStep = 2 * PI / width;
+
+		var size = (long) width * height * Integer.BYTES;
+
+		channel = FileChannel.open(path, READ, WRITE, CREATE, TRUNCATE_EXISTING, DELETE_ON_CLOSE);
+		channel.write(ByteBuffer.allocate(1), size - 1);
+
+		arena = Arena.ofShared();
+		segment = channel.map(READ_WRITE, 0, size, arena);
+	}
+
+	/**
+	 * Computes and colors every row of the strip, chunk by chunk.
+	 *
+	 * @param fractal Mandelbrot fractal computing the points, with its iterations and coloring settings
+	 * @since 0.0.2
+	 */
+	public void compute(MandelbrotFractal fractal) {
+
+		var cosines = new double[width];
+		var sines = new double[width];
+
+		for (var column = 0; column < width; column++) {
+
+			var angle = column * logStep;
+			cosines[column] = cos(angle);
+			sines[column] = sin(angle);
+		}
+
+		var x0 = new double[width * CHUNK_HEIGHT];
+		var y0 = new double[width * CHUNK_HEIGHT];
+
+		for (var firstRow = 0; firstRow < height; firstRow += CHUNK_HEIGHT) {
+
+			var chunkHeight = min(CHUNK_HEIGHT, height - firstRow);
+
+			for (var chunkRow = 0; chunkRow < chunkHeight; chunkRow++) {
+
+				var radius = getRadius(firstRow + chunkRow);
+				var pointIndex = chunkRow * width;
+
+				for (var column = 0; column < width; column++) {
+
+					x0[pointIndex] = centerX + radius * cosines[column];
+					y0[pointIndex] = centerY + radius * sines[column];
+					pointIndex++;
+				}
+			}
+
+			var iterationChunk = new IterationImage(width, chunkHeight, fractal.isSmooth());
+			var chunk = new BufferedImage(width, chunkHeight, TYPE_INT_RGB);
+
+			fractal.compute(x0, y0, iterationChunk);
+			fractal.colorize(iterationChunk, chunk);
+
+			var rgb = ((DataBufferInt) chunk.getRaster().getDataBuffer()).getData();
+			MemorySegment.copy(rgb, 0, segment, JAVA_INT, getOffset(0, firstRow), width * chunkHeight);
+		}
+	}
+
+	/**
+	 * @param row strip row
+	 * @return radius of the row
+	 * @since 0.0.2
+	 */
+	public double getRadius(double row) {
+		return maxRadius * exp(-row * logStep);
+	}
+
+	/**
+	 * @param column strip column, in {@code [0, width)}
+	 * @param row strip row, in {@code [0, height)}
+	 * @return RGB color of the cell
+	 * @since 0.0.2
+	 */
+	public int getRgb(int column, int row) {
+		return segment.get(JAVA_INT, getOffset(column, row));
+	}
+
+	/**
+	 * @param column strip column
+	 * @param row strip row
+	 * @return offset of the cell in the file
+	 * @since 0.0.2
+	 */
+	private long getOffset(int column, int row) {
+		return ((long) row * width + column) * Integer.BYTES;
+	}
+
+	/**
+	 * @return number of angles
+	 * @since 0.0.2
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of radii
+	 * @since 0.0.2
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return difference of the natural logarithm of the radius between consecutive rows
+	 * @since 0.0.2
+	 */
+	public double getLogStep() {
+		return logStep;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		arena.close();
+		channel.close();
+	}
+}
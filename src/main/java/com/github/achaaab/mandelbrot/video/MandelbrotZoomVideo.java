@@ -0,0 +1,64 @@
+package com.github.achaaab.mandelbrot.video;
+
+import com.github.achaaab.mandelbrot.ComputingMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+/**
+ * Headless application rendering the frames of a Mandelbrot zoom video as an image sequence.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+class MandelbrotZoomVideo {
+
+	/// Entry point of the zoom video renderer. Only [ComputingMethod#CPU] and [ComputingMethod#CPU_SIMD] can compute
+	/// the exponential map.
+	///
+	/// @param arguments
+	///     0. computing method (see [ComputingMethod])
+	///     1. frame width in pixels
+	///     2. frame height in pixels
+	///     3. maximum number of iterations
+	///     4. real part of the zoom center
+	///     5. imaginary part of the zoom center
+	///     6. width of the first frame in the complex plane
+	///     7. width of the last frame in the complex plane
+	///     8. number of frames
+	///     9. output directory
+	/// @throws IllegalArgumentException if the computing method cannot compute the exponential map
+	/// @throws IOException if an I/O error occurs while writing the frames
+	/// @since 0.0.2
+	///
+	void main(String... arguments) throws IOException {
+
+		var method = ComputingMethod.valueOf(arguments[0]);
+		var width = parseInt(arguments[1]);
+		var height = parseInt(arguments[2]);
+		var iterations = parseInt(arguments[3]);
+		var centerX = parseDouble(arguments[4]);
+		var centerY = parseDouble(arguments[5]);
+		var initialWidth = parseDouble(arguments[6]);
+		var finalWidth = parseDouble(arguments[7]);
+		var frameCount = parseInt(arguments[8]);
+		var outputDirectory = Path.of(arguments[9]);
+
+		// checked before any file or OpenCL context is created
+		if (!method.computesPoints()) {
+			throw new IllegalArgumentException("computing method without arbitrary points: " + method);
+		}
+
+		Files.createDirectories(outputDirectory);
+
+		var fractal = method.create(-2.0, 0.6, -1.3, 1.3, iterations);
+		fractal.setSmooth(true);
+
+		var renderer = new ZoomVideoRenderer(width, height, frameCount);
+		renderer.render(fractal, centerX, centerY, initialWidth, finalWidth, outputDirectory);
+	}
+}
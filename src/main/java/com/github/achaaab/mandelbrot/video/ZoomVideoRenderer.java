@@ -0,0 +1,218 @@
+package com.github.achaaab.mandelbrot.video;
+
+import com.github.achaaab.mandelbrot.MandelbrotFractal;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import static com.github.achaaab.mandelbrot.util.Utilities.time;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.lang.Math.PI;
+import static java.lang.Math.atan2;
+import static java.lang.Math.ceil;
+import static java.lang.Math.floor;
+import static java.lang.Math.hypot;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Renders the frames of a zoom video toward a point, from an exponential map of the fractal around this point
+ * computed once. Each frame is resampled from the strip: the distance of a pixel to the frame center selects a strip
+ * row, shifted by the zoom of the frame, and its angle selects a strip column. The strip costs a few frames per zoom
+ * octave, whatever the number of frames.
+ *
+ * @author Jonathan Guéhenneux
+ * @since 0.0.2
+ */
+public class ZoomVideoRenderer {
+
+	/**
+	 * Strip widths are rounded up to a multiple of this, so that strip rows fill whole SIMD vectors.
+	 *
+	 * @since 0.0.2
+	 */
+	private static final int STRIP_WIDTH_ALIGNMENT = 8;
+
+	private final int frameWidth;
+	private final int frameHeight;
+	private final int frameCount;
+
+	/**
+	 * Creates a new zoom video renderer.
+	 *
+	 * @param frameWidth frame width in pixels
+	 * @param frameHeight frame height in pixels
+	 * @param frameCount number of frames, at least 1
+	 * @since 0.0.2
+	 */
+	public ZoomVideoRenderer(int frameWidth, int frameHeight, int frameCount) {
+
+		this.frameWidth = frameWidth;
+		this.frameHeight = frameHeight;
+		this.frameCount = frameCount;
+	}
+
+	/**
+	 * Renders the frames of a zoom, with a constant zoom factor between consecutive frames, as PNG files named
+	 * {@code frame-00000.png}, {@code frame-00001.png}...
+	 *
+	 * @param fractal Mandelbrot fractal computing the strip, with its iterations and coloring settings, its bounds
+	 * are ignored
+	 * @param centerX real part of the zoom center
+	 * @param centerY imaginary part of the zoom center
+	 * @param initialWidth width of the first frame in the complex plane
+	 * @param finalWidth width of the last frame in the complex plane
+	 * @param outputDirectory directory in which to write the frames and the temporary strip
+	 * @throws IOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	public void render(MandelbrotFractal fractal, double centerX, double centerY,
+			double initialWidth, double finalWidth, Path outputDirectory) throws IOException {
+
+		// the first strip row passes through the frame corners, so that every frame pixel is inside the strip
+		var halfDiagonal = hypot(frameWidth / 2.0, frameHeight / 2.0);
+		var initialPixelSize = initialWidth / frameWidth;
+		var finalPixelSize = finalWidth / frameWidth;
+		var maxRadius = initialPixelSize * halfDiagonal;
+
+		// an arc between 2 columns at the frame corners is at most 1 pixel long
+		var stripWidth = (int) ceil(2 * PI * halfDiagonal / STRIP_WIDTH_ALIGNMENT) * STRIP_WIDTH_ALIGNMENT;
+		var logStep = 2 * PI / stripWidth;
+
+		// the last strip row is half a pixel away from the center of the last frame
+		var stripHeight = (int) ceil(log(maxRadius / (finalPixelSize / 2)) / logStep) + 2;
+
+		var stripPath = outputDirectory.resolve("strip.tmp");
+
+		try (var strip = new LogPolarStrip(stripPath, stripWidth, stripHeight, centerX, centerY, maxRadius)) {
+
+			var stripDuration = time(() -> strip.compute(fractal));
+
+			IO.println(String.format("strip of %d x %d points (%d ms)",
+					stripWidth, stripHeight, stripDuration.toMillis()));
+
+			var framesDuration = time(() -> renderFrames(strip,
+					log(initialPixelSize / finalPixelSize), outputDirectory));
+
+			IO.println(String.format("%d frames (%d ms)", frameCount, framesDuration.toMillis()));
+		}
+	}
+
+	/**
+	 * Resamples and writes every frame, in parallel.
+	 *
+	 * @param strip computed strip
+	 * @param totalZoom natural logarithm of the zoom factor between the first and last frames
+	 * @param outputDirectory directory in which to write the frames
+	 * @throws UncheckedIOException if an I/O error occurs
+	 * @since 0.0.2
+	 */
+	private void renderFrames(LogPolarStrip strip, double totalZoom, Path outputDirectory) {
+
+		var pixelCount = frameWidth * frameHeight;
+		var columns = new float[pixelCount];
+		var rowOffsets = new float[pixelCount];
+
+		var stripWidth = strip.getWidth();
+		var logStep = strip.getLogStep();
+		var halfDiagonal = hypot(frameWidth / 2.0, frameHeight / 2.0);
+
+		// the strip coordinates of a pixel only depend on the frame through a row shift
+		for (var j = 0; j < frameHeight; j++) {
+
+			var dy = frameHeight / 2.0 - j - 0.5;
+
+			for (var i = 0; i < frameWidth; i++) {
+
+				var dx = i + 0.5 - frameWidth / 2.0;
+				var angle = atan2(dy, dx);
+				var pixelIndex = j * frameWidth + i;
+
+				columns[pixelIndex] = (float) ((angle < 0 ? angle + 2 * PI : angle) / logStep % stripWidth);
+				rowOffsets[pixelIndex] = (float) (log(halfDiagonal / hypot(dx, dy)) / logStep);
+			}
+		}
+
+		range(0, frameCount).parallel().forEach(frame -> {
+
+			var zoom = frameCount == 1 ? 0.0 : totalZoom * frame / (frameCount - 1);
+			var image = renderFrame(strip, zoom / logStep, columns, rowOffsets);
+			var path = outputDirectory.resolve(String.format("frame-%05d.png", frame));
+
+			try {
+				ImageIO.write(image, "png", path.toFile());
+			} catch (IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+	}
+
+	/**
+	 * Resamples a frame from the strip, with bilinear interpolation.
+	 *
+	 * @param strip computed strip
+	 * @param firstRow strip row at the frame corners
+	 * @param columns strip column of each pixel
+	 * @param rowOffsets strip row of each pixel, relative to the first row
+	 * @return resampled frame
+	 * @since 0.0.2
+	 */
+	private BufferedImage renderFrame(LogPolarStrip strip, double firstRow, float[] columns, float[] rowOffsets) {
+
+		var image = new BufferedImage(frameWidth, frameHeight, TYPE_INT_RGB);
+		var rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		var stripWidth = strip.getWidth();
+		var lastRow = strip.getHeight() - 1;
+
+		for (var pixelIndex = 0; pixelIndex < rgb.length; pixelIndex++) {
+
+			// pixels closer to the center than the last row are colored with it
+			var row = min(max(firstRow + rowOffsets[pixelIndex], 0.0), lastRow);
+			var row0 = min((int) floor(row), lastRow - 1);
+			var rowWeight = row - row0;
+
+			var column = columns[pixelIndex];
+			var columnFloor = floor(column);
+			var columnWeight = column - columnFloor;
+
+			// the rounding of angles just below 2π to float may give the strip width
+			var column0 = (int) columnFloor % stripWidth;
+			var column1 = (column0 + 1) % stripWidth;
+
+			var top = interpolate(strip.getRgb(column0, row0), strip.getRgb(column1, row0), columnWeight);
+			var bottom = interpolate(strip.getRgb(column0, row0 + 1), strip.getRgb(column1, row0 + 1), columnWeight);
+
+			rgb[pixelIndex] = interpolate(top, bottom, rowWeight);
+		}
+
+		return image;
+	}
+
+	/**
+	 * Linearly interpolates 2 RGB colors.
+	 *
+	 * @param rgb0 first color
+	 * @param rgb1 second color
+	 * @param weight weight of the second color, in {@code [0, 1]}
+	 * @return interpolated color
+	 * @since 0.0.2
+	 */
+	private static int interpolate(int rgb0, int rgb1, double weight) {
+
+		var weight1 = (int) (weight * 256);
+		var weight0 = 256 - weight1;
+
+		var red = ((rgb0 >> 16 & 0xFF) * weight0 + (rgb1 >> 16 & 0xFF) * weight1) >> 8;
+		var green = ((rgb0 >> 8 & 0xFF) * weight0 + (rgb1 >> 8 & 0xFF) * weight1) >> 8;
+		var blue = ((rgb0 & 0xFF) * weight0 + (rgb1 & 0xFF) * weight1) >> 8;
+
+		return red << 16 | green << 8 | blue;
+	}
+}
@@ -10,6 +10,29 @@
 // maxIterations : maximum number of iterations
 // palette : buffer with paletteSize elements containing usable colors
 // paletteSize : number of colors in the palette
+// bailout : square of the escape radius
+// smooth : whether to color with the normalized iteration count (1) or with the discrete one (0)
+// smoothOffset : 1 + log2(log2(bailout)), constant part of the normalized iteration count
+
+// Interpolates the 2 palette colors surrounding the normalized iteration count.
+// native_log2 is evaluated in hardware with reduced precision, which is more than enough for coloring.
+
+uint smoothColor(int iteration, float magnitude, float smoothOffset, __global uint *palette, int paletteSize) {
+
+	float continuousIteration = iteration + smoothOffset - native_log2(native_log2(magnitude));
+	int index = (int) continuousIteration;
+	uint weight1 = (uint) ((continuousIteration - index) * 256);
+	uint weight0 = 256 - weight1;
+
+	uint rgb0 = palette[index % paletteSize];
+	uint rgb1 = palette[(index + 1) % paletteSize];
+
+	uint red = ((rgb0 >> 16 & 0xFF) * weight0 + (rgb1 >> 16 & 0xFF) * weight1) >> 8;
+	uint green = ((rgb0 >> 8 & 0xFF) * weight0 + (rgb1 >> 8 & 0xFF) * weight1) >> 8;
+	uint blue = ((rgb0 & 0xFF) * weight0 + (rgb1 & 0xFF) * weight1) >> 8;
+
+	return red << 16 | green << 8 | blue;
+}
 
 __kernel void computeMandelbrot(
 	__global uint *output,
@@ -21,7 +44,10 @@ __kernel void computeMandelbrot(
 	float scaleY,
 	int maxIterations,
 	__global uint *palette,
-	int paletteSize) {
+	int paletteSize,
+	float bailout,
+	int smooth,
+	float smoothOffset) {
 
 	unsigned int i = get_global_id(0);
 	unsigned int j = get_global_id(1);
@@ -37,7 +63,7 @@ __kernel void computeMandelbrot(
 
 	int iteration = 0;
 
-	while (iteration < maxIterations && xx + yy < 4) {
+	while (iteration < maxIterations && xx + yy < bailout) {
 
 		//y = mad(x + x, y, y0);
 		y = 2 * x * y + y0;
@@ -53,7 +79,73 @@ __kernel void computeMandelbrot(
 
 	if (iteration == maxIterations) {
 		output[pixelIndex] = 0;
+	} else if (smooth) {
+		output[pixelIndex] = smoothColor(iteration, xx + yy, smoothOffset, palette, paletteSize);
 	} else {
 		output[pixelIndex] = palette[iteration % paletteSize];
 	}
 }
+
+// An OpenCL kernel for computing the number of iterations of each pixel, without coloring
+//
+// iterations : buffer with imageWidth * imageHeight elements, storing the number of iterations
+// fractions : buffer with imageWidth * imageHeight elements, storing the fractions of normalized iteration counts
+// imageWidth : buffer width in pixels
+// imageHeight : buffer height in pixels
+// minX : min value of x
+// minY : min value of y
+// scaleX : width of a pixel
+// scaleY : height of a pixel
+// maxIterations : maximum number of iterations
+// bailout : square of the escape radius
+// smooth : whether to compute fractions (1) or not (0)
+// smoothOffset : 1 + log2(log2(bailout)), constant part of the normalized iteration count
+
+__kernel void computeIterations(
+	__global int *iterations,
+	__global float *fractions,
+	int imageWidth,
+	int imageHeight,
+	float minX,
+	float minY,
+	float scaleX,
+	float scaleY,
+	int maxIterations,
+	float bailout,
+	int smooth,
+	float smoothOffset) {
+
+	unsigned int i = get_global_id(0);
+	unsigned int j = get_global_id(1);
+
+	float x0 = minX + i * scaleX;
+	float y0 = minY + j * scaleY;
+
+	float x = 0.0;
+	float y = 0.0;
+
+	float xx = 0.0;
+	float yy = 0.0;
+
+	int iteration = 0;
+
+	while (iteration < maxIterations && xx + yy < bailout) {
+
+		//y = mad(x + x, y, y0);
+		y = 2 * x * y + y0;
+		x = xx - yy + x0;
+
+		xx = x * x;
+		yy = y * y;
+
+		iteration++;
+	}
+
+	int pixelIndex = (imageHeight - j - 1) * imageWidth + i;
+
+	iterations[pixelIndex] = iteration;
+
+	if (smooth) {
+		fractions[pixelIndex] = iteration == maxIterations ? 0.0f : smoothOffset - native_log2(native_log2((float) (xx + yy)));
+	}
+}